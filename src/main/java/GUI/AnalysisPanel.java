@@ -0,0 +1,242 @@
+package GUI;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.*;
+
+import game.Board;
+import game.GameStatus;
+import game.Position;
+import game.engine.Evaluator;
+import game.engine.Search;
+import game.engine.SearchInfo;
+
+/**
+ * Panel that analyzes the current Position with the engine in the background.
+ *
+ * Depth, score and principal variation are streamed into the panel after every completed iteration.
+ * A new Position cancels the running search, and the next search only starts once the Position has
+ * been stable for a short time (debounce). Results are cached per Position and player to move, so
+ * returning to a Position shows its analysis at once. All fields are accessed on the EDT only.
+ */
+public class AnalysisPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_DEPTH = 32;
+    private static final int DEBOUNCE_MILLIS = 250;
+    private static final int CACHE_SIZE = 512;
+
+    private final JToggleButton analyzeButton;
+    private final JLabel summaryLabel;
+    private final JTextArea linesArea;
+
+    private final ExecutorService analysisThread;
+    private final Timer debounce;
+    private Evaluator evaluation;
+    private final Map<Position, SearchInfo[]> cache;
+
+    private Position position;
+    private int color;
+    private boolean gameOver;
+
+    private Search running;
+    private int generation;
+
+
+    /**
+     * @param evaluation the evaluation of the engine, e.g. new Evaluation().
+     */
+    public AnalysisPanel(Evaluator evaluation) {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createTitledBorder("Analysis"));
+        setPreferredSize(new Dimension(260, 0));
+
+        this.evaluation = evaluation;
+        cache = new LinkedHashMap<Position, SearchInfo[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Position, SearchInfo[]> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        analysisThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+        debounce = new Timer(DEBOUNCE_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                startSearch();
+            }
+        });
+        debounce.setRepeats(false);
+
+        analyzeButton = new JToggleButton("Analyze");
+        analyzeButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (analyzeButton.isSelected()) {
+                    showCached();
+                    startSearch();
+                } else {
+                    stopSearch();
+                }
+            }
+        });
+
+        summaryLabel = new JLabel(" ");
+        linesArea = new JTextArea(12, 20);
+        linesArea.setEditable(false);
+        linesArea.setLineWrap(true);
+        linesArea.setWrapStyleWord(true);
+
+        JPanel top = new JPanel(new BorderLayout(5, 5));
+        top.add(analyzeButton, BorderLayout.WEST);
+        top.add(summaryLabel, BorderLayout.CENTER);
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(linesArea), BorderLayout.CENTER);
+    }
+
+
+    /**
+     * Analyze with another evaluation from the next search on (EDT). Cached results of the old one are
+     * dropped.
+     */
+    public void setEvaluation(Evaluator evaluation) {
+        stopSearch();
+        this.evaluation = evaluation;
+        cache.clear();
+        if (analyzeButton.isSelected()) {
+            startSearch();
+        }
+    }
+
+    /**
+     * Analyze a new Position (EDT). The running search is cancelled immediately and a new one is started
+     * after the debounce delay.
+     * @param position the Position to analyze
+     * @param color 0 for white and 1 for black, the player to move.
+     * @param status status of the game, no search is started once the game is over.
+     */
+    public void setPosition(Position position, int color, GameStatus status) {
+        stopSearch();
+        this.position = position;
+        this.color = color;
+        this.gameOver = (status != null && status.isGameOver());
+
+        linesArea.setText("");
+        summaryLabel.setText(gameOver ? status.toString() : " ");
+        if (!analyzeButton.isSelected() || gameOver) {
+            return;
+        }
+        showCached();
+        debounce.restart();
+    }
+
+    private void showCached() {
+        SearchInfo cached = getCached();
+        if (cached != null) {
+            show(cached);
+        }
+    }
+
+    private void startSearch() {
+        debounce.stop();
+        stopSearch();
+        if (position == null || gameOver || !analyzeButton.isSelected()) {
+            return;
+        }
+        SearchInfo cached = getCached();
+        if (cached != null && (cached.isMate() || cached.getDepth() >= MAX_DEPTH)) {
+            return;
+        }
+
+        final Search search = new Search(evaluation);
+        final Position target = position;
+        final int player = color;
+        final int id = ++generation;
+        final int knownDepth = (cached == null) ? 0 : cached.getDepth();
+        running = search;
+
+        analysisThread.execute(new Runnable() {
+            public void run() {
+                if (search.isStopped()) {
+                    return;
+                }
+                search.search(new Board(target, player), player, MAX_DEPTH, new Search.Listener() {
+                    public void onIteration(final SearchInfo info) {
+                        if (info.getDepth() <= knownDepth) {
+                            return;
+                        }
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                putCached(target, player, info);
+                                if (id == generation) {
+                                    show(info);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private void stopSearch() {
+        debounce.stop();
+        if (running != null) {
+            running.stop();
+            running = null;
+        }
+        generation++;
+    }
+
+    /**
+     * Show one iteration: the summary line and the principal variation on top of earlier iterations.
+     */
+    private void show(SearchInfo info) {
+        long nps = (info.getTimeMillis() > 0) ? info.getNodes() * 1000 / info.getTimeMillis() : info.getNodes();
+        summaryLabel.setText("depth " + info.getDepth() + "  " + formatScore(info) + "  " + nps + " n/s");
+
+        String line = info.getDepth() + ": " + formatScore(info) + "  " + info.getPvString() + "\n";
+        linesArea.insert(line, 0);
+        linesArea.setCaretPosition(0);
+    }
+
+    /**
+     * @return the score from the point of view of white, in pawns or as "#n" for a mate in n moves.
+     */
+    private String formatScore(SearchInfo info) {
+        int sign = (color == 0) ? 1 : -1;
+        if (info.isMate()) {
+            return "#" + (sign * info.getMateIn());
+        }
+        return String.format("%+.2f", sign * info.getScore() / 100.0);
+    }
+
+    private SearchInfo getCached() {
+        SearchInfo[] infos = (position == null) ? null : cache.get(position);
+        return (infos == null) ? null : infos[color];
+    }
+
+    private void putCached(Position target, int player, SearchInfo info) {
+        SearchInfo[] infos = cache.get(target);
+        if (infos == null) {
+            infos = new SearchInfo[2];
+            cache.put(target, infos);
+        }
+        if (infos[player] == null || infos[player].getDepth() < info.getDepth()) {
+            infos[player] = info;
+        }
+    }
+}
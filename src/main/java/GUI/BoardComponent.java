@@ -0,0 +1,259 @@
+package GUI;
+
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.*;
+
+import game.BoardSize;
+import game.Position;
+import game.SquareSet;
+import game.piece.PieceType;
+
+/**
+ * Single component that paints the board from a Position snapshot.
+ *
+ * The checkered background is rendered once per size into an image, and pieces are drawn with icons
+ * from the shared PieceIcons cache. setPosition() may be called from any thread: it compares the new
+ * snapshot with the previous one and repaints only the squares that changed, so replays and engine
+ * playouts can be animated at high speed. The component takes the rows and columns of the Position it
+ * shows, and repaints everything when a Position of another BoardSize comes in.
+ */
+public class BoardComponent extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Color DARK = Color.gray;
+    private static final Color LIGHT = Color.WHITE;
+    private static final Color SELECTED = new Color(255, 200, 0);
+    private static final Color TARGET = new Color(0, 120, 0, 110);
+
+    private final PieceIcons icons;
+    private final AtomicReference<Position> position;
+
+    private volatile BoardSize size;
+    private BufferedImage background;
+    private int selectedSquare = -1;
+    private SquareSet highlighted = SquareSet.EMPTY;
+
+
+    /**
+     * @param size dimensions shown until the first Position is set.
+     * @param icons shared icon cache.
+     */
+    public BoardComponent(BoardSize size, PieceIcons icons) {
+        this.size = size;
+        this.icons = icons;
+        this.position = new AtomicReference<Position>();
+
+        setOpaque(true);
+        setDoubleBuffered(true);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                background = null;
+                BoardComponent.this.icons.prepare(getSquareSize(), new Runnable() {
+                    public void run() {
+                        repaint();
+                    }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Show a new Position. Only the squares that differ from the previous Position are repainted.
+     * @param next the Position to show.
+     */
+    public void setPosition(Position next) {
+        Position previous = position.getAndSet(next);
+        if (next == null) {
+            repaint();
+            return;
+        }
+        if (!next.getSize().equals(size)) {
+            size = next.getSize();
+            icons.prepare(getSquareSize(), new Runnable() {
+                public void run() {
+                    repaint();
+                }
+            });
+            repaint();
+            return;
+        }
+        repaintSquares(next.diff(previous));
+    }
+
+    public Position getPosition() {
+        return position.get();
+    }
+
+    /**
+     * Outline a square, e.g. the piece picked by the player (EDT).
+     * @param square square index x * columns + y, -1 to clear the selection.
+     */
+    public void setSelectedSquare(int square) {
+        SquareSet dirty = SquareSet.EMPTY;
+        if (selectedSquare >= 0) {
+            dirty = dirty.with(selectedSquare);
+        }
+        if (square >= 0) {
+            dirty = dirty.with(square);
+        }
+        selectedSquare = square;
+        repaintSquares(dirty);
+    }
+
+    /**
+     * Mark squares, e.g. the valid destinations of the selected piece (EDT).
+     * @param squares the squares to mark.
+     */
+    public void setHighlightedSquares(SquareSet squares) {
+        SquareSet dirty = highlighted.xor(squares);
+        highlighted = squares;
+        repaintSquares(dirty);
+    }
+
+    /**
+     * Schedule a repaint of a set of squares.
+     * @param squares the squares to repaint.
+     */
+    public void repaintSquares(SquareSet squares) {
+        int columns = size.getColumns();
+        int side = getSquareSize();
+        Point origin = getOrigin(side);
+        for (int square = squares.first(); square >= 0; square = squares.next(square + 1)) {
+            repaint(origin.x + (square % columns) * side, origin.y + (square / columns) * side, side, side);
+        }
+    }
+
+    /**
+     * Find the square under a point of this component.
+     * @return square index x * columns + y, or -1 if the point is outside the board.
+     */
+    public int getSquareAt(Point point) {
+        BoardSize dimensions = size;
+        int side = getSquareSize();
+        if (side <= 0) {
+            return -1;
+        }
+        Point origin = getOrigin(side);
+        int x = Math.floorDiv(point.y - origin.y, side);
+        int y = Math.floorDiv(point.x - origin.x, side);
+        if (!dimensions.contains(x, y)) {
+            return -1;
+        }
+        return x * dimensions.getColumns() + y;
+    }
+
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        BoardSize dimensions = size;
+        int columns = dimensions.getColumns();
+        int size = getSquareSize();
+        if (size <= 0) {
+            return;
+        }
+        Point origin = getOrigin(size);
+
+        g.setColor(getBackground() != null ? getBackground() : LIGHT);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.drawImage(getBoardBackground(dimensions, size), origin.x, origin.y, null);
+
+        if (selectedSquare >= 0) {
+            g.setColor(SELECTED);
+            g.fillRect(origin.x + (selectedSquare % columns) * size, origin.y + (selectedSquare / columns) * size,
+                    size, size);
+        }
+
+        Position current = position.get();
+        if (current == null || !current.getSize().equals(dimensions)) {
+            return;
+        }
+
+        // Only visit the squares that intersect the clip of this repaint.
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int fromX = Math.max(0, (clip.y - origin.y) / size);
+        int toX = Math.min(dimensions.getRows() - 1, (clip.y + clip.height - origin.y) / size);
+        int fromY = Math.max(0, (clip.x - origin.x) / size);
+        int toY = Math.min(columns - 1, (clip.x + clip.width - origin.x) / size);
+
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                PieceType type = current.getType(x, y);
+                if (highlighted.contains(x * columns + y)) {
+                    paintTarget(g, origin.x + y * size, origin.y + x * size, size, type != null);
+                }
+                if (type == null) {
+                    continue;
+                }
+                Icon icon = icons.getIcon(type, current.getColor(x, y), size);
+                if (icon != null) {
+                    icon.paintIcon(this, g, origin.x + y * size + (size - icon.getIconWidth()) / 2,
+                            origin.y + x * size + (size - icon.getIconHeight()) / 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paint the mark of a destination: a dot on an empty square, a ring around a piece to capture.
+     */
+    private void paintTarget(Graphics g, int left, int top, int size, boolean capture) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setColor(TARGET);
+        if (capture) {
+            g2.setStroke(new BasicStroke(Math.max(2, size / 12)));
+            g2.drawOval(left + size / 16, top + size / 16, size - size / 8, size - size / 8);
+        } else {
+            g2.fillOval(left + size * 3 / 8, top + size * 3 / 8, size / 4, size / 4);
+        }
+        g2.dispose();
+    }
+
+    /**
+     * @return the checkered background of the current size, rendered once and reused.
+     */
+    private BufferedImage getBoardBackground(BoardSize dimensions, int size) {
+        int rows = dimensions.getRows();
+        int columns = dimensions.getColumns();
+        BufferedImage image = background;
+        if (image == null || image.getWidth() != columns * size || image.getHeight() != rows * size) {
+            image = new BufferedImage(columns * size, rows * size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            for (int x = 0; x < rows; x++) {
+                for (int y = 0; y < columns; y++) {
+                    g.setColor(((x + y) % 2 == 0) ? DARK : LIGHT);
+                    g.fillRect(y * size, x * size, size, size);
+                }
+            }
+            g.dispose();
+            background = image;
+        }
+        return image;
+    }
+
+    private int getSquareSize() {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        int height = getHeight() - insets.top - insets.bottom;
+        return Math.min(width / size.getColumns(), height / size.getRows());
+    }
+
+    private Point getOrigin(int side) {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        int height = getHeight() - insets.top - insets.bottom;
+        return new Point(insets.left + (width - size.getColumns() * side) / 2,
+                insets.top + (height - size.getRows() * side) / 2);
+    }
+}
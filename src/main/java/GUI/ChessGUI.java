@@ -4,45 +4,191 @@ import java.awt.*;
 import java.awt.event.*;
 
 import javax.swing.*;
-import javax.imageio.ImageIO;
 import javax.swing.border.Border;
+import java.io.File;
+import java.io.IOException;
 import java.lang.Runnable;
+import java.util.concurrent.TimeUnit;
 
 import static javax.swing.JOptionPane.INFORMATION_MESSAGE;
 import static javax.swing.JOptionPane.showInputDialog;
 import static javax.swing.JOptionPane.showMessageDialog;
 
 import game.*;
+import game.engine.Evaluation;
+import game.engine.Evaluator;
+import game.engine.NnueEvaluator;
+import game.piece.PieceColor;
+import game.rating.RatingFormula;
+import game.rating.RatingService;
+import game.store.GameStore;
 
 public class ChessGUI {
 
-    private final int N = 8;
     private final int PIXEL = 70;
     private final int MARGIN = 40;
 
     private JPanel contentPanel;
-    private JButton[][] chessPieces;
-    private JPanel board;
+    private BoardComponent board;
     private JMenuBar menuBar;
+    private JLabel statusLabel;
+    private PieceIcons icons;
+    private GameController controller;
+    private AnalysisPanel analysisPanel;
+
+    /* Opened in the background, null until then and after close() (EDT). */
+    private GameStore store;
+    private RatingService ratings;
+    private boolean closed;
 
     /**
      *  Constructor to setup to GUI.
      *  contentPanel: the panel that defines frame layout.
-     *  board: the panel that is GridLayout, 8x8, holds chessPieces.
-     *  chessPieces: double array of JButtons with chess piece image attached to them, to detect movement
+     *  board: the component that paints the board from a Position snapshot.
      *  menuBar: the main menu to start new games, edit moves, etc.
+     *  statusLabel: shows whose turn it is and the status of the game.
+     *  icons: cache of piece icons scaled to the current square size.
+     *  controller: plays the Game off the EDT, driven by clicks on the board.
+     *  analysisPanel: analyzes the current position with the engine in the background.
+     *  Finished games are kept in a GameStore in ~/.chess/games and rated by a RatingService that is
+     *  saved to ~/.chess/ratings every minute. The engine evaluates with the network in
+     *  ~/.chess/network.nnue if there is one, else with the handcrafted evaluation. All three are loaded
+     *  in the background, see loadInBackground(), and closed by close().
      */
     public ChessGUI() {
         contentPanel = new JPanel(new BorderLayout(10, 10));
+        icons = new PieceIcons();
 
-        initButtons();
-        initBoard(BorderFactory.createEmptyBorder(MARGIN,MARGIN,MARGIN,MARGIN), new Dimension(N * PIXEL, N * PIXEL));
+        initBoard(BorderFactory.createEmptyBorder(MARGIN,MARGIN,MARGIN,MARGIN), new Dimension(BoardSize.LARGE.getColumns() * PIXEL,
+                BoardSize.LARGE.getRows() * PIXEL));
         initMenu();
 
+        statusLabel = new JLabel("Start a new game from the Game menu.", SwingConstants.CENTER);
+        controller = new GameController(board, statusLabel);
+        analysisPanel = new AnalysisPanel(new Evaluation());
+        controller.setListener(new GameController.Listener() {
+            public void positionChanged(Position position, int currentPlayer, GameStatus status) {
+                analysisPanel.setPosition(position, currentPlayer, status);
+            }
+        });
+
         contentPanel.add(board, BorderLayout.CENTER);
+        contentPanel.add(statusLabel, BorderLayout.SOUTH);
+        contentPanel.add(analysisPanel, BorderLayout.EAST);
+        loadInBackground();
         showMessageDialog(null,"Welcome to Chess!","Chess", INFORMATION_MESSAGE);
     }
 
+    /**
+     * Open the GameStore, the ratings and the network off the EDT, and hand them to the controller and
+     * the analysis once they are all ready. Until then games are neither kept nor rated, and the
+     * analysis uses the handcrafted evaluation.
+     */
+    private void loadInBackground() {
+        Thread loader = new Thread(new Runnable() {
+            public void run() {
+                File home = new File(System.getProperty("user.home"), ".chess");
+                final GameStore loadedStore = openGameStore(new File(home, "games"));
+                final RatingService loadedRatings = loadRatings(new File(home, "ratings"));
+                final Evaluator network = loadNetwork(new File(home, "network.nnue"));
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (closed) {
+                            closeInBackground(loadedStore, loadedRatings);
+                            return;
+                        }
+                        store = loadedStore;
+                        ratings = loadedRatings;
+                        controller.setGameStore(store);
+                        controller.setRatingService(ratings);
+                        if (network != null) {
+                            analysisPanel.setEvaluation(network);
+                        }
+                    }
+                });
+            }
+        }, "chess-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private static GameStore openGameStore(File directory) {
+        try {
+            return new GameStore(directory);
+        } catch (IOException e) {
+            System.out.println("Cannot open the game store: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static RatingService loadRatings(File file) {
+        RatingService ratings = new RatingService(RatingFormula.GLICKO);
+        try {
+            if (file.isFile()) {
+                ratings.load(file);
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot read the ratings: " + e.getMessage());
+        }
+        ratings.startSnapshots(file, 1, TimeUnit.MINUTES);
+        return ratings;
+    }
+
+    /**
+     * @return the network, or null if there is none.
+     */
+    private static Evaluator loadNetwork(File file) {
+        try {
+            if (file.isFile()) {
+                return NnueEvaluator.load(file);
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot read the network: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Close the GameStore and save the ratings when the window is closed (EDT). Games finished from
+     * now on are not kept.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        controller.setGameStore(null);
+        controller.setRatingService(null);
+        closeInBackground(store, ratings);
+        store = null;
+        ratings = null;
+    }
+
+    /**
+     * Close a GameStore and a RatingService, either may be null, on a thread that keeps the JVM alive
+     * until both are on disk.
+     */
+    private static void closeInBackground(final GameStore store, final RatingService ratings) {
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    if (store != null) {
+                        store.close();
+                    }
+                } catch (IOException e) {
+                    System.out.println("Cannot close the game store: " + e.getMessage());
+                }
+                try {
+                    if (ratings != null) {
+                        ratings.close();
+                    }
+                } catch (IOException e) {
+                    System.out.println("Cannot save the ratings: " + e.getMessage());
+                }
+            }
+        }, "chess-closer").start();
+    }
+
     /**
      *  Initialize menu bar.
      *  ---------------------------
@@ -76,7 +222,17 @@ public class ChessGUI {
         // EDIT Menu
         JMenu edit = new JMenu(("Edit"));
         JMenuItem undo = new JMenuItem("Undo");
+        undo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                controller.undo();
+            }
+        });
         JMenuItem redo = new JMenuItem("Redo");
+        redo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                controller.redo();
+            }
+        });
         edit.add(undo);
         edit.add(redo);
 
@@ -97,77 +253,36 @@ public class ChessGUI {
 
 
     public void initBoard(Border border, Dimension dim) {
-        board = new JPanel();
+        board = new BoardComponent(BoardSize.STANDARD, icons);
         board.setBorder(border);
         board.setPreferredSize(dim);
-        board.setLayout(new GridLayout(N, N, 0, 0));
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                board.add(chessPieces[i][j]);
-            }
-        }
-    }
-
-    public void initButtons(){
-        chessPieces = new JButton[N][N];
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                if (i < 2 || i > 5) {
-                    chessPieces[i][j] = createButton("" + i + j + ".png");
-                } else {
-                    chessPieces[i][j] = createButton("empty.png");
-                }
-                chessPieces[i][j].setBackground(((i+j)%2 == 0) ? Color.gray : Color.WHITE);
-            }
-        }
-    }
-
-    private JButton createButton(String path) {
-        JButton button = new JButton();
-        try {
-            final Image img = ImageIO.read(getClass().getResourceAsStream(path));
-            ImageIcon icon = new ImageIcon(img);
-
-            button.setIcon(icon);
-            button.setOpaque(true);
-            button.setBorderPainted(false);
-
-            button.addComponentListener(new ComponentAdapter() {
-                @Override
-                public void componentResized(ComponentEvent adjustSize) {
-
-                    JButton button = (JButton) adjustSize.getComponent();
-                    Dimension size = adjustSize.getComponent().getSize();
-
-                    if (size.width > size.height) {
-                        size.width = -1;
-                    } else {
-                        size.height = -1;
-                    }
-
-                    Image newImg = img.getScaledInstance(size.width, size.height, java.awt.Image.SCALE_SMOOTH);
-                    button.setIcon(new ImageIcon(newImg));
-                }
-
-            });
-
-        } catch (Exception ex) {
-            //ignore
-        }
-
-        return button;
+        board.setPosition(new Board(new Player("WHITE", PieceColor.WHITE),
+                new Player("BLACK", PieceColor.BLACK)).getPosition());
     }
 
 
     /**
-     * When player clicked "New Game", a new Game object should be created and enter main game loop.
+     * When player clicked "New Game", a new Game object should be created and handed to the controller.
+     * The players pick the size of the board. Moves are then made by clicking on the board.
      */
     private void onNewGame() {
         String username1 = showInputDialog("Please enter WHITE player's name: ");
+        if (username1 == null) {
+            return;
+        }
         String username2 = showInputDialog("Please enter BLACK player's name: ");
+        if (username2 == null) {
+            return;
+        }
+
+        BoardSize[] sizes = {BoardSize.STANDARD, BoardSize.XIANGQI, BoardSize.LARGE};
+        Object size = showInputDialog(null, "Board size: ", "New Game", JOptionPane.QUESTION_MESSAGE,
+                null, sizes, BoardSize.STANDARD);
+        if (size == null) {
+            return;
+        }
 
-        Game game = new Game(username1, username2);
-        game.enterGameLoop(0);
+        controller.start(new Game(username1, username2, (BoardSize) size));
     }
 
     /**
@@ -193,13 +308,19 @@ public class ChessGUI {
     public static void main(String[] args) {
         Runnable runnable = new Runnable() {
             public void run() {
-                ChessGUI chessGui = new ChessGUI();
+                final ChessGUI chessGui = new ChessGUI();
                 JFrame frame = new JFrame("Chess");
 
                 frame.setContentPane(chessGui.getContentPanel());
                 frame.setJMenuBar(chessGui.getMenuBar());
 
                 frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                frame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent e) {
+                        chessGui.close();
+                    }
+                });
                 frame.setLocationByPlatform(true);
                 frame.pack();
 
@@ -0,0 +1,410 @@
+package GUI;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.*;
+
+import game.*;
+import game.piece.PieceColor;
+import game.rating.RatingService;
+import game.store.GameRecord;
+import game.store.GameStore;
+
+import static javax.swing.JOptionPane.INFORMATION_MESSAGE;
+import static javax.swing.JOptionPane.showMessageDialog;
+
+/**
+ * GameController connects a Game to the BoardComponent without blocking the EDT.
+ *
+ * Clicks on the board are collected on the EDT (first click selects a piece, second click picks the
+ * destination). The Move is then applied with Board.makeMove() on a single background thread that
+ * owns the Board, followed by the status check and, if the side to move is played by an Opponent,
+ * its reply. Results are published back to the EDT as Position snapshots. Moves are recorded in a
+ * GameHistory, so they can be undone and redone.
+ *
+ * The status check computes the valid moves of the player to move once per Position on the game
+ * thread. Selecting a piece then only reads the cached destination mask of that square to highlight
+ * its targets, and clicks on other squares are rejected on the EDT without a round trip.
+ */
+public class GameController {
+
+    /**
+     * A non-human player, e.g. an engine. Called on the game thread, so it may search for a long time.
+     */
+    public interface Opponent {
+        /**
+         * @param board the Board of the game, owned by the calling thread for the duration of the call.
+         * @param color 0 for white and 1 for black
+         * @return the Move to play, null to resign.
+         */
+        Move reply(Board board, int color);
+    }
+
+    /**
+     * Callback for the rest of the GUI, always invoked on the EDT.
+     */
+    public interface Listener {
+        void positionChanged(Position position, int currentPlayer, GameStatus status);
+    }
+
+    private final BoardComponent boardView;
+    private final JLabel statusLabel;
+    private final ExecutorService gameThread;
+    private final Opponent[] opponents;
+
+    private Listener listener;
+    private volatile MoveListener moveListener;
+    private volatile GameStore store;
+    private volatile RatingService ratings;
+
+    /* Accessed on the game thread only. */
+    private Board board;
+    private Player[] players;
+    private GameHistory history;
+    private boolean resultRecorded;
+
+    /* Accessed on the EDT only. */
+    private int currentPlayer;
+    private int selectedSquare;
+    private boolean busy;
+    private boolean gameOver;
+
+
+    /**
+     * @param boardView component that shows the board and receives the clicks.
+     * @param statusLabel label that shows whose turn it is and the status of the game.
+     */
+    public GameController(BoardComponent boardView, JLabel statusLabel) {
+        this.boardView = boardView;
+        this.statusLabel = statusLabel;
+        this.opponents = new Opponent[2];
+        this.selectedSquare = -1;
+        this.gameOver = true;
+        this.gameThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "game-controller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        boardView.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                onSquareClicked(GameController.this.boardView.getSquareAt(e.getPoint()));
+            }
+        });
+    }
+
+
+    /**
+     * Start playing a new Game. Must be called on the EDT.
+     * @param game the Game to play, white moves first.
+     */
+    public void start(Game game) {
+        busy = true;
+        gameOver = false;
+        currentPlayer = 0;
+        setSelectedSquare(-1);
+
+        // Game keeps the Board of the current game in static fields, which the next Game replaces.
+        final Board newBoard = Game.getBoard();
+        final Player[] newPlayers = Game.getPlayers();
+        gameThread.execute(new Runnable() {
+            public void run() {
+                board = newBoard;
+                players = newPlayers;
+                if (store != null) {
+                    store.restoreStatistics(players[0]);
+                    store.restoreStatistics(players[1]);
+                }
+                history = new GameHistory(board);
+                history.setMoveListener(moveListener);
+                if (moveListener != null) {
+                    moveListener.positionChanged(board.getPosition());
+                }
+                resultRecorded = false;
+                afterMove(0);
+            }
+        });
+    }
+
+    /**
+     * Let an Opponent play one color. Takes effect from the next move on.
+     * @param color 0 for white and 1 for black
+     * @param opponent the Opponent, null for a human player.
+     */
+    public void setOpponent(int color, Opponent opponent) {
+        opponents[color] = opponent;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Report the Moves played, undone and redone in the games started from now on, e.g. to a
+     * Broadcast. Called on the game thread, never for the Moves an Opponent only searches.
+     * @param moveListener the listener, null for none.
+     */
+    public void setMoveListener(MoveListener moveListener) {
+        this.moveListener = moveListener;
+    }
+
+    /**
+     * Keep finished games, and restore the statistics of the players of new games from them.
+     * @param store the GameStore, null to keep nothing.
+     */
+    public void setGameStore(GameStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Update the ratings of the players with every finished game.
+     * @param ratings the RatingService, null to keep no ratings.
+     */
+    public void setRatingService(RatingService ratings) {
+        this.ratings = ratings;
+    }
+
+    /**
+     * Take back the last Move, and the Moves of Opponents before it (EDT).
+     */
+    public void undo() {
+        step(-1);
+    }
+
+    /**
+     * Make the last undone Move again, and the Moves of Opponents after it (EDT).
+     */
+    public void redo() {
+        step(1);
+    }
+
+    private void step(final int direction) {
+        if (busy || history == null) {
+            return;
+        }
+        busy = true;
+        setSelectedSquare(-1);
+
+        gameThread.execute(new Runnable() {
+            public void run() {
+                boolean moved = (direction < 0) ? history.undo() : history.redo();
+                while (moved && opponents[history.getPlayerToMove()] != null) {
+                    moved = (direction < 0) ? history.undo() : history.redo();
+                }
+                publishStatus(history.getPlayerToMove());
+            }
+        });
+    }
+
+    /**
+     * Handle a click on a square (EDT).
+     * @param square square index x * columns + y, -1 if outside the board.
+     */
+    private void onSquareClicked(int square) {
+        if (busy || gameOver || square < 0 || opponents[currentPlayer] != null) {
+            return;
+        }
+        Position position = boardView.getPosition();
+        PieceColor color = (currentPlayer == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+        final int columns = position.getSize().getColumns();
+
+        if (position.getColor(square / columns, square % columns) == color) {
+            setSelectedSquare(square);
+            return;
+        }
+        if (selectedSquare < 0) {
+            return;
+        }
+        if (position.isAnalyzed(currentPlayer)
+                && !position.getValidDestinations(currentPlayer, selectedSquare).contains(square)) {
+            setSelectedSquare(-1);
+            statusLabel.setText("Invalid move!");
+            return;
+        }
+
+        final int src = selectedSquare;
+        final int dest = square;
+        final int player = currentPlayer;
+        setSelectedSquare(-1);
+        busy = true;
+
+        gameThread.execute(new Runnable() {
+            public void run() {
+                Move move = new Move(players[player].getColor(), board, src / columns, src % columns,
+                        dest / columns, dest % columns);
+                if (history.play(move)) {
+                    afterMove((player + 1) % 2);
+                } else {
+                    publish(board.getPosition(), player, null, "Invalid move!");
+                }
+            }
+        });
+    }
+
+    /**
+     * Check the status for the player to move and let an Opponent reply (game thread).
+     * @param player 0 for white and 1 for black, the player to move.
+     */
+    private void afterMove(int player) {
+        while (true) {
+            GameStatus status = publishStatus(player);
+
+            Opponent opponent = opponents[player];
+            if (opponent == null || status.isGameOver()) {
+                return;
+            }
+            Move reply = opponent.reply(board, player);
+            if (reply == null || !history.play(reply)) {
+                publishResignation(player);
+                return;
+            }
+            player = (player + 1) % 2;
+        }
+    }
+
+    /**
+     * Check the status of the game, including draws by repetition, and publish it (game thread).
+     * @param player 0 for white and 1 for black, the player to move.
+     * @return the status
+     */
+    private GameStatus publishStatus(int player) {
+        Position position = board.getPosition();
+        GameStatus status = board.getStatus(player);
+        publish(position, player, status, null);
+        return status;
+    }
+
+    /**
+     * Hand the result of a game-thread step to the EDT.
+     * @param status status of the game, null if nothing changed.
+     * @param message message to show, may be null.
+     */
+    private void publish(final Position position, final int player, final GameStatus status, final String message) {
+        final String white = players[0].getName();
+        final String black = players[1].getName();
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                currentPlayer = player;
+                busy = false;
+                boardView.setPosition(position);
+                if (status != null) {
+                    showStatus(player, status, white, black);
+                    if (listener != null) {
+                        listener.positionChanged(position, player, status);
+                    }
+                }
+                if (message != null) {
+                    statusLabel.setText(message);
+                }
+            }
+        });
+    }
+
+    private void publishResignation(final int player) {
+        if (!resultRecorded) {
+            resultRecorded = true;
+            players[(player + 1) % 2].increaseNoOfWins();
+            players[player].increaseNoOfLoses();
+            record((player == 0) ? GameResult.BLACK_WINS : GameResult.WHITE_WINS);
+        }
+        final String name = players[player].getName();
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                busy = false;
+                gameOver = true;
+                statusLabel.setText(name + " resigned.");
+            }
+        });
+    }
+
+    /**
+     * Update the status label and finish the game on checkmate or a draw (EDT).
+     */
+    private void showStatus(int player, GameStatus status, String white, String black) {
+        String name = (player == 0) ? white : black;
+        String other = (player == 0) ? black : white;
+        switch (status) {
+            case CHECKMATE:
+                finish(player, true);
+                statusLabel.setText("Checkmate! " + other + " won!");
+                showMessageDialog(null, "Congratulations! Player " + other + " won!", "Chess", INFORMATION_MESSAGE);
+                break;
+            case STALEMATE:
+            case DRAW_REPETITION:
+            case DRAW_FIFTY_MOVES:
+            case DRAW_INSUFFICIENT_MATERIAL:
+                finish(player, false);
+                statusLabel.setText("Draw by " + Game.describeDraw(status) + ".");
+                showMessageDialog(null, "The Game ends in a draw by " + Game.describeDraw(status), "Chess",
+                        INFORMATION_MESSAGE);
+                break;
+            case CHECK:
+                gameOver = false;
+                statusLabel.setText(name + "'s turn: Check!");
+                break;
+            default:
+                gameOver = false;
+                statusLabel.setText(name + "'s turn");
+        }
+    }
+
+    /**
+     * Record the result in the Player statistics on the game thread, once per game.
+     * @param player the player who cannot move
+     * @param checkmate true for checkmate, false for a draw
+     */
+    private void finish(final int player, final boolean checkmate) {
+        gameOver = true;
+        gameThread.execute(new Runnable() {
+            public void run() {
+                if (resultRecorded) {
+                    return;
+                }
+                resultRecorded = true;
+                if (checkmate) {
+                    players[(player + 1) % 2].increaseNoOfWins();
+                    players[player].increaseNoOfLoses();
+                } else {
+                    players[0].increaseNoOfDraws();
+                    players[1].increaseNoOfDraws();
+                }
+                record(checkmate ? ((player == 0) ? GameResult.BLACK_WINS : GameResult.WHITE_WINS) : GameResult.DRAW);
+            }
+        });
+    }
+
+    /**
+     * Append the finished game to the GameStore and update the ratings, if there are any (game thread).
+     */
+    private void record(GameResult result) {
+        if (store != null) {
+            store.append(GameRecord.of(history, players[0].getName(), players[1].getName(), result));
+        }
+        if (ratings != null && !players[0].getName().equals(players[1].getName())) {
+            ratings.record(players[0].getName(), players[1].getName(), result);
+        }
+    }
+
+    /**
+     * Select a square and highlight the valid destinations of its piece (EDT).
+     * @param square square index x * columns + y, -1 to clear the selection.
+     */
+    private void setSelectedSquare(int square) {
+        selectedSquare = square;
+        boardView.setSelectedSquare(square);
+
+        Position position = boardView.getPosition();
+        if (square >= 0 && position != null && position.isAnalyzed(currentPlayer)) {
+            boardView.setHighlightedSquares(position.getValidDestinations(currentPlayer, square));
+        } else {
+            boardView.setHighlightedSquares(SquareSet.EMPTY);
+        }
+    }
+}
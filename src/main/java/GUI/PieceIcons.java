@@ -0,0 +1,211 @@
+package GUI;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+/**
+ * Shared cache of piece icons, keyed by piece type, color and pixel size.
+ *
+ * Every PNG is decoded once, on first use. All 16 icons of a size are scaled together on a background
+ * thread, and the caller is notified on the EDT when they are ready. Only the size currently in use and
+ * the last completed size are kept, so older sizes are evicted as the window is resized.
+ * Pieces without an image (Cannon, Alfil) are drawn as a letter.
+ */
+public class PieceIcons {
+
+    private static final int SOURCE_PIXEL = 80;
+
+    private final BufferedImage[] originals;
+    private final Map<Integer, Icon[]> scaled;
+    private final ExecutorService scaler;
+
+    private volatile int requestedSize;
+    private volatile int completedSize;
+
+
+    public PieceIcons() {
+        originals = new BufferedImage[PieceType.values().length * 2];
+        scaled = new ConcurrentHashMap<Integer, Icon[]>();
+        scaler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "piece-icon-scaler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Look up an icon without blocking. If the requested size is not scaled yet, the icon of the last
+     * completed size is returned, and null if no size has been completed at all.
+     * @param type type of the piece
+     * @param color color of the piece
+     * @param size edge length in pixels
+     * @return the cached icon
+     */
+    public Icon getIcon(PieceType type, PieceColor color, int size) {
+        Icon[] icons = scaled.get(size);
+        if (icons == null) {
+            icons = scaled.get(completedSize);
+        }
+        return (icons == null) ? null : icons[index(type, color)];
+    }
+
+    /**
+     * Make all icons of a size available. Scaling happens off the EDT; if the size is requested again
+     * before the scaler gets to it only the latest request is served.
+     * @param size edge length in pixels
+     * @param onReady run on the EDT once the icons of the size are cached, may be null.
+     */
+    public void prepare(final int size, final Runnable onReady) {
+        if (size <= 0) {
+            return;
+        }
+        requestedSize = size;
+        if (scaled.containsKey(size)) {
+            completedSize = size;
+            evict();
+            if (onReady != null) {
+                SwingUtilities.invokeLater(onReady);
+            }
+            return;
+        }
+
+        scaler.execute(new Runnable() {
+            public void run() {
+                if (requestedSize != size) {
+                    return;     // superseded by a later resize
+                }
+                decode();
+                Icon[] icons = new Icon[originals.length];
+                for (int i = 0; i < originals.length; i++) {
+                    icons[i] = new ImageIcon(scale(originals[i], size));
+                }
+                scaled.put(size, icons);
+                completedSize = size;
+                evict();
+                if (onReady != null) {
+                    SwingUtilities.invokeLater(onReady);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop every size except the one requested last and the one completed last.
+     */
+    private void evict() {
+        int keepRequested = requestedSize;
+        int keepCompleted = completedSize;
+        for (Integer size : scaled.keySet()) {
+            if (size != keepRequested && size != keepCompleted) {
+                scaled.remove(size);
+            }
+        }
+    }
+
+
+    /**
+     * Decode all piece images on the first use. Only called on the scaler thread.
+     */
+    private void decode() {
+        if (originals[0] != null) {
+            return;
+        }
+        for (PieceType type : PieceType.values()) {
+            for (PieceColor color : PieceColor.values()) {
+                originals[index(type, color)] = load(type, color);
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, size, size, null);
+        g.dispose();
+        return target;
+    }
+
+    /**
+     * Decode the image of a piece. The images are named after their square in the starting position,
+     * e.g. "04.png" is the black King and "74.png" the white King.
+     */
+    private BufferedImage load(PieceType type, PieceColor color) {
+        String path = resourceName(type, color);
+        if (path != null) {
+            try {
+                InputStream in = getClass().getResourceAsStream(path);
+                if (in != null) {
+                    try {
+                        return ImageIO.read(in);
+                    } finally {
+                        in.close();
+                    }
+                }
+            } catch (Exception ex) {
+                //fall back to a drawn letter
+            }
+        }
+        return drawLetter(type, color);
+    }
+
+    private static String resourceName(PieceType type, PieceColor color) {
+        String row = (color == PieceColor.BLACK) ? "0" : "7";
+        switch (type) {
+            case PAWN:
+                return ((color == PieceColor.BLACK) ? "1" : "6") + "0.png";
+            case ROOK:
+                return row + "0.png";
+            case KNIGHT:
+                return row + "1.png";
+            case BISHOP:
+                return row + "2.png";
+            case QUEEN:
+                return row + "3.png";
+            case KING:
+                return row + "4.png";
+            default:
+                return null;
+        }
+    }
+
+    private static BufferedImage drawLetter(PieceType type, PieceColor color) {
+        BufferedImage image = new BufferedImage(SOURCE_PIXEL, SOURCE_PIXEL, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        g.setColor((color == PieceColor.BLACK) ? Color.BLACK : Color.WHITE);
+        g.fillOval(8, 8, SOURCE_PIXEL - 16, SOURCE_PIXEL - 16);
+        g.setColor((color == PieceColor.BLACK) ? Color.WHITE : Color.BLACK);
+        g.drawOval(8, 8, SOURCE_PIXEL - 16, SOURCE_PIXEL - 16);
+
+        String letter = type.name().substring(0, 1);
+        g.setFont(new Font(Font.SERIF, Font.BOLD, SOURCE_PIXEL / 2));
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(letter, (SOURCE_PIXEL - metrics.stringWidth(letter)) / 2,
+                (SOURCE_PIXEL - metrics.getHeight()) / 2 + metrics.getAscent());
+        g.dispose();
+        return image;
+    }
+
+    private static int index(PieceType type, PieceColor color) {
+        return type.ordinal() * 2 + color.ordinal();
+    }
+}
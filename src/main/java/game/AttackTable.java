@@ -0,0 +1,210 @@
+package game;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import game.piece.PieceColor;
+import game.piece.PieceDefinition;
+import game.piece.PieceType;
+
+
+/**
+ * The movement of one PieceDefinition on one BoardSize, compiled into lookup tables.
+ *
+ * Masks are stored as pairs of words, table[2 * square] for squares 0-63 and table[2 * square + 1]
+ * for squares 64-127, so destinations are computed with plain long arithmetic and only the result is
+ * wrapped in a SquareSet. Blockers on a ray are found with a bit scan from the side of the piece.
+ */
+final class AttackTable {
+    private static final Map<BoardSize, AttackTable[]> TABLES = new HashMap<BoardSize, AttackTable[]>();
+
+    private final BoardSize size;
+    private final long[] leaps;
+    private final long[][] rides;
+    private final boolean[] rideForward;
+    private final long[][] hops;
+    private final boolean[] hopForward;
+    private final boolean pawn;
+
+    /* Pawn tables, indexed by color (0 for white, 1 for black). */
+    private final long[][] pawnSteps;
+    private final long[][] pawnDoubleSteps;
+    private final long[][] pawnCaptures;
+
+
+    /**
+     * @return the tables of all PieceTypes for a board size, indexed by PieceType.ordinal().
+     *         Tables are compiled once per size and shared.
+     */
+    static synchronized AttackTable[] forSize(BoardSize size) {
+        AttackTable[] tables = TABLES.get(size);
+        if (tables == null) {
+            PieceType[] types = PieceType.values();
+            tables = new AttackTable[types.length];
+            for (int i = 0; i < types.length; i++) {
+                tables[i] = new AttackTable(types[i].getDefinition(), size);
+            }
+            TABLES.put(size, tables);
+        }
+        return tables;
+    }
+
+    AttackTable(PieceDefinition definition, BoardSize size) {
+        this.size = size;
+        int squares = size.getSquares();
+
+        leaps = new long[2 * squares];
+        for (int square = 0; square < squares; square++) {
+            for (int[] leap : definition.getLeaperOffsets()) {
+                set(leaps, square, square / size.getColumns() + leap[0], square % size.getColumns() + leap[1]);
+            }
+        }
+        int[][] rideDirections = definition.getRiderDirections();
+        rides = compileRays(rideDirections);
+        rideForward = compileForward(rideDirections);
+        int[][] hopDirections = definition.getHopperDirections();
+        hops = compileRays(hopDirections);
+        hopForward = compileForward(hopDirections);
+
+        pawn = definition.isPawn();
+        pawnSteps = new long[2][2 * squares];
+        pawnDoubleSteps = new long[2][2 * squares];
+        pawnCaptures = new long[2][2 * squares];
+        for (int color = 0; color < 2 && pawn; color++) {
+            int forward = (color == 0) ? -1 : 1;
+            for (int square = 0; square < squares; square++) {
+                int x = square / size.getColumns();
+                int y = square % size.getColumns();
+                set(pawnSteps[color], square, x + forward, y);
+                set(pawnDoubleSteps[color], square, x + 2 * forward, y);
+                set(pawnCaptures[color], square, x + forward, y - 1);
+                set(pawnCaptures[color], square, x + forward, y + 1);
+            }
+        }
+    }
+
+
+    /**
+     * Find the squares a piece can move to, ignoring checks.
+     * @param square square of the piece
+     * @param color color of the piece
+     * @param moved true if the piece has moved before
+     * @param own squares occupied by pieces of the same color
+     * @param enemy squares occupied by pieces of the other color
+     * @return the destinations
+     */
+    SquareSet getDestinations(int square, PieceColor color, boolean moved, SquareSet own, SquareSet enemy) {
+        long occupiedLow = own.getLow() | enemy.getLow();
+        long occupiedHigh = own.getHigh() | enemy.getHigh();
+        int index = 2 * square;
+        long low = leaps[index];
+        long high = leaps[index + 1];
+
+        for (int i = 0; i < rides.length; i++) {
+            long[] ray = rides[i];
+            long rayLow = ray[index];
+            long rayHigh = ray[index + 1];
+            if (((rayLow & occupiedLow) | (rayHigh & occupiedHigh)) != 0) {
+                int blocker = nearest(rayLow & occupiedLow, rayHigh & occupiedHigh, rideForward[i]);
+                rayLow &= ~ray[2 * blocker];
+                rayHigh &= ~ray[2 * blocker + 1];
+            }
+            low |= rayLow;
+            high |= rayHigh;
+        }
+        for (int i = 0; i < hops.length; i++) {
+            long[] ray = hops[i];
+            long blockersLow = ray[index] & occupiedLow;
+            long blockersHigh = ray[index + 1] & occupiedHigh;
+            if ((blockersLow | blockersHigh) != 0) {
+                int screen = nearest(blockersLow, blockersHigh, hopForward[i]);
+                low |= ray[2 * screen];
+                high |= ray[2 * screen + 1];
+            }
+        }
+        if (pawn) {
+            int c = (color == PieceColor.WHITE) ? 0 : 1;
+            long stepLow = pawnSteps[c][index] & ~occupiedLow;
+            long stepHigh = pawnSteps[c][index + 1] & ~occupiedHigh;
+            low |= stepLow;
+            high |= stepHigh;
+            if ((stepLow | stepHigh) != 0 && !moved) {
+                low |= pawnDoubleSteps[c][index] & ~occupiedLow;
+                high |= pawnDoubleSteps[c][index + 1] & ~occupiedHigh;
+            }
+            low |= pawnCaptures[c][index] & enemy.getLow();
+            high |= pawnCaptures[c][index + 1] & enemy.getHigh();
+        }
+        return SquareSet.fromWords(low & ~own.getLow(), high & ~own.getHigh());
+    }
+
+    /**
+     * Find the squares between a rider and a target on one of its rays, i.e. where the attack can be blocked.
+     * @return the squares strictly between, empty if the target is not on a ray of a rider direction.
+     */
+    SquareSet getSquaresBetween(int from, int to) {
+        for (long[] ray : rides) {
+            SquareSet fromRay = SquareSet.fromWords(ray[2 * from], ray[2 * from + 1]);
+            if (fromRay.contains(to)) {
+                return fromRay.andNot(SquareSet.fromWords(ray[2 * to], ray[2 * to + 1])).without(to);
+            }
+        }
+        return SquareSet.EMPTY;
+    }
+
+
+    /**
+     * @return for each direction, the squares reached from each square by repeated steps.
+     */
+    private long[][] compileRays(int[][] directions) {
+        int columns = size.getColumns();
+        long[][] rays = new long[directions.length][2 * size.getSquares()];
+        for (int i = 0; i < directions.length; i++) {
+            for (int square = 0; square < size.getSquares(); square++) {
+                int x = square / columns + directions[i][0];
+                int y = square % columns + directions[i][1];
+                while (size.contains(x, y)) {
+                    set(rays[i], square, x, y);
+                    x += directions[i][0];
+                    y += directions[i][1];
+                }
+            }
+        }
+        return rays;
+    }
+
+    /**
+     * @return for each direction, true if the square index grows along the ray.
+     */
+    private boolean[] compileForward(int[][] directions) {
+        boolean[] forward = new boolean[directions.length];
+        for (int i = 0; i < directions.length; i++) {
+            forward[i] = directions[i][0] * size.getColumns() + directions[i][1] > 0;
+        }
+        return forward;
+    }
+
+    /**
+     * Add (x, y) to the mask of a square, if it is on the board.
+     */
+    private void set(long[] table, int square, int x, int y) {
+        if (size.contains(x, y)) {
+            int target = x * size.getColumns() + y;
+            if (target < 64) {
+                table[2 * square] |= 1L << target;
+            } else {
+                table[2 * square + 1] |= 1L << (target - 64);
+            }
+        }
+    }
+
+    /**
+     * @return the square of the blocker closest to the piece on a ray.
+     */
+    private static int nearest(long low, long high, boolean forward) {
+        if (forward) {
+            return (low != 0) ? Long.numberOfTrailingZeros(low) : 64 + Long.numberOfTrailingZeros(high);
+        }
+        return (high != 0) ? 127 - Long.numberOfLeadingZeros(high) : 63 - Long.numberOfLeadingZeros(low);
+    }
+}
@@ -1,5 +1,6 @@
 package game;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Stack;
 
@@ -13,12 +14,37 @@ import game.piece.PieceType;
  * a Stack to track removed/captured pieces and a LinkedList to track history of moves.It is also
  * responsible to make Moves, search for possible Moves and check game end conditions (isCheckMate,
  * isStaleMate), etc.
+ *
+ * The Board keeps a Zobrist hash of its pieces up to date on every change. After every move the hash,
+ * combined with the player to move, is appended to a compact array of keys together with the number
+ * of plies since the last capture or pawn move, which is all that repetition and fifty-move checks
+ * need: positions before an irreversible move can never occur again.
+ *
+ * The dimensions of the board are given by a BoardSize, 8x8 by default, and squares are indexed
+ * x * columns + y. The squares occupied by each color are kept as SquareSets. Together with the
+ * AttackTables compiled from the PieceDefinitions they give the destinations of every piece without
+ * trying all squares.
+ *
+ * A Board is not thread-safe and belongs to the thread that plays the game. Other threads read the
+ * immutable Position published by getPosition() after every makeMove() and undoMove().
  */
 public class Board {
+    private final BoardSize size;
+    private final AttackTable[] tables;
     private ChessPiece[][] pieces;
     private Stack<ChessPiece> removedPieces;
     private Player[] players;
     private LinkedList<Move> moveHistory;
+    private volatile Position position;
+
+    private SquareSet[] occupied; // squares occupied by white (0) and black (1) pieces
+    private long hash;           // Zobrist hash of the pieces
+    private long positionHash;   // hash of the pieces when position was published
+    private long[] keys;         // hash and player to move after every move, keys[0] for the start
+    private int[] clocks;        // plies since the last capture or pawn move, per key
+    private int noOfKeys;
+    private Tablebases tablebases;
+    private PieceListener listener;
 
 
     /**
@@ -27,20 +53,229 @@ public class Board {
      * @param black The black Player
      */
     public Board(Player white, Player black) {
+        this(white, black, BoardSize.STANDARD);
+    }
+
+    /**
+     * Create a Board of any supported size with the pieces in their starting position.
+     * @param white The white Player
+     * @param black The black Player
+     * @param size dimensions of the board
+     */
+    public Board(Player white, Player black, BoardSize size) {
+        this.size = size;
+        this.tables = AttackTable.forSize(size);
         this.removedPieces = new Stack<ChessPiece>();
 
         this.players = new Player[2];
         this.players[0] = white;
         this.players[1] = black;
 
-        this.pieces = new ChessPiece [8][8];
-        for(int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
+        this.pieces = new ChessPiece [size.getRows()][size.getColumns()];
+        for(int i = 0; i < size.getRows(); i++){
+            for (int j = 0; j < size.getColumns(); j++){
                 pieces[i][j] = createChessPiece(i, j);
             }
         }
 
         this.moveHistory = new LinkedList<Move>();
+        this.position = new Position(this);
+        resetKeys(0);
+    }
+
+    /**
+     * Create a Board with the pieces of a Position snapshot and white to move, e.g. to answer queries.
+     * @param position the snapshot to copy.
+     */
+    public Board(Position position) {
+        this(position, 0);
+    }
+
+    /**
+     * Create a Board with the pieces of a Position snapshot, e.g. to search on a private copy of a game.
+     * @param position the snapshot to copy.
+     * @param color 0 for white and 1 for black, the player to move, which is part of getKey().
+     */
+    public Board(Position position, int color) {
+        this.size = position.getSize();
+        this.tables = AttackTable.forSize(size);
+        this.players = new Player[2];
+        this.pieces = new ChessPiece [size.getRows()][size.getColumns()];
+        reset(position, color);
+    }
+
+    /**
+     * Create a Board from the piece placement of a FEN-like diagram: the rows from black's back rank
+     * (x = 0) down, separated by '/', each a sequence of piece letters and numbers of empty squares.
+     * Letters are those of PieceType, e.g. C for a Cannon and A for an Alfil, upper case for white and
+     * lower case for black. The size of the board follows from the diagram, e.g.
+     * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR". Pawns off their starting row count as moved.
+     * @param fen the piece placement
+     * @return a Board without move history and with white to move.
+     * @throws IllegalArgumentException if the diagram is not valid.
+     */
+    public static Board fromFen(String fen) {
+        return fromFen(fen, 0);
+    }
+
+    /**
+     * Create a Board from the piece placement of a FEN-like diagram, see fromFen(String).
+     * @param fen the piece placement
+     * @param color 0 for white and 1 for black, the player to move, which is part of getKey().
+     * @return a Board without move history.
+     * @throws IllegalArgumentException if the diagram is not valid.
+     */
+    public static Board fromFen(String fen, int color) {
+        String[] ranks = fen.trim().split("/");
+        int columns = -1;
+        ChessPiece[][] parsed = new ChessPiece[ranks.length][];
+        for (int x = 0; x < ranks.length; x++) {
+            ChessPiece[] row = new ChessPiece[BoardSize.MAX_SQUARES];
+            int y = 0;
+            for (int i = 0; i < ranks[x].length() && y < row.length; i++) {
+                char letter = ranks[x].charAt(i);
+                if (Character.isDigit(letter)) {
+                    int empty = letter - '0';
+                    while (i + 1 < ranks[x].length() && Character.isDigit(ranks[x].charAt(i + 1))) {
+                        empty = 10 * empty + ranks[x].charAt(++i) - '0';
+                    }
+                    y += empty;
+                    continue;
+                }
+                PieceType type = PieceType.fromLetter(Character.toUpperCase(letter));
+                if (type == null) {
+                    throw new IllegalArgumentException("Unknown piece " + letter + " in " + fen);
+                }
+                row[y++] = new ChessPiece(Character.isUpperCase(letter) ? PieceColor.WHITE : PieceColor.BLACK, type);
+            }
+            if (columns >= 0 && y != columns) {
+                throw new IllegalArgumentException("Rows of different length in " + fen);
+            }
+            columns = y;
+            parsed[x] = row;
+        }
+
+        BoardSize size = BoardSize.of(ranks.length, columns);
+        Board board = new Board(new Player("WHITE", PieceColor.WHITE), new Player("BLACK", PieceColor.BLACK), size);
+        for (int x = 0; x < size.getRows(); x++) {
+            for (int y = 0; y < columns; y++) {
+                ChessPiece piece = parsed[x][y];
+                if (piece != null && piece.getType() == PieceType.PAWN) {
+                    piece.setHasMoved(x != ((piece.getColor() == PieceColor.WHITE) ? size.getRows() - 2 : 1));
+                }
+                board.pieces[x][y] = piece;
+            }
+        }
+        board.position = new Position(board);
+        board.resetKeys(color);
+        return board;
+    }
+
+    /**
+     * @return the piece placement of the Board as a FEN-like diagram, see fromFen().
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int x = 0; x < size.getRows(); x++) {
+            int empty = 0;
+            for (int y = 0; y < size.getColumns(); y++) {
+                ChessPiece piece = pieces[x][y];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = piece.getType().getLetter();
+                fen.append((piece.getColor() == PieceColor.WHITE) ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (x < size.getRows() - 1) {
+                fen.append('/');
+            }
+        }
+        return fen.toString();
+    }
+
+    /**
+     * Replace all pieces with the pieces of a Position snapshot and forget the move history.
+     * Repetitions and the fifty-move rule are counted from the snapshot on, with white to move.
+     * @param position the snapshot to copy, of the same size as this Board.
+     */
+    public void reset(Position position) {
+        reset(position, 0);
+    }
+
+    /**
+     * Replace all pieces with the pieces of a Position snapshot and forget the move history.
+     * Repetitions and the fifty-move rule are counted from the snapshot on.
+     * @param position the snapshot to copy, of the same size as this Board.
+     * @param color 0 for white and 1 for black, the player to move, which is part of getKey().
+     */
+    public void reset(Position position, int color) {
+        reset(position, color, null, null, 0);
+    }
+
+    /**
+     * Replace all pieces with the pieces of a Position snapshot, and continue the key history that led
+     * to it instead of starting a new one, so repetitions and the fifty-move clock are the same as
+     * before the reset. Used to jump to a checkpoint of a GameHistory.
+     * @param keys keys of the positions up to the snapshot, see getKeyHistory(); null for none.
+     * @param clocks the half-move clocks of the keys, see getClockHistory().
+     * @param noOfKeys number of keys, the last one being the key of the snapshot.
+     */
+    void reset(Position position, long[] keys, int[] clocks, int noOfKeys) {
+        reset(position, 0, keys, clocks, noOfKeys);
+    }
+
+    private void reset(Position position, int color, long[] keys, int[] clocks, int noOfKeys) {
+        if (!position.getSize().equals(size)) {
+            throw new IllegalArgumentException("Position of size " + position.getSize() + " on a " + size + " board");
+        }
+        for (int i = 0; i < size.getSquares(); i++) {
+            pieces[i / size.getColumns()][i % size.getColumns()] = position.createPiece(i);
+        }
+        this.removedPieces = new Stack<ChessPiece>();
+        this.moveHistory = new LinkedList<Move>();
+        this.position = position;
+        resetKeys(color);
+        if (keys != null) {
+            long key = keys[noOfKeys - 1];
+            if (key != hash && key != (hash ^ Zobrist.BLACK_TO_MOVE)) {
+                throw new IllegalArgumentException("Key history of another position");
+            }
+            this.keys = Arrays.copyOf(keys, Math.max(256, 2 * noOfKeys));
+            this.clocks = Arrays.copyOf(clocks, this.keys.length);
+            this.noOfKeys = noOfKeys;
+        }
+    }
+
+    /**
+     * Recompute the occupied squares and the hash from the pieces, and start a new key history.
+     * @param color 0 for white and 1 for black, the player to move.
+     */
+    private void resetKeys(int color) {
+        occupied = new SquareSet[] {SquareSet.EMPTY, SquareSet.EMPTY};
+        hash = 0L;
+        for (int i = 0; i < size.getSquares(); i++) {
+            ChessPiece curr = pieces[i / size.getColumns()][i % size.getColumns()];
+            if (curr != null) {
+                occupied[toColorIndex(curr.getColor())] = occupied[toColorIndex(curr.getColor())].with(i);
+                hash ^= Zobrist.piece(curr, i);
+            }
+        }
+        positionHash = hash;
+        keys = new long[256];
+        clocks = new int[256];
+        keys[0] = (color == 0) ? hash : hash ^ Zobrist.BLACK_TO_MOVE;
+        noOfKeys = 1;
+        if (listener != null) {
+            listener.piecesReset(this);
+        }
     }
 
 
@@ -50,6 +285,7 @@ public class Board {
      * It checks whether the Move is Possible, i.e. follows chesspiece-specific movement rules, is not blocked
      * by other pieces on the path, and is not blocked by pieces of same color at the destination.
      * It then checks whether this Move is Valid, i.e. will not cause the King to be checked in the next step.
+     * Validity is decided from the check mask and pin rays of the player (see CheckInfo) whenever possible.
      *
      * If the conditions are satisfied, the Move is executed through helper function movePiece().
      *
@@ -61,15 +297,18 @@ public class Board {
             System.out.println("Invalid Move!");
             return false;
         }
-        if (willBeChecked(move)) {
+        int color = (move.getPlayerColor() == PieceColor.WHITE) ? 0 : 1;
+        if (!isMoveValid(move, new CheckInfo(this, color))) {
             System.out.println("This move will cause your player to be checked!");
             return false;
         }
 
         ChessPiece curPiece = pieces[move.getSrcX()][move.getSrcY()];
+        move.setFirstMove(!curPiece.isHasMoved());
         curPiece.setHasMoved(true);
 
         movePiece(move);
+        publish();
 
         return true;
     }
@@ -85,6 +324,41 @@ public class Board {
             System.out.println("Invalid Undo!");
             return false;
         }
+        revertMove();
+        publish();
+        return true;
+    }
+
+    /**
+     * Make a Move for an engine that looks ahead: the pieces, the keys and the PieceListener are
+     * updated as by makeMove(), but the Move is not checked, no Position is published and the
+     * MoveListener is not called. Must be undone with undoTrialMove() before any other change.
+     * @param move a Move of getAllValidMovesByPlayer() in the current position.
+     */
+    public void makeTrialMove(Move move) {
+        ChessPiece curPiece = pieces[move.getSrcX()][move.getSrcY()];
+        move.setFirstMove(!curPiece.isHasMoved());
+        curPiece.setHasMoved(true);
+        movePiece(move);
+    }
+
+    /**
+     * Take back the last makeTrialMove().
+     */
+    public void undoTrialMove() {
+        revertMove();
+    }
+
+    private void publish() {
+        position = new Position(this);
+        positionHash = hash;
+    }
+
+    /**
+     * Restore the board to the state before the last entry in the move history.
+     * Unlike undoMove() it does not publish a new Position, so it can be used for trial moves.
+     */
+    private void revertMove() {
         Move lastMove = moveHistory.removeFirst();
 
         int srcX = lastMove.getSrcX();
@@ -94,21 +368,23 @@ public class Board {
 
         // if last step was remove piece (Testing Purpose)
         if (destX == -1) {
-            pieces[srcX][srcY] = removedPieces.pop();
-            return true;
+            put(srcX, srcY, removedPieces.pop());
+            return;
         }
 
         // if last step was a valid move. restore location.
-        pieces[srcX][srcY] = pieces[destX][destY];
+        ChessPiece curPiece = take(destX, destY);
+        put(srcX, srcY, curPiece);
+        if (lastMove.isFirstMove()) {
+            curPiece.setHasMoved(false);
+        }
 
         // if last step was a capture, restore captured piece.
         if (lastMove.isCapture()) {
             moveHistory.removeFirst();
-            pieces[destX][destY] = removedPieces.pop();
-        } else {
-            pieces[destX][destY] = null;
+            put(destX, destY, removedPieces.pop());
         }
-        return true;
+        noOfKeys--;
     }
 
     /**
@@ -135,22 +411,146 @@ public class Board {
     }
 
 
+    /**
+     * Check whether the current position occurred before with the same player to move, counting only
+     * positions since the last capture or pawn move. Positions are compared by their Zobrist keys.
+     * @param count number of occurrences including the current one, 3 for threefold repetition.
+     * @return true if the current position occurred at least count times.
+     */
+    public boolean isRepetition(int count) {
+        int current = noOfKeys - 1;
+        int first = Math.max(0, current - clocks[current]);
+        int occurrences = 1;
+        for (int i = current - 2; i >= first && occurrences < count; i -= 2) {
+            if (keys[i] == keys[current]) {
+                occurrences++;
+            }
+        }
+        return occurrences >= count;
+    }
+
+    /**
+     * @return number of plies since the last capture or pawn move.
+     */
+    public int getHalfMoveClock() {
+        return clocks[noOfKeys - 1];
+    }
+
+    /**
+     * @return Zobrist key of the current position, including the player to move after the last move.
+     */
+    public long getKey() {
+        return keys[noOfKeys - 1];
+    }
+
+    /**
+     * @return the keys of all positions since the start or the last reset, the current one last.
+     */
+    long[] getKeyHistory() {
+        return Arrays.copyOf(keys, noOfKeys);
+    }
+
+    /**
+     * @return the half-move clocks of the keys of getKeyHistory().
+     */
+    int[] getClockHistory() {
+        return Arrays.copyOf(clocks, noOfKeys);
+    }
+
+    /**
+     * Find the status of the game for the player to move, including draws by repetition, by the
+     * fifty-move rule and by insufficient material. Checkmate and stalemate take precedence over all
+     * draws. Material is insufficient with bare Kings, or if a tablebase (see setTablebases) has no
+     * won position for it.
+     * @param color 0 for white and 1 for black, the player to move.
+     * @return the status of the game.
+     */
+    public GameStatus getStatus(int color) {
+        Position current = (positionHash == hash) ? position : snapshot();
+        GameStatus status = current.getStatus(color);
+        if (status == GameStatus.CHECKMATE || status == GameStatus.STALEMATE) {
+            return status;
+        }
+        if ((occupied[0].size() == 1 && occupied[1].size() == 1)
+                || (tablebases != null && tablebases.isDeadDraw(this))) {
+            return GameStatus.DRAW_INSUFFICIENT_MATERIAL;
+        }
+        if (getHalfMoveClock() >= 100) {
+            return GameStatus.DRAW_FIFTY_MOVES;
+        }
+        if (isRepetition(3)) {
+            return GameStatus.DRAW_REPETITION;
+        }
+        return status;
+    }
+
     /**
      * Check whether the King is being checked by the opposite color.
      * Or check pieces of another color can get to the current position of the king within one move.
      * @param color color of the King
      * @return true if King is being checked.
      */
-    private boolean isChecked(int color) {
-        int kingX = getKingByColor(color)/8; //Kings[color];
-        int kingY = getKingByColor(color)%8; //Kings[color];
+    public boolean isChecked(int color) {
+        int king = getKingByColor(color);
+        return king >= 0 && !getAttackers(king, (color+1)%2).isEmpty();
+    }
 
-        for (Move move : getAllPossibleMovesByPlayer((color+1)%2)) { //all possible move of opposite color
-            if (move.getDestX() == kingX && move.getDestY() == kingY) {
-                return true;
+    /**
+     * Find the pieces of a color that can get to a square within one move.
+     * @param square square index x * columns + y
+     * @param color 0 for white and 1 for black
+     * @return the squares of the attacking pieces.
+     */
+    SquareSet getAttackers(int square, int color) {
+        SquareSet own = occupied[color];
+        SquareSet attackers = SquareSet.EMPTY;
+        for (int i = own.first(); i >= 0; i = own.next(i + 1)) {
+            if (getDestinations(i).contains(square)) {
+                attackers = attackers.with(i);
             }
         }
-        return false;
+        return attackers;
+    }
+
+    /**
+     * Find the squares the piece on a square can move to according to its PieceDefinition, ignoring checks.
+     * @param square square index x * columns + y
+     * @return the destinations, empty if the square is empty.
+     */
+    public SquareSet getDestinations(int square) {
+        ChessPiece curr = pieces[square / size.getColumns()][square % size.getColumns()];
+        if (curr == null) {
+            return SquareSet.EMPTY;
+        }
+        int color = toColorIndex(curr.getColor());
+        return tables[curr.getType().ordinal()].getDestinations(square, curr.getColor(), curr.isHasMoved(),
+                occupied[color], occupied[1 - color]);
+    }
+
+    /**
+     * @return the squares strictly between a riding piece and a target on one of its rays, empty if
+     *         the piece does not ride towards the target.
+     */
+    SquareSet getSquaresBetween(PieceType type, int from, int to) {
+        return tables[type.ordinal()].getSquaresBetween(from, to);
+    }
+
+    /**
+     * Check if a possible Move keeps the King of the current player safe.
+     * The Move is made on the board only if CheckInfo cannot decide it, i.e. for King moves and rare checks.
+     * @param move a possible Move
+     * @param info CheckInfo of the player making the Move
+     * @return true if the Move is valid.
+     */
+    private boolean isMoveValid(Move move, CheckInfo info) {
+        switch (info.classify(move)) {
+            case CheckInfo.LEGAL:
+                return true;
+            case CheckInfo.ILLEGAL:
+                return false;
+            default:
+                return !willBeChecked(move);
+        }
     }
 
     /**
@@ -165,23 +565,28 @@ public class Board {
         int color = (move.getPlayerColor()==PieceColor.WHITE) ? 0 : 1;
         boolean willBeChecked = isChecked(color);
 
-        undoMove();
+        revertMove();
         return willBeChecked;
     }
 
     /**
-     *
-     *
-     * this is a function
-     * @param player sdf
-     * @return sdfd
+     * Collect all Moves of a player that are possible and valid.
+     * Only the destinations of each piece are tried, and the check mask and pin rays are computed once
+     * for the position and shared by all candidate Moves.
+     * @param player 0 for white and 1 for black
+     * @return list of valid Moves
      */
-    private LinkedList<Move> getAllValidMovesByPlayer(int player) {
+    public LinkedList<Move> getAllValidMovesByPlayer(int player) {
         LinkedList<Move> validMoves = new LinkedList<Move>();
-        for (int i = 0; i < 63; i++) {
-            for (int j = 0; j < 63; j++) {
-                Move move = new Move(players[player].getColor(), this, i/8, i%8, j/8, j%8);
-                if (move.isMovePossible() && !willBeChecked(move)) {
+        PieceColor pieceColor = toPieceColor(player);
+        CheckInfo info = new CheckInfo(this, player);
+        int columns = size.getColumns();
+        SquareSet own = occupied[player];
+        for (int i = own.first(); i >= 0; i = own.next(i + 1)) {
+            SquareSet destinations = getDestinations(i);
+            for (int j = destinations.first(); j >= 0; j = destinations.next(j + 1)) {
+                Move move = new Move(pieceColor, this, i / columns, i % columns, j / columns, j % columns);
+                if (isMoveValid(move, info)) {
                     validMoves.add(move);
                 }
             }
@@ -189,18 +594,18 @@ public class Board {
         return validMoves;
     }
 
-    //TODO: Consider using hashset to replace LinkedList for faster access.
-    private LinkedList<Move> getAllPossibleMovesByPlayer(int player) {
-        LinkedList<Move> possibleMoves = new LinkedList<Move> ();
-        for (int i = 0; i < 63; i++) {
-            for (int j = 0; j < 63; j++) {
-                Move move = new Move(players[player].getColor(), this, i/8, i%8, j/8, j%8);
-                if (move.isMovePossible()) {
-                    possibleMoves.add(move);
-                }
-            }
+    /**
+     * Collect the squares the pieces of a player can get to within one move, ignoring checks.
+     * @param player 0 for white and 1 for black
+     * @return the attacked squares.
+     */
+    SquareSet getAttackedSquares(int player) {
+        SquareSet own = occupied[player];
+        SquareSet attacked = SquareSet.EMPTY;
+        for (int i = own.first(); i >= 0; i = own.next(i + 1)) {
+            attacked = attacked.or(getDestinations(i));
         }
-        return possibleMoves;
+        return attacked;
     }
 
 
@@ -210,6 +615,56 @@ public class Board {
         return pieces[srcX][srcY];
     }
 
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * @return the squares occupied by the pieces of a color, 0 for white and 1 for black.
+     */
+    SquareSet getOccupied(int color) {
+        return occupied[color];
+    }
+
+    /**
+     * Let getStatus() detect insufficient material with tablebases.
+     * @param tablebases the tablebases, null for none.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+
+    /**
+     * Notify a listener of every change of the pieces of this Board from now on.
+     * @param listener the listener, null for none.
+     */
+    public void setPieceListener(PieceListener listener) {
+        this.listener = listener;
+    }
+
+    public PieceListener getPieceListener() {
+        return listener;
+    }
+
+    /**
+     * @return the Position published after the last makeMove() or undoMove(). Safe to call from any thread.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Take a new snapshot of the pieces as they are now. Must be called by the thread that owns the Board.
+     * @return the current Position
+     */
+    public Position snapshot() {
+        return new Position(this);
+    }
+
 
     void movePiece(Move move)
     {
@@ -218,78 +673,111 @@ public class Board {
         int destX = move.getDestX();
         int destY = move.getDestY();
 
-        ChessPiece srcPiece = pieces[srcX][srcY];
+        ChessPiece srcPiece = take(srcX, srcY);
 
-        pieces[srcX][srcY] = null;
+        boolean capture = false;
         if (pieces[destX][destY] != null && pieces[destX][destY].getColor() != srcPiece.getColor()) {// if destBox is occupied by opponent
             removePiece(destX, destY);
             move.setCapture(true);
+            capture = true;
         }
-        pieces[destX][destY] = srcPiece;
+        take(destX, destY);
+        put(destX, destY, srcPiece);
 
         moveHistory.addFirst(move);
+        pushKey(srcPiece.getColor(), capture || srcPiece.getType() == PieceType.PAWN);
+    }
+
+    /**
+     * Append the key of the position after a move.
+     * @param color color of the player who moved
+     * @param irreversible true for a capture or a pawn move, which resets the fifty-move clock.
+     */
+    private void pushKey(PieceColor color, boolean irreversible) {
+        if (noOfKeys == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            clocks = Arrays.copyOf(clocks, clocks.length * 2);
+        }
+        keys[noOfKeys] = (color == PieceColor.WHITE) ? hash ^ Zobrist.BLACK_TO_MOVE : hash;
+        clocks[noOfKeys] = irreversible ? 0 : clocks[noOfKeys - 1] + 1;
+        noOfKeys++;
     }
 
     void removePiece(int srcX, int srcY) {
-        ChessPiece curPiece = pieces[srcX][srcY];
+        ChessPiece curPiece = take(srcX, srcY);
         removedPieces.push(curPiece);
-        pieces[srcX][srcY] = null;
 
         Move remove = new Move(curPiece.getColor(), this, srcX, srcY, -1, -1);
         moveHistory.addFirst(remove);
     }
 
     void addPiece(int srcX, int srcY, ChessPiece newPiece) {
-        pieces[srcX][srcY] = newPiece;
+        take(srcX, srcY);
+        put(srcX, srcY, newPiece);
     }
 
-    private ChessPiece createChessPiece(int x, int y){
-        switch (x) {
-            case 0:
-                return createChessPiece(PieceColor.BLACK, y);
-            case 1:
-                return new ChessPiece(PieceColor.BLACK, PieceType.PAWN);
-            case 6:
-                return new ChessPiece(PieceColor.WHITE, PieceType.PAWN);
-            case 7:
-                return createChessPiece(PieceColor.WHITE, y);
-            default:
-                return null;
+    /**
+     * Place a piece on an empty square and update the occupied squares and the hash.
+     * @param piece the piece, null leaves the square empty.
+     */
+    private void put(int x, int y, ChessPiece piece) {
+        if (piece == null) {
+            return;
+        }
+        int square = x * size.getColumns() + y;
+        pieces[x][y] = piece;
+        occupied[toColorIndex(piece.getColor())] = occupied[toColorIndex(piece.getColor())].with(square);
+        hash ^= Zobrist.piece(piece, square);
+        if (listener != null) {
+            listener.pieceAdded(square, piece);
         }
     }
 
-    private ChessPiece createChessPiece(PieceColor color, int y){
-        switch (y) {
-            case 0:
-                return new ChessPiece(color, PieceType.ROOK);
-            case 1:
-                return new ChessPiece(color, PieceType.KNIGHT);
-            case 2:
-                return new ChessPiece(color, PieceType.BISHOP);
-            case 3:
-                return new ChessPiece(color, PieceType.QUEEN);
-            case 4:
-                return new ChessPiece(color, PieceType.KING);
-            case 5:
-                return new ChessPiece(color, PieceType.BISHOP);
-            case 6:
-                return new ChessPiece(color, PieceType.KNIGHT);
-            case 7:
-                return new ChessPiece(color, PieceType.ROOK);
+    /**
+     * Remove the piece from a square and update the occupied squares and the hash.
+     * @return the piece, or null if the square was empty.
+     */
+    private ChessPiece take(int x, int y) {
+        ChessPiece piece = pieces[x][y];
+        if (piece != null) {
+            int square = x * size.getColumns() + y;
+            pieces[x][y] = null;
+            occupied[toColorIndex(piece.getColor())] = occupied[toColorIndex(piece.getColor())].without(square);
+            hash ^= Zobrist.piece(piece, square);
+            if (listener != null) {
+                listener.pieceRemoved(square, piece);
+            }
         }
+        return piece;
+    }
 
+    private ChessPiece createChessPiece(int x, int y){
+        int rows = size.getRows();
+        if (x == 0) {
+            return createChessPiece(PieceColor.BLACK, y);
+        } else if (x == 1) {
+            return new ChessPiece(PieceColor.BLACK, PieceType.PAWN);
+        } else if (x == rows - 2) {
+            return new ChessPiece(PieceColor.WHITE, PieceType.PAWN);
+        } else if (x == rows - 1) {
+            return createChessPiece(PieceColor.WHITE, y);
+        }
         return null;
     }
 
+    private ChessPiece createChessPiece(PieceColor color, int y){
+        return new ChessPiece(color, size.getBackRank()[y]);
+    }
+
 
-    private int getKingByColor(int color) {
-        PieceColor pieceColor = (color == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+    int getKingByColor(int color) {
+        PieceColor pieceColor = toPieceColor(color);
 
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
+        for (int i = 0; i < size.getRows(); i++) {
+            for (int j = 0; j < size.getColumns(); j++) {
                 ChessPiece curr = getPiece(i, j);
                 if (curr != null && curr.getType() == PieceType.KING && curr.getColor() == pieceColor) {
-                    return i*8+j;
+                    return i * size.getColumns() + j;
                 }
             }
         }
@@ -298,9 +786,18 @@ public class Board {
     }
 
 
+    private static PieceColor toPieceColor(int color) {
+        return (color == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+    }
+
+    private static int toColorIndex(PieceColor color) {
+        return (color == PieceColor.WHITE) ? 0 : 1;
+    }
+
+
     public void printBoard() {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
+        for (int i = 0; i < size.getRows(); i++) {
+            for (int j = 0; j < size.getColumns(); j++) {
                 ChessPiece curr = getPiece(i, j);
                 if (curr != null)
                     System.out.print(curr.getType()+ " ");
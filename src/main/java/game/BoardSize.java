@@ -0,0 +1,100 @@
+package game;
+
+import game.piece.PieceType;
+
+
+/**
+ * The dimensions of a board: rows x (0 is the black back rank) and columns y. Squares are indexed
+ * x * columns + y, and a board has at most 128 squares so every set of squares fits a SquareSet.
+ *
+ * Besides the standard 8x8 board, xiangqi-sized 10x9 and 10x10 boards are supported. Wider boards
+ * get an Alfil next to the Bishops in the starting position.
+ */
+public final class BoardSize {
+    public static final int MAX_SQUARES = 128;
+
+    public static final BoardSize STANDARD = new BoardSize(8, 8);
+    public static final BoardSize XIANGQI = new BoardSize(10, 9);
+    public static final BoardSize LARGE = new BoardSize(10, 10);
+
+    private final int rows;
+    private final int columns;
+
+
+    private BoardSize(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @param rows number of rows, at least 6.
+     * @param columns number of columns, 8 to 10.
+     * @return the size
+     * @throws IllegalArgumentException if the board is not supported.
+     */
+    public static BoardSize of(int rows, int columns) {
+        if (rows < 6 || columns < 8 || columns > 10 || rows * columns > MAX_SQUARES) {
+            throw new IllegalArgumentException("Unsupported board size " + rows + "x" + columns);
+        }
+        return new BoardSize(rows, columns);
+    }
+
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of squares, rows * columns.
+     */
+    public int getSquares() {
+        return rows * columns;
+    }
+
+    /**
+     * @return true if (x, y) is on the board.
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < rows && y >= 0 && y < columns;
+    }
+
+    /**
+     * @return the types of the pieces on the back rank of the starting position, from y = 0.
+     */
+    PieceType[] getBackRank() {
+        PieceType R = PieceType.ROOK, N = PieceType.KNIGHT, B = PieceType.BISHOP;
+        PieceType Q = PieceType.QUEEN, K = PieceType.KING, A = PieceType.ALFIL;
+        switch (columns) {
+            case 9:
+                return new PieceType[] {R, N, B, Q, K, A, B, N, R};
+            case 10:
+                return new PieceType[] {R, N, A, B, Q, K, B, A, N, R};
+            default:
+                return new PieceType[] {R, N, B, Q, K, B, N, R};
+        }
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) return false;
+        if (other == this) return true;
+        if (!(other instanceof BoardSize)) return false;
+
+        return rows == ((BoardSize) other).rows && columns == ((BoardSize) other).columns;
+    }
+
+    @Override
+    public int hashCode() {
+        return rows * 31 + columns;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + columns;
+    }
+}
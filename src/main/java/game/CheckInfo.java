@@ -0,0 +1,190 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+
+/**
+ * CheckInfo holds the check mask and the pin rays of one player in one position. It is used to decide
+ * whether a possible Move leaves the King checked without making the Move on the Board.
+ *
+ * Squares are indexed as x * columns + y and sets of squares are stored as SquareSets.
+ *
+ * A Move of a piece other than the King is proven legal or illegal as follows:
+ *  - if the King is checked once by a piece that is not a hopper, the Move has to capture the checker
+ *    or land between a riding checker and the King (check mask).
+ *  - a pinned piece has to stay on the ray between the King and the pinning rider.
+ *  - a hopper such as the Cannon attacks along a ray as soon as there is at least one screen between
+ *    it and the target. Vacating a square can only remove such an attack, but landing on an empty
+ *    square between the King and an unscreened enemy hopper creates one (cannon mask).
+ *
+ * The rays from the King are the rider and hopper directions of all PieceTypes, so pieces added to
+ * PieceType are covered without changes here.
+ *
+ * King moves, double checks and checks given by a hopper are left to Board.willBeChecked().
+ */
+final class CheckInfo {
+    static final int ILLEGAL = 0;
+    static final int LEGAL = 1;
+    static final int UNKNOWN = 2;
+
+    private static final int[][] DIRECTIONS = collectDirections();
+
+    private final Board board;
+    private final PieceColor color;
+    private final int columns;
+    private final int kingSquare;
+
+    private int noOfCheckers;
+    private boolean checkedByCannon;
+    private SquareSet checkMask = SquareSet.EMPTY;
+    private SquareSet cannonMask = SquareSet.EMPTY;
+    private SquareSet pinned = SquareSet.EMPTY;
+    private final SquareSet[] pinRays;
+
+
+    /**
+     * Compute the check mask, the pin rays and the cannon mask of a player.
+     * @param board the Board to inspect, it is not modified.
+     * @param color 0 for white and 1 for black
+     */
+    CheckInfo(Board board, int color) {
+        this.board = board;
+        this.color = (color == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+        this.columns = board.getSize().getColumns();
+        this.kingSquare = board.getKingByColor(color);
+        this.pinRays = new SquareSet[board.getSize().getSquares()];
+
+        if (kingSquare < 0) {
+            return;
+        }
+
+        SquareSet checkers = board.getAttackers(kingSquare, (color + 1) % 2);
+        noOfCheckers = checkers.size();
+        if (noOfCheckers == 1) {
+            int checker = checkers.first();
+            PieceType type = board.getPiece(checker / columns, checker % columns).getType();
+            if (type.getDefinition().isHopper()) {
+                checkedByCannon = true;
+            } else {
+                checkMask = board.getSquaresBetween(type, checker, kingSquare).with(checker);
+            }
+        }
+
+        for (int[] dir : DIRECTIONS) {
+            scanRay(dir[0], dir[1]);
+        }
+    }
+
+
+    /**
+     * Decide whether a possible Move keeps the King safe.
+     * @param move a Move of this player for which Move.isMovePossible() returned true.
+     * @return LEGAL or ILLEGAL if it can be decided from the masks, UNKNOWN if the Move has to be verified.
+     */
+    int classify(Move move) {
+        int src = move.getSrcX() * columns + move.getSrcY();
+        int dest = move.getDestX() * columns + move.getDestY();
+
+        if (kingSquare < 0 || src == kingSquare || noOfCheckers > 1 || checkedByCannon) {
+            return UNKNOWN;
+        }
+
+        if (noOfCheckers == 1 && !checkMask.contains(dest)) {
+            return ILLEGAL;
+        }
+        if (pinned.contains(src) && !pinRays[src].contains(dest)) {
+            return ILLEGAL;
+        }
+        if (cannonMask.contains(dest)) {
+            return ILLEGAL;
+        }
+        return LEGAL;
+    }
+
+
+    /**
+     * Walk from the King in one direction and record a pin or an unscreened hopper.
+     * @param stepX direction along x
+     * @param stepY direction along y
+     */
+    private void scanRay(int stepX, int stepY) {
+        int x = kingSquare / columns + stepX;
+        int y = kingSquare % columns + stepY;
+        SquareSet ray = SquareSet.EMPTY;
+        int firstPiece = -1;
+
+        while (board.getSize().contains(x, y)) {
+            ray = ray.with(x * columns + y);
+            ChessPiece piece = board.getPiece(x, y);
+
+            if (piece != null) {
+                boolean own = piece.getColor() == color;
+                if (firstPiece < 0) {
+                    if (!own) {
+                        if (piece.getType().getDefinition().hopsAlong(-stepX, -stepY)) {
+                            cannonMask = cannonMask.or(ray.without(x * columns + y));
+                        }
+                        return;
+                    }
+                    firstPiece = x * columns + y;
+                } else {
+                    if (!own && piece.getType().getDefinition().ridesAlong(-stepX, -stepY)) {
+                        pinned = pinned.with(firstPiece);
+                        pinRays[firstPiece] = ray;
+                    }
+                    return;
+                }
+            }
+            x += stepX;
+            y += stepY;
+        }
+    }
+
+    /**
+     * @return the rider and hopper directions of all PieceTypes, without duplicates.
+     */
+    private static int[][] collectDirections() {
+        List<int[]> directions = new ArrayList<int[]>();
+        for (PieceType type : PieceType.values()) {
+            for (int[] dir : type.getDefinition().getRiderDirections()) {
+                addDirection(directions, dir);
+            }
+            for (int[] dir : type.getDefinition().getHopperDirections()) {
+                addDirection(directions, dir);
+            }
+        }
+        return directions.toArray(new int[0][]);
+    }
+
+    private static void addDirection(List<int[]> directions, int[] dir) {
+        for (int[] known : directions) {
+            if (known[0] == dir[0] && known[1] == dir[1]) {
+                return;
+            }
+        }
+        directions.add(dir);
+    }
+
+    /* Getters */
+
+    int getKingSquare() {
+        return kingSquare;
+    }
+
+    int getNoOfCheckers() {
+        return noOfCheckers;
+    }
+
+    SquareSet getPinned() {
+        return pinned;
+    }
+
+    SquareSet getCannonMask() {
+        return cannonMask;
+    }
+}
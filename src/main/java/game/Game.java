@@ -13,11 +13,18 @@ public class Game {
     private static final Scanner scanner = new Scanner(System.in); // scanner for command-line input
 
     public Game(String username1, String username2){
+        this(username1, username2, BoardSize.STANDARD);
+    }
+
+    /**
+     * @param size dimensions of the board, see BoardSize.
+     */
+    public Game(String username1, String username2, BoardSize size){
         players = new Player[2];
         players[0] = new Player(username1, PieceColor.WHITE);
         players[1] = new Player(username2, PieceColor.BLACK);
 
-        board = new Board(players[0], players[1]);
+        board = new Board(players[0], players[1], size);
     }
 
     public static Board getBoard() {
@@ -61,12 +68,11 @@ public class Game {
     /**
      * Main game loop
      * Keeps prompting the user for nextmove until the game is reading an ending
-     * condition such as CheckMate.
+     * condition such as CheckMate, or a draw by repetition or the fifty-move rule.
      * @param currentPlayer track which player is white.
      */
     public static void enterGameLoop(int currentPlayer) {
-        boolean checkmate = false;
-        boolean stalemate = false;
+        GameStatus status = GameStatus.ACTIVE;
 
         do
         {
@@ -74,10 +80,12 @@ public class Game {
             System.out.println("Player " + players[currentPlayer].getName() + "'s turn: ");
             System.out.println("(enter move through four integer coordinates: srcX, srcY, destX, destY)");
 
-            int srcX = readCoordinate("srcX");
-            int srcY = readCoordinate("srcY");
-            int destX = readCoordinate("destX");
-            int destY = readCoordinate("destY");
+            int rows = board.getSize().getRows();
+            int columns = board.getSize().getColumns();
+            int srcX = readCoordinate("srcX", rows);
+            int srcY = readCoordinate("srcY", columns);
+            int destX = readCoordinate("destX", rows);
+            int destY = readCoordinate("destY", columns);
 
             Move newMove = new Move(players[currentPlayer].getColor(), board, srcX, srcY, destX, destY);
 
@@ -87,21 +95,38 @@ public class Game {
                 System.out.println("Successfully Moved! (" + srcX + ", " + srcY + "), to (" + destX + ", " + destY + ")");
                 currentPlayer = (currentPlayer + 1) % 2; //switch turn
                 // Check ending conditions
-                checkmate = board.isCheckmate(currentPlayer);
-                stalemate = board.isStalemate(currentPlayer);
+                status = board.getStatus(currentPlayer);
             }
 
-        }while(!checkmate && !stalemate);
+        }while(!status.isGameOver());
 
-        if (checkmate) {
+        if (status == GameStatus.CHECKMATE) {
             System.out.println("Congratulations! Player " + players[(currentPlayer+1)%2].getName() + " won!");
             players[(currentPlayer+1)%2].increaseNoOfWins();
             players[currentPlayer].increaseNoOfLoses();
         }
         else {
-            System.out.println("The Game ends in a draw");
+            System.out.println("The Game ends in a draw (" + describeDraw(status) + ")");
             players[currentPlayer].increaseNoOfDraws();
-            players[currentPlayer+1].increaseNoOfDraws();
+            players[(currentPlayer+1)%2].increaseNoOfDraws();
+        }
+    }
+
+
+    /**
+     * @param status a draw
+     * @return the reason of the draw in words.
+     */
+    public static String describeDraw(GameStatus status) {
+        switch (status) {
+            case DRAW_REPETITION:
+                return "threefold repetition";
+            case DRAW_FIFTY_MOVES:
+                return "fifty-move rule";
+            case DRAW_INSUFFICIENT_MATERIAL:
+                return "insufficient material";
+            default:
+                return "stalemate";
         }
     }
 
@@ -109,25 +134,26 @@ public class Game {
     /**
      * Function to read user input of one coordinate from the terminal.
      * @param coordinate "srcX" "srcY" "destX" "destY"
+     * @param limit number of rows or columns of the board
      * @return parsed integer
      */
-    public static int readCoordinate(String coordinate)
+    public static int readCoordinate(String coordinate, int limit)
     {
         System.out.print(coordinate + ": ");
         int coor;
         try {
             coor = Integer.parseInt(scanner.nextLine());
         } catch (Exception e) {
-            System.out.println("Please enter Integer between 0-7!");
-            return readCoordinate(coordinate);
+            System.out.println("Please enter Integer between 0-" + (limit - 1) + "!");
+            return readCoordinate(coordinate, limit);
         }
 
-        if(coor>=0 && coor<=7) {
+        if(coor>=0 && coor<limit) {
             return coor;
         }
         else {
-            System.out.println("Please enter Integer between 0-7!");
-            return readCoordinate(coordinate);
+            System.out.println("Please enter Integer between 0-" + (limit - 1) + "!");
+            return readCoordinate(coordinate, limit);
         }
     }
 
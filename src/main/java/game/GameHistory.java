@@ -0,0 +1,203 @@
+package game;
+
+import java.util.Arrays;
+
+import game.piece.PieceColor;
+
+
+/**
+ * The GameHistory class records the Moves of a game in a growable int array and keeps a Position
+ * checkpoint every CHECKPOINT_INTERVAL plies. It supports undo, redo and seek(ply) to any ply.
+ *
+ * Undo uses Board.undoMove() while the Board still remembers the Move. Longer jumps reset the Board to
+ * the nearest checkpoint at or before the target and replay at most CHECKPOINT_INTERVAL - 1 Moves, so
+ * the cost of a seek does not depend on the length of the game. The key and half-move clock of every
+ * ply are kept as well and handed back to the Board with a checkpoint, so repetitions and the
+ * fifty-move rule do not depend on how a ply was reached.
+ *
+ * A Move is stored as src | dest << 7 | color << 14, with squares indexed x * columns + y, so boards
+ * of up to BoardSize.MAX_SQUARES squares fit.
+ */
+public class GameHistory {
+    static final int CHECKPOINT_INTERVAL = 16;
+
+    private final Board board;
+
+    private int[] moves;
+    private Position[] checkpoints;
+    private long[] keys;    // Board.getKey() of every ply, after the keys from before ply 0
+    private int[] clocks;   // Board.getHalfMoveClock() of every ply
+    private final int keyBase;  // index of the key of ply 0
+    private int size;       // number of recorded plies, including the ones that can be redone
+    private int ply;        // ply of the Position on the Board
+    private int boardBase;  // earliest ply that Board.undoMove() can go back to
+    private MoveListener listener;
+
+
+    /**
+     * @param board the Board of the game. Its current Position becomes ply 0.
+     */
+    public GameHistory(Board board) {
+        this.board = board;
+        this.moves = new int[64];
+        this.checkpoints = new Position[8];
+        this.checkpoints[0] = board.getPosition();
+        this.keys = board.getKeyHistory();
+        this.clocks = board.getClockHistory();
+        this.keyBase = keys.length - 1;
+    }
+
+
+    /**
+     * Make a Move on the Board and record it. Moves that could be redone are discarded.
+     * @param move the Move requested by the player.
+     * @return true if the Move was valid and made.
+     */
+    public boolean play(Move move) {
+        if (!board.makeMove(move)) {
+            return false;
+        }
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        int color = (move.getPlayerColor() == PieceColor.WHITE) ? 0 : 1;
+        int columns = board.getSize().getColumns();
+        int src = move.getSrcX() * columns + move.getSrcY();
+        int dest = move.getDestX() * columns + move.getDestY();
+        moves[ply++] = src | dest << 7 | color << 14;
+        size = ply;
+        if (keyBase + ply == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            clocks = Arrays.copyOf(clocks, clocks.length * 2);
+        }
+        keys[keyBase + ply] = board.getKey();
+        clocks[keyBase + ply] = board.getHalfMoveClock();
+
+        if (ply % CHECKPOINT_INTERVAL == 0) {
+            int index = ply / CHECKPOINT_INTERVAL;
+            if (index == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            }
+            checkpoints[index] = board.getPosition();
+        }
+        if (listener != null) {
+            listener.moveMade(move, board.getPosition());
+        }
+        return true;
+    }
+
+    /**
+     * Take back the last Move.
+     * @return false if there is no Move to undo.
+     */
+    public boolean undo() {
+        if (ply == 0) {
+            return false;
+        }
+        seek(ply - 1);
+        return true;
+    }
+
+    /**
+     * Make the last undone Move again.
+     * @return false if there is no Move to redo.
+     */
+    public boolean redo() {
+        if (ply == size) {
+            return false;
+        }
+        seek(ply + 1);
+        return true;
+    }
+
+    /**
+     * Bring the Board to the Position after a number of plies.
+     * @param target ply between 0 and size()
+     */
+    public void seek(int target) {
+        if (target < 0 || target > size) {
+            throw new IndexOutOfBoundsException("ply " + target + " of " + size);
+        }
+        if (target == ply) {
+            return;
+        }
+        moveTo(target);
+        if (listener != null) {
+            listener.positionChanged(board.getPosition());
+        }
+    }
+
+    /**
+     * Notify a listener of every Move played with play() and of every change of the ply, once per
+     * call, from now on. The Moves replayed by a seek are not reported one by one.
+     * @param listener the listener, null for none.
+     */
+    public void setMoveListener(MoveListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Bring the Board to a ply with undoMove(), or from a checkpoint with makeMove().
+     */
+    private void moveTo(int target) {
+        int checkpoint = target / CHECKPOINT_INTERVAL * CHECKPOINT_INTERVAL;
+        if (target < ply && target >= boardBase && ply - target < CHECKPOINT_INTERVAL) {
+            while (ply > target) {
+                board.undoMove();
+                ply--;
+            }
+            return;
+        }
+        if (target < ply || checkpoint > ply) {
+            board.reset(checkpoints[checkpoint / CHECKPOINT_INTERVAL], keys, clocks, keyBase + checkpoint + 1);
+            ply = checkpoint;
+            boardBase = checkpoint;
+        }
+        while (ply < target) {
+            board.makeMove(getMove(ply));
+            ply++;
+        }
+    }
+
+    /**
+     * @param index ply of the Move, between 0 and size() - 1
+     * @return a new Move on the Board equal to the recorded Move.
+     */
+    public Move getMove(int index) {
+        int code = moves[index];
+        int src = code & 127;
+        int dest = (code >> 7) & 127;
+        PieceColor color = ((code >> 14) == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+        int columns = board.getSize().getColumns();
+        return new Move(color, board, src / columns, src % columns, dest / columns, dest % columns);
+    }
+
+    /**
+     * @return the player to move at the current ply, 0 for white and 1 for black. Plies without a
+     *         recorded Move alternate after the last recorded one, starting with white.
+     */
+    public int getPlayerToMove() {
+        if (ply < size) {
+            return moves[ply] >> 14;
+        }
+        return (ply == 0) ? 0 : ((moves[ply - 1] >> 14) + 1) % 2;
+    }
+
+    /**
+     * @return the current ply, i.e. the number of Moves made on the Board.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return the number of recorded plies, including Moves that can be redone.
+     */
+    public int size() {
+        return size;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+}
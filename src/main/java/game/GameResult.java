@@ -0,0 +1,54 @@
+package game;
+
+/**
+ * Result of a finished game, with its notation in game archives.
+ */
+public enum GameResult {
+    WHITE_WINS("1-0"), BLACK_WINS("0-1"), DRAW("1/2-1/2");
+
+    private final String notation;
+
+    GameResult(String notation) {
+        this.notation = notation;
+    }
+
+    /**
+     * @param status status of the game for the player to move
+     * @param color 0 for white and 1 for black, the player to move.
+     * @return the result, or null if the game is not over.
+     */
+    public static GameResult of(GameStatus status, int color) {
+        if (status == GameStatus.CHECKMATE) {
+            return (color == 0) ? BLACK_WINS : WHITE_WINS;
+        }
+        return status.isDraw() ? DRAW : null;
+    }
+
+    /**
+     * @param notation "1-0", "0-1" or "1/2-1/2"
+     * @return the result, or null for any other text.
+     */
+    public static GameResult parse(String notation) {
+        for (GameResult result : values()) {
+            if (result.notation.equals(notation)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public String getNotation() {
+        return notation;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @return 0 if the player lost, 1 for a draw and 2 if the player won.
+     */
+    public int getPoints(int color) {
+        if (this == DRAW) {
+            return 1;
+        }
+        return ((this == WHITE_WINS) == (color == 0)) ? 2 : 0;
+    }
+}
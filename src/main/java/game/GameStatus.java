@@ -0,0 +1,23 @@
+package game;
+
+/**
+ * Status of a game from the point of view of the player to move. The game is over for every status
+ * but ACTIVE and CHECK; the draws name their reason.
+ */
+public enum GameStatus {
+    ACTIVE, CHECK, CHECKMATE, STALEMATE, DRAW_REPETITION, DRAW_FIFTY_MOVES, DRAW_INSUFFICIENT_MATERIAL;
+
+    /**
+     * @return true if the game has ended.
+     */
+    public boolean isGameOver() {
+        return this != ACTIVE && this != CHECK;
+    }
+
+    /**
+     * @return true if the game has ended in a draw.
+     */
+    public boolean isDraw() {
+        return isGameOver() && this != CHECKMATE;
+    }
+}
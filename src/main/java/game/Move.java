@@ -1,10 +1,7 @@
 package game;
 
-import game.piece.ChessPiece;
 import game.piece.PieceColor;
 
-import java.lang.Math;
-
 
 public class Move {
     private final PieceColor player;
@@ -16,6 +13,7 @@ public class Move {
     private int destY;
 
     private boolean capture;
+    private boolean firstMove;
 
 
     /**
@@ -29,12 +27,51 @@ public class Move {
         this.destX = destX;
         this.destY = destY;
         this.capture = false;
+        this.firstMove = false;
+    }
+
+
+    /**
+     * Read a Move in the coordinate notation of toString(), e.g. "e2e4", or "a10a8" on a board with ten rows.
+     * @param player color of the moving player
+     * @param board the Board the Move is made on
+     * @param text the Move in coordinate notation
+     * @return the Move, or null if the text is not a Move on the board. The Move is not checked for validity.
+     */
+    public static Move parse(PieceColor player, Board board, String text) {
+        int rows = board.getSize().getRows();
+        int[] coordinates = new int[4];
+        int index = 0;
+        for (int i = 0; i < 2; i++) {
+            if (index >= text.length() || text.charAt(index) < 'a' || text.charAt(index) > 'z') {
+                return null;
+            }
+            int y = text.charAt(index++) - 'a';
+            int start = index;
+            while (index < text.length() && Character.isDigit(text.charAt(index))) {
+                index++;
+            }
+            if (index == start || index - start > 2) {
+                return null;
+            }
+            int x = rows - Integer.parseInt(text.substring(start, index));
+            if (!board.getSize().contains(x, y)) {
+                return null;
+            }
+            coordinates[2 * i] = x;
+            coordinates[2 * i + 1] = y;
+        }
+        if (index != text.length()) {
+            return null;
+        }
+        return new Move(player, board, coordinates[0], coordinates[1], coordinates[2], coordinates[3]);
     }
 
 
     /**
      * This is a public helper function that checks whether the move is valid with respect to the pieces. \n
      * It does not check whether this move would cause the king to be checkmated.
+     * The movement rules of each piece come from its PieceDefinition (see PieceType).
      * @return true if the move symbolized by this MoveChecker doesn't violate chess rules.
      */
     public boolean isMovePossible() {
@@ -48,179 +85,11 @@ public class Move {
             return false;
         }
 
-        switch (board.getPiece(srcX, srcY).getType()){
-            case KNIGHT:
-                return isKnightMovePossible();
-            case ROOK:
-                return isRookMovePossible();
-            case BISHOP:
-                return isBishopMovePossible();
-            case QUEEN:
-                return isQueenMovePossible();
-            case KING:
-                return isKingMovePossible();
-            case PAWN:
-                return isPawnMovePossible();
-            case CANNON:
-                return isCannonMovePossible();
-            case ALFIL:
-                return isAlfinMovePossible();
-        }
-        return false;
-    }
-
-
-    /**
-     *  Test functions to check whether the Move is valid according to game rules.
-     *  i.e. satisfy piece rule, path is not blocked, and destination is not occupied by same color.
-     * @return return if the move is valid.
-     */
-    private boolean isKnightMovePossible() {
-        return isMoveLShape() && !isDestBlockedBySameColor();
-    }
-    private boolean isRookMovePossible() {
-        return isMoveLinear() && !isPathBlocked() && !isDestBlockedBySameColor();
-    }
-    private boolean isBishopMovePossible() {
-        return isMoveDiagonal() && !isPathBlocked() && !isDestBlockedBySameColor();
-    }
-    private boolean isQueenMovePossible() {
-        return (isMoveLinear() || isMoveDiagonal()) && !isPathBlocked() && !isDestBlockedBySameColor();
-    }
-
-    /** Cannon is a classic piece in Chinese Chess, it can only move linearly and hopping over a "curdle" piece.
-     * @return true if the Move is possible
-     */
-
-    private boolean isCannonMovePossible(){
-        return (isMoveLinear() && isPathBlocked()) && !isDestBlockedBySameColor();
-    }
-
-    /** Alfil(Elephant) is a classic piece in Chinese Chess, it moves diagonally by distance of two.
-     * @return true if the Move is possible
-     */
-    private boolean isAlfinMovePossible(){
-        int distX = Math.abs(destX - srcX);
-        int distY = Math.abs(destY - srcY);
-        boolean isDistanceDifferByTwo = ((distX==2) && (distY == 2));
-        return (isDistanceDifferByTwo && isMoveDiagonal() && !isDestBlockedBySameColor());
-    }
-
-    private boolean isKingMovePossible() {
-        int distX = Math.abs(destX - srcX);
-        int distY = Math.abs(destY - srcY);
-
-        return (distX <= 1 && distY <= 1) && !isDestBlockedBySameColor();
-    }
-
-    private boolean isPawnMovePossible() {
-        if (isDestBlockedBySameColor()) { //cannot be blocked by same color.
+        BoardSize size = board.getSize();
+        if (!size.contains(destX, destY)) {
             return false;
         }
-
-        if (player == PieceColor.WHITE) {
-            return isPawnMovePossible(-1);
-        } else {
-            return isPawnMovePossible(1);
-        }
-
-    }
-
-    private boolean isPawnMovePossible(int factor){
-        int distX = destX - srcX;
-        int distY = destY - srcY;
-
-        if (distY == factor && Math.abs(distX) == 1 && isDestBlockedByDifferentColor()) { //diagonal move, capturing.
-            return true;
-        }
-        else if (!board.getPiece(srcX, srcY).isHasMoved()){ //has not moved before
-            if ((distX == 2*factor || distX == factor) && distY == 0) { //straightMove, Move upward
-                return true;
-            }
-        }
-        else { // hasMoved == true
-            if (distX == factor && distY == 0) { //straightMove, Move upward
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-
-
-
-
-    /**
-     * Helper functions to check the characteristics of the move.
-     * @return true if satisfy the condition specified in names.s
-     */
-    private boolean isMoveLinear() {
-        int distX = destX - srcX;
-        int distY = destY - srcY;
-        return ((distX == 0) && (distY != 0)) || ((distX != 0) && (distY == 0));
-    }
-
-    private boolean isMoveDiagonal() {
-        int distX = destX - srcX;
-        int distY = destY - srcY;
-        return (distX != 0) && (Math.abs(distX) == Math.abs(distY));
-    }
-
-    private boolean isMoveLShape() {
-        int distX = Math.abs(destX - srcX);
-        int distY = Math.abs(destY - srcY);
-        return (distX == 2 && distY == 1) || (distX == 1 && distY == 2);
-    }
-
-    private boolean isPathBlocked() {
-        int distX = destX - srcX;
-        int distY = destY - srcY;
-
-        if (isMoveLinear()) {
-            if (distX == 0) {
-                for (int i = 1; i < Math.abs(distY); i++) {
-                    if (board.getPiece(Math.min(srcX, destX), Math.min(srcY, destY)+i) != null) {
-                        return true;
-                    }
-                }
-            }
-            else { //distY == 0
-                for (int i = 1; i < Math.abs(distX)-1; i++) {
-                    if (board.getPiece(Math.min(srcX, destX)+i, Math.min(srcY, destY)) != null) {
-                        return true;
-                    }
-                }
-            }
-        } // end isMoveLinear
-
-        else if (isMoveDiagonal()){
-            if (distY + distX == 0) { // one + and one -
-                for (int i = 1; i < Math.abs(distX)-1; i++) {
-                    if (board.getPiece(Math.min(srcX, destX)+i, Math.max(srcY, destY)-i) != null) {
-                        return true;
-                    }
-                }
-            }
-            else {  //if (distY - distX == 0)
-                for (int i = 1; i < Math.abs(distX)-1; i++) {
-                    if (board.getPiece(Math.min(srcX, destX)+i, Math.min(srcY, destY)+i) != null) {
-                        return true;
-                    }
-                }
-            }
-        } // end isMoveDiagonal
-        return false;
-    }
-
-    private boolean isDestBlockedBySameColor() {
-        ChessPiece destPiece = board.getPiece(destX, destY);
-        return (destPiece != null) && (destPiece.getColor() == player);
-    }
-
-    private boolean isDestBlockedByDifferentColor() {
-        ChessPiece destPiece = board.getPiece(destX, destY);
-        return (destPiece != null) && (destPiece.getColor() != player);
+        return board.getDestinations(srcX * size.getColumns() + srcY).contains(destX * size.getColumns() + destY);
     }
 
 
@@ -276,4 +145,25 @@ public class Move {
         this.capture = capture;
     }
 
+    /**
+     * @return true if this Move was the first Move of the piece, so undoing it resets ChessPiece.hasMoved.
+     */
+    public boolean isFirstMove() {
+        return firstMove;
+    }
+
+    void setFirstMove(boolean firstMove) {
+        this.firstMove = firstMove;
+    }
+
+    /**
+     * @return the Move in coordinate notation, files from 'a' at y = 0 and ranks counted from the white
+     *         back rank, e.g. "e2e4" on the standard board.
+     */
+    @Override
+    public String toString() {
+        int rows = board.getSize().getRows();
+        return "" + (char) ('a' + srcY) + (rows - srcX) + (char) ('a' + destY) + (rows - destX);
+    }
+
 }
@@ -0,0 +1,22 @@
+package game;
+
+
+/**
+ * Notified of every Move played in a GameHistory and of every jump to another ply, e.g. to broadcast a
+ * game. Moves an engine tries on the Board are not reported. Called on the thread that owns the Board,
+ * right after the new Position was published, so it must not block. See GameHistory.setMoveListener().
+ */
+public interface MoveListener {
+
+    /**
+     * @param move the Move played
+     * @param position the Position after the Move.
+     */
+    void moveMade(Move move, Position position);
+
+    /**
+     * The game went to another ply by undo, redo or seek, or started from a new Position.
+     * @param position the new Position.
+     */
+    void positionChanged(Position position);
+}
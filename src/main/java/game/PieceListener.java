@@ -0,0 +1,27 @@
+package game;
+
+import game.piece.ChessPiece;
+
+
+/**
+ * Notified of every piece placed on or taken from a Board, including the Moves of a search and their
+ * undoing, e.g. to keep the features of an evaluation up to date incrementally. Called on the thread
+ * that owns the Board, see Board.setPieceListener().
+ */
+public interface PieceListener {
+
+    /**
+     * @param square x * columns + y
+     */
+    void pieceAdded(int square, ChessPiece piece);
+
+    /**
+     * @param square x * columns + y
+     */
+    void pieceRemoved(int square, ChessPiece piece);
+
+    /**
+     * All pieces of the Board were replaced, e.g. by Board.reset().
+     */
+    void piecesReset(Board board);
+}
@@ -1,14 +1,20 @@
 package game;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import game.piece.PieceColor;
 
 
+/**
+ * A player of one color in a Game. The statistics are atomic counters, so results may be recorded from
+ * any thread.
+ */
 public class Player {
     private String name;
     private PieceColor color;
-    private int noOfWins;
-    private int noOfDraws;
-    private int noOfLoses;
+    private final AtomicInteger noOfWins;
+    private final AtomicInteger noOfDraws;
+    private final AtomicInteger noOfLoses;
 
 
 
@@ -20,9 +26,9 @@ public class Player {
     public Player(String name, PieceColor color) {
         this.name = name;
         this.color = color;
-        this.noOfWins = 0;
-        this.noOfLoses = 0;
-        this.noOfDraws = 0;
+        this.noOfWins = new AtomicInteger();
+        this.noOfLoses = new AtomicInteger();
+        this.noOfDraws = new AtomicInteger();
     }
 
     public PieceColor getColor() {
@@ -34,27 +40,36 @@ public class Player {
     }
 
     public void increaseNoOfWins() {
-        this.noOfWins += 1;
+        noOfWins.incrementAndGet();
     }
 
     public void increaseNoOfDraws() {
-        this.noOfDraws += 1;
+        noOfDraws.incrementAndGet();
     }
 
     public void increaseNoOfLoses() {
-        this.noOfLoses += 1;
+        noOfLoses.incrementAndGet();
+    }
+
+    /**
+     * Set the statistics, e.g. to those of earlier games in a GameStore.
+     */
+    public void setStatistics(int noOfWins, int noOfDraws, int noOfLoses) {
+        this.noOfWins.set(noOfWins);
+        this.noOfDraws.set(noOfDraws);
+        this.noOfLoses.set(noOfLoses);
     }
 
     public int getNoOfWins() {
-        return noOfWins;
+        return noOfWins.get();
     }
 
     public int getNoOfDraws() {
-        return noOfDraws;
+        return noOfDraws.get();
     }
 
     public int getNoOfLoses() {
-        return noOfLoses;
+        return noOfLoses.get();
     }
 
     @Override
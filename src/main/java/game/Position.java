@@ -0,0 +1,265 @@
+package game;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+
+/**
+ * The Position class is an immutable snapshot of the pieces on a Board. It stores the BoardSize and one
+ * byte per square (piece type, color and whether the piece has moved) and can be shared freely between
+ * threads. Squares are indexed x * columns + y.
+ *
+ * Queries (valid moves, attacked squares, status) are answered on a private Board rebuilt from the
+ * snapshot, so they never touch the live Board. Results are computed once per color and cached.
+ */
+public final class Position {
+    private static final int TYPE_MASK = 0x0F;
+    private static final int BLACK_BIT = 0x10;
+    private static final int MOVED_BIT = 0x20;
+
+    private final BoardSize size;
+    private final byte[] squares;
+
+    private volatile Analysis white;
+    private volatile Analysis black;
+
+
+    /**
+     * Take a snapshot of a Board. Must be called by the thread that owns the Board.
+     * @param board the Board to copy.
+     */
+    Position(Board board) {
+        this.size = board.getSize();
+        this.squares = new byte[size.getSquares()];
+        for (int i = 0; i < squares.length; i++) {
+            ChessPiece curr = board.getPiece(i / size.getColumns(), i % size.getColumns());
+            if (curr != null) {
+                int code = curr.getType().ordinal() + 1;
+                if (curr.getColor() == PieceColor.BLACK) {
+                    code |= BLACK_BIT;
+                }
+                if (curr.isHasMoved()) {
+                    code |= MOVED_BIT;
+                }
+                squares[i] = (byte) code;
+            }
+        }
+    }
+
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * @return the type of the piece at (x, y), or null if the square is empty.
+     */
+    public PieceType getType(int x, int y) {
+        int code = squares[x * size.getColumns() + y];
+        return (code == 0) ? null : PieceType.values()[(code & TYPE_MASK) - 1];
+    }
+
+    /**
+     * @return the color of the piece at (x, y), or null if the square is empty.
+     */
+    public PieceColor getColor(int x, int y) {
+        int code = squares[x * size.getColumns() + y];
+        if (code == 0) {
+            return null;
+        }
+        return ((code & BLACK_BIT) != 0) ? PieceColor.BLACK : PieceColor.WHITE;
+    }
+
+    /**
+     * @return true if the piece at (x, y) has moved before.
+     */
+    public boolean hasMoved(int x, int y) {
+        return (squares[x * size.getColumns() + y] & MOVED_BIT) != 0;
+    }
+
+    /**
+     * @return the piece placement as a FEN-like diagram, see Board.fromFen().
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int x = 0; x < size.getRows(); x++) {
+            int empty = 0;
+            for (int y = 0; y < size.getColumns(); y++) {
+                PieceType type = getType(x, y);
+                if (type == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = type.getLetter();
+                fen.append((getColor(x, y) == PieceColor.WHITE) ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (x < size.getRows() - 1) {
+                fen.append('/');
+            }
+        }
+        return fen.toString();
+    }
+
+    /**
+     * Compare two snapshots square by square.
+     * @param other the snapshot to compare with, null or a board of another size is treated as an
+     *              empty board.
+     * @return the squares whose piece differs.
+     */
+    public SquareSet diff(Position other) {
+        boolean comparable = other != null && other.size.equals(size);
+        long low = 0L;
+        long high = 0L;
+        for (int i = 0; i < squares.length; i++) {
+            byte code = comparable ? other.squares[i] : 0;
+            if (squares[i] != code) {
+                if (i < 64) {
+                    low |= 1L << i;
+                } else {
+                    high |= 1L << (i - 64);
+                }
+            }
+        }
+        return SquareSet.fromWords(low, high);
+    }
+
+    /**
+     * Create a new ChessPiece equal to the one on a square of this snapshot.
+     * @param square square index x * columns + y
+     * @return the piece, or null if the square is empty.
+     */
+    ChessPiece createPiece(int square) {
+        int code = squares[square];
+        if (code == 0) {
+            return null;
+        }
+        int x = square / size.getColumns();
+        int y = square % size.getColumns();
+        ChessPiece piece = new ChessPiece(getColor(x, y), getType(x, y));
+        piece.setHasMoved((code & MOVED_BIT) != 0);
+        return piece;
+    }
+
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @return true if the valid moves of the color are computed already, so queries return at once.
+     */
+    public boolean isAnalyzed(int color) {
+        return ((color == 0) ? white : black) != null;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @param square square index x * columns + y of the moving piece
+     * @return the destinations the piece on the square can validly move to.
+     */
+    public SquareSet getValidDestinations(int color, int square) {
+        SquareSet destinations = analyze(color).destinations[square];
+        return (destinations == null) ? SquareSet.EMPTY : destinations;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @return number of valid Moves of the player.
+     */
+    public int getNoOfValidMoves(int color) {
+        return analyze(color).noOfValidMoves;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @return the squares the pieces of the color can get to within one move.
+     */
+    public SquareSet getAttackedSquares(int color) {
+        return analyze(color).attacked;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black
+     * @return true if the King of the color is being checked.
+     */
+    public boolean isChecked(int color) {
+        return analyze(color).checked;
+    }
+
+    /**
+     * @param color 0 for white and 1 for black, the player to move.
+     * @return the status of the game from the point of view of the player to move.
+     */
+    public GameStatus getStatus(int color) {
+        Analysis analysis = analyze(color);
+        if (analysis.noOfValidMoves == 0) {
+            return analysis.checked ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        return analysis.checked ? GameStatus.CHECK : GameStatus.ACTIVE;
+    }
+
+
+    /**
+     * Compute (or reuse) the valid moves and attacks of a color.
+     * Two threads may race to compute the same Analysis; both results are equal and either one is kept.
+     */
+    private Analysis analyze(int color) {
+        Analysis analysis = (color == 0) ? white : black;
+        if (analysis == null) {
+            analysis = new Analysis(new Board(this), color);
+            if (color == 0) {
+                white = analysis;
+            } else {
+                black = analysis;
+            }
+        }
+        return analysis;
+    }
+
+    /**
+     * Results of the move generation of one color on a private Board.
+     */
+    private static final class Analysis {
+        private final SquareSet[] destinations;
+        private final int noOfValidMoves;
+        private final SquareSet attacked;
+        private final boolean checked;
+
+        Analysis(Board board, int color) {
+            int columns = board.getSize().getColumns();
+            destinations = new SquareSet[board.getSize().getSquares()];
+            LinkedList<Move> validMoves = board.getAllValidMovesByPlayer(color);
+            for (Move move : validMoves) {
+                int src = move.getSrcX() * columns + move.getSrcY();
+                SquareSet previous = (destinations[src] == null) ? SquareSet.EMPTY : destinations[src];
+                destinations[src] = previous.with(move.getDestX() * columns + move.getDestY());
+            }
+            noOfValidMoves = validMoves.size();
+            attacked = board.getAttackedSquares(color);
+            checked = board.isChecked(color);
+        }
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) return false;
+        if (other == this) return true;
+        if (!(other instanceof Position)) return false;
+
+        return size.equals(((Position) other).size) && Arrays.equals(squares, ((Position) other).squares);
+    }
+
+    @Override
+    public int hashCode() {
+        return size.hashCode() * 31 + Arrays.hashCode(squares);
+    }
+}
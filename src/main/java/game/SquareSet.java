@@ -0,0 +1,157 @@
+package game;
+
+/**
+ * An immutable set of squares of a board with up to 128 squares, stored as two 64-bit words.
+ * Square i is bit i of the low word for i < 64 and bit i - 64 of the high word otherwise.
+ *
+ * Iterate over a set with:
+ * <pre>
+ *     for (int square = set.first(); square >= 0; square = set.next(square + 1)) { ... }
+ * </pre>
+ */
+public final class SquareSet {
+    public static final SquareSet EMPTY = new SquareSet(0L, 0L);
+
+    private final long low;
+    private final long high;
+
+
+    SquareSet(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * @return a set with the given squares.
+     */
+    public static SquareSet of(int... squares) {
+        long low = 0L;
+        long high = 0L;
+        for (int square : squares) {
+            if (square < 64) {
+                low |= 1L << square;
+            } else {
+                high |= 1L << (square - 64);
+            }
+        }
+        return new SquareSet(low, high);
+    }
+
+    /**
+     * @return a set from its two words, see getLow() and getHigh().
+     */
+    public static SquareSet fromWords(long low, long high) {
+        return (low == 0 && high == 0) ? EMPTY : new SquareSet(low, high);
+    }
+
+
+    public boolean contains(int square) {
+        return (square < 64) ? (low & (1L << square)) != 0 : (high & (1L << (square - 64))) != 0;
+    }
+
+    public SquareSet with(int square) {
+        return (square < 64) ? new SquareSet(low | 1L << square, high) : new SquareSet(low, high | 1L << (square - 64));
+    }
+
+    public SquareSet without(int square) {
+        return (square < 64) ? new SquareSet(low & ~(1L << square), high)
+                : new SquareSet(low, high & ~(1L << (square - 64)));
+    }
+
+    public SquareSet or(SquareSet other) {
+        return new SquareSet(low | other.low, high | other.high);
+    }
+
+    public SquareSet and(SquareSet other) {
+        return new SquareSet(low & other.low, high & other.high);
+    }
+
+    public SquareSet andNot(SquareSet other) {
+        return new SquareSet(low & ~other.low, high & ~other.high);
+    }
+
+    public SquareSet xor(SquareSet other) {
+        return new SquareSet(low ^ other.low, high ^ other.high);
+    }
+
+    public boolean isEmpty() {
+        return low == 0 && high == 0;
+    }
+
+    public boolean intersects(SquareSet other) {
+        return (low & other.low) != 0 || (high & other.high) != 0;
+    }
+
+    /**
+     * @return the number of squares in the set.
+     */
+    public int size() {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+
+    /**
+     * @return the lowest square of the set, -1 if it is empty.
+     */
+    public int first() {
+        return next(0);
+    }
+
+    /**
+     * @return the lowest square of the set that is at least from, -1 if there is none.
+     */
+    public int next(int from) {
+        if (from < 64) {
+            long rest = low & (-1L << from);
+            if (rest != 0) {
+                return Long.numberOfTrailingZeros(rest);
+            }
+            from = 64;
+        }
+        if (from < 128) {
+            long rest = high & (-1L << (from - 64));
+            if (rest != 0) {
+                return 64 + Long.numberOfTrailingZeros(rest);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return squares 0 to 63 as a mask.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return squares 64 to 127 as a mask.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) return false;
+        if (other == this) return true;
+        if (!(other instanceof SquareSet)) return false;
+
+        return low == ((SquareSet) other).low && high == ((SquareSet) other).high;
+    }
+
+    @Override
+    public int hashCode() {
+        long mix = low * 31 + high;
+        return (int) (mix ^ (mix >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int square = first(); square >= 0; square = next(square + 1)) {
+            builder.append((builder.length() > 1) ? ", " : "").append(square);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,298 @@
+package game;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import game.piece.PieceType;
+
+
+/**
+ * An endgame tablebase: the result of every position of one material signature with perfect play,
+ * as computed by TablebaseGenerator.
+ *
+ * A signature names the white pieces, then the black pieces, each side starting with its King, e.g.
+ * "KCK" is King and Cannon against King. Pawns are not supported. The pieces of a position are listed in
+ * the order of the signature, and the position with the player to move color is stored at
+ * color + 2 * (s[0] + n * (s[1] + n * (s[2] + ...))), with s[i] the square of the i-th piece and n the
+ * number of squares.
+ *
+ * A value is DRAW, or distance to mate in plies plus one: odd for the player to move being mated, even
+ * for the player to move giving mate. Values are bit-packed with as few bits as the longest mate needs,
+ * after a 32 byte header:
+ * <pre>
+ *     int magic, short version, byte rows, byte columns, byte bits per value, byte flags,
+ *     byte length of the signature, 16 bytes signature, 5 bytes unused
+ * </pre>
+ * Files are memory-mapped and probes read the mapped buffer directly.
+ */
+public final class Tablebase {
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+
+    static final int MAGIC = 0x54424153;   // "TBAS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int MAX_SIGNATURE = 16;
+    static final int DECISIVE = 1;          // flag: some position is won
+
+    private final ByteBuffer buffer;
+    private final String signature;
+    private final PieceType[] types;
+    private final int whitePieces;
+    private final BoardSize size;
+    private final int bits;
+    private final long mask;
+    private final boolean decisive;
+
+
+    private Tablebase(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a tablebase");
+        }
+        this.buffer = buffer;
+        this.size = BoardSize.of(buffer.get(6), buffer.get(7));
+        this.bits = buffer.get(8);
+        this.mask = (1L << bits) - 1;
+        this.decisive = (buffer.get(9) & DECISIVE) != 0;
+        char[] letters = new char[buffer.get(10)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) buffer.get(11 + i);
+        }
+        this.signature = new String(letters);
+        this.types = parse(signature);
+        this.whitePieces = signature.indexOf('K', 1);
+        if (HEADER_SIZE + 8 * (getNoOfWords(getNoOfEntries(), bits) + 1) > buffer.capacity()) {
+            throw new IOException("Truncated tablebase " + signature);
+        }
+    }
+
+    /**
+     * Pack the values computed by TablebaseGenerator.
+     */
+    Tablebase(String signature, BoardSize size, short[] values) throws IOException {
+        this(pack(signature, size, values));
+    }
+
+    /**
+     * Map a tablebase file. The file stays mapped until the tablebase is garbage collected.
+     * @throws IOException if the file cannot be read or is not a tablebase.
+     */
+    public static Tablebase open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the tablebase to a file, named getSignature() + ".tb" by convention.
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        data.clear();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of pieces, both Kings included.
+     */
+    public int getNoOfPieces() {
+        return types.length;
+    }
+
+    /**
+     * @return false if every position is a draw, i.e. the material cannot force mate.
+     */
+    public boolean isDecisive() {
+        return decisive;
+    }
+
+    /**
+     * @return the number of stored positions, including the impossible ones.
+     */
+    public long getNoOfEntries() {
+        long entries = 2;
+        for (int i = 0; i < types.length; i++) {
+            entries *= size.getSquares();
+        }
+        return entries;
+    }
+
+    /**
+     * @param index index of a position, see the class comment.
+     * @return the value of the position.
+     */
+    public int get(long index) {
+        long bit = index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = buffer.getLong(HEADER_SIZE + 8 * word) >>> shift;
+        if (shift + bits > 64) {
+            value |= buffer.getLong(HEADER_SIZE + 8 * (word + 1)) << (64 - shift);
+        }
+        return (int) (value & mask);
+    }
+
+    /**
+     * @param squares square of every piece, in the order of the signature.
+     * @param color 0 for white and 1 for black, the player to move.
+     * @return the value of the position.
+     */
+    public int probe(int[] squares, int color) {
+        return get(index(squares, color, size.getSquares()));
+    }
+
+
+    /**
+     * @return true if the player to move wins a position of the value.
+     */
+    public static boolean isWin(int value) {
+        return value > 0 && (value & 1) == 0;
+    }
+
+    /**
+     * @return true if the player to move loses a position of the value.
+     */
+    public static boolean isLoss(int value) {
+        return (value & 1) == 1;
+    }
+
+    /**
+     * @return the number of plies to mate of a won or lost position.
+     */
+    public static int getDistance(int value) {
+        return value - 1;
+    }
+
+    /**
+     * @return the index of a position, see the class comment.
+     */
+    static long index(int[] squares, int color, int n) {
+        long index = 0;
+        for (int i = squares.length - 1; i >= 0; i--) {
+            index = index * n + squares[i];
+        }
+        return 2 * index + color;
+    }
+
+    /**
+     * @return the number of white pieces of the signature.
+     */
+    int getNoOfWhitePieces() {
+        return whitePieces;
+    }
+
+    PieceType getType(int piece) {
+        return types[piece];
+    }
+
+    /**
+     * Read a signature, e.g. "KAK" or "KCKA".
+     * @return the type of every piece.
+     * @throws IllegalArgumentException if the signature is not valid.
+     */
+    static PieceType[] parse(String signature) {
+        int black = signature.indexOf('K', 1);
+        if (!signature.startsWith("K") || black < 0 || signature.length() > MAX_SIGNATURE) {
+            throw new IllegalArgumentException("Invalid signature " + signature);
+        }
+        PieceType[] types = new PieceType[signature.length()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = PieceType.fromLetter(signature.charAt(i));
+            if (types[i] == null || types[i] == PieceType.PAWN || (types[i] == PieceType.KING && i != 0 && i != black)) {
+                throw new IllegalArgumentException("Invalid signature " + signature);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @return the signature with the pieces of each side after the King sorted by PieceType.
+     */
+    static String normalize(String signature) {
+        parse(signature);
+        int black = signature.indexOf('K', 1);
+        return "K" + sort(signature.substring(1, black)) + "K" + sort(signature.substring(black + 1));
+    }
+
+    private static String sort(String letters) {
+        StringBuilder sorted = new StringBuilder();
+        for (PieceType type : PieceType.values()) {
+            for (int i = 0; i < letters.length(); i++) {
+                if (letters.charAt(i) == type.getLetter()) {
+                    sorted.append(type.getLetter());
+                }
+            }
+        }
+        return sorted.toString();
+    }
+
+
+    private static long getNoOfWords(long entries, int bits) {
+        return (entries * bits + 63) / 64;
+    }
+
+    private static ByteBuffer pack(String signature, BoardSize size, short[] values) {
+        int max = 0;
+        for (short value : values) {
+            max = Math.max(max, value);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+        boolean decisive = max > 1;     // any value above a mate is a win or a loss that follows from one
+
+        // One extra word, so a value at the end never reads past the buffer.
+        long words = getNoOfWords(values.length, bits) + 1;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_SIZE + 8 * words));
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) VERSION);
+        buffer.put(6, (byte) size.getRows());
+        buffer.put(7, (byte) size.getColumns());
+        buffer.put(8, (byte) bits);
+        buffer.put(9, (byte) (decisive ? DECISIVE : 0));
+        buffer.put(10, (byte) signature.length());
+        for (int i = 0; i < signature.length(); i++) {
+            buffer.put(11 + i, (byte) signature.charAt(i));
+        }
+
+        long word = 0;
+        int filled = 0;
+        int position = HEADER_SIZE;
+        for (short value : values) {
+            word |= (long) value << filled;
+            filled += bits;
+            if (filled >= 64) {
+                buffer.putLong(position, word);
+                position += 8;
+                filled -= 64;
+                word = (filled > 0) ? (long) value >>> (bits - filled) : 0;
+            }
+        }
+        if (filled > 0) {
+            buffer.putLong(position, word);
+        }
+        return buffer;
+    }
+}
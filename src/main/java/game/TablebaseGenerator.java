@@ -0,0 +1,495 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+
+/**
+ * Generates Tablebases by retrograde analysis.
+ *
+ * Every position of a signature is first examined on its own: positions that are impossible (two pieces
+ * on a square, the player who just moved in check) are dropped, mates and stalemates are scored, and the
+ * Moves that stay within the signature are counted. Captures leave the signature and are scored from the
+ * smaller tablebase, which is generated first. Then results spread backwards one ply at a time: a
+ * predecessor of a lost position is won, and a position whose Moves all lead to won positions is lost.
+ * Whatever is left at the end is a draw.
+ *
+ * Since no piece of a tablebase is a Pawn, every Move can be reversed: the predecessors of a position
+ * are found by moving the pieces of the player who just moved to the empty squares they can reach,
+ * which is also true for the Cannon, as the screens of a hop are the same in both directions.
+ *
+ * Both phases are split over a pool of threads. Move counters are updated atomically, and a position
+ * is resolved by the thread that sets its counter to RESOLVED.
+ *
+ * Usage: java game.TablebaseGenerator [-size rows columns] [-threads n] [-dir directory] signature...
+ */
+public class TablebaseGenerator {
+    public static final int MAX_PIECES = 4;
+
+    private static final int RESOLVED = -1;
+    private static final short CANNOT_LOSE = -1;
+
+    private final BoardSize size;
+    private final AttackTable[] tables;
+    private final int threads;
+    private final ExecutorService executor;
+    private final Map<String, Tablebase> generated;
+
+
+    /**
+     * @param size dimensions of the board.
+     * @param threads number of threads to generate with.
+     */
+    public TablebaseGenerator(BoardSize size, int threads) {
+        this.size = size;
+        this.tables = AttackTable.forSize(size);
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "tablebase");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.generated = new HashMap<String, Tablebase>();
+    }
+
+
+    /**
+     * Generate the tablebase of a signature, and those of the signatures its captures lead to.
+     * Tablebases are kept, so every signature is generated once per generator.
+     * @param signature e.g. "KCK", see Tablebase.
+     * @return the tablebase
+     * @throws IllegalArgumentException if the signature is not valid or has more than MAX_PIECES pieces.
+     */
+    public synchronized Tablebase generate(String signature) throws IOException, InterruptedException {
+        String normalized = Tablebase.normalize(signature);
+        if (normalized.length() > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces in " + signature);
+        }
+        Tablebase table = generated.get(normalized);
+        if (table == null) {
+            table = new Generation(normalized).run();
+            generated.put(normalized, table);
+        }
+        return table;
+    }
+
+    /**
+     * Stop the threads of the generator.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    /**
+     * The generation of one signature.
+     */
+    private class Generation {
+        private final String signature;
+        private final PieceType[] types;
+        private final int[] colors;
+        private final Tablebase[] captured;     // tablebase after capturing each piece, null for Kings
+        private final int n;
+        private final int entries;
+
+        private final AtomicIntegerArray counters; // Moves within the signature not leading to a won position
+        private final short[] values;
+        private final short[] lossBound;            // distance of the slowest loss by a capture, or CANNOT_LOSE
+
+        Generation(String signature) throws IOException, InterruptedException {
+            this.signature = signature;
+            this.types = Tablebase.parse(signature);
+            this.colors = new int[types.length];
+            int black = signature.indexOf('K', 1);
+            this.captured = new Tablebase[types.length];
+            for (int i = 0; i < types.length; i++) {
+                colors[i] = (i < black) ? 0 : 1;
+                if (types[i] != PieceType.KING) {
+                    captured[i] = generate(signature.substring(0, i) + signature.substring(i + 1));
+                }
+            }
+            this.n = size.getSquares();
+            long count = 2;
+            for (int i = 0; i < types.length; i++) {
+                count *= n;
+            }
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many positions in " + signature);
+            }
+            this.entries = (int) count;
+            this.counters = new AtomicIntegerArray(entries);
+            this.values = new short[entries];
+            this.lossBound = new short[entries];
+        }
+
+        Tablebase run() throws IOException, InterruptedException {
+            // Examine every position.
+            List<Callable<Levels[]>> tasks = new ArrayList<Callable<Levels[]>>();
+            int chunk = Math.max(1, entries / (threads * 8) + 1);
+            for (int start = 0; start < entries; start += chunk) {
+                final int from = start;
+                final int to = (int) Math.min(entries, (long) start + chunk);
+                tasks.add(new Callable<Levels[]>() {
+                    public Levels[] call() {
+                        Levels resolved = new Levels();
+                        Levels wins = new Levels();
+                        int[] squares = new int[types.length];
+                        for (int index = from; index < to; index++) {
+                            examine(index, squares, resolved, wins);
+                        }
+                        return new Levels[] {resolved, wins};
+                    }
+                });
+            }
+            Levels resolved = new Levels();
+            Levels wins = new Levels();
+            for (Levels[] result : invokeAll(tasks)) {
+                resolved.addAll(result[0]);
+                wins.addAll(result[1]);
+            }
+
+            // Spread the results backwards, one ply at a time.
+            for (int level = 0; level < Math.max(resolved.size(), wins.size()); level++) {
+                int[] candidates = wins.get(level);
+                for (int i = 1; i <= candidates[0]; i++) {
+                    if (resolve(candidates[i], level)) {
+                        resolved.add(level, candidates[i]);
+                    }
+                }
+                final int[] frontier = resolved.get(level);
+                final int distance = level;
+                tasks.clear();
+                chunk = Math.max(1, frontier[0] / (threads * 8) + 1);
+                for (int start = 1; start <= frontier[0]; start += chunk) {
+                    final int from = start;
+                    final int to = Math.min(frontier[0] + 1, start + chunk);
+                    tasks.add(new Callable<Levels[]>() {
+                        public Levels[] call() {
+                            Levels next = new Levels();
+                            int[] squares = new int[types.length];
+                            for (int i = from; i < to; i++) {
+                                retract(frontier[i], distance, squares, next);
+                            }
+                            return new Levels[] {next};
+                        }
+                    });
+                }
+                for (Levels[] result : invokeAll(tasks)) {
+                    resolved.addAll(result[0]);
+                }
+            }
+            return new Tablebase(signature, size, values);
+        }
+
+        /**
+         * Score a position on its own and count its Moves.
+         * @param resolved receives positions resolved as lost, by distance
+         * @param wins receives positions won by a capture, by distance
+         */
+        private void examine(int index, int[] squares, Levels resolved, Levels wins) {
+            int color = decode(index, squares);
+            for (int i = 0; i < squares.length; i++) {
+                for (int j = i + 1; j < squares.length; j++) {
+                    if (squares[i] == squares[j]) {
+                        counters.set(index, RESOLVED);
+                        return;
+                    }
+                }
+            }
+            if (isChecked(squares, -1, 1 - color)) {
+                counters.set(index, RESOLVED);
+                return;
+            }
+
+            int moves = 0;
+            boolean legal = false;
+            boolean canDraw = false;
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = 0;
+            for (int piece = 0; piece < squares.length; piece++) {
+                if (colors[piece] != color) {
+                    continue;
+                }
+                int from = squares[piece];
+                SquareSet destinations = getDestinations(squares, -1, piece);
+                for (int dest = destinations.first(); dest >= 0; dest = destinations.next(dest + 1)) {
+                    int victim = find(squares, dest);
+                    squares[piece] = dest;
+                    if (victim < 0) {
+                        if (!isChecked(squares, -1, color)) {
+                            moves++;
+                            legal = true;
+                        }
+                    } else if (types[victim] != PieceType.KING && !isChecked(squares, victim, color)) {
+                        legal = true;
+                        int value = captured[victim].probe(without(squares, victim), 1 - color);
+                        if (value == Tablebase.DRAW) {
+                            canDraw = true;
+                        } else if (Tablebase.isLoss(value)) {
+                            fastestWin = Math.min(fastestWin, Tablebase.getDistance(value) + 1);
+                        } else {
+                            slowestLoss = Math.max(slowestLoss, Tablebase.getDistance(value) + 1);
+                        }
+                    }
+                    squares[piece] = from;
+                }
+            }
+
+            if (!legal) {
+                counters.set(index, RESOLVED);
+                if (isChecked(squares, -1, color)) {
+                    values[index] = 1;
+                    resolved.add(0, index);
+                }
+                return;
+            }
+            counters.set(index, moves);
+            lossBound[index] = (canDraw || fastestWin < Integer.MAX_VALUE) ? CANNOT_LOSE : (short) slowestLoss;
+            if (fastestWin < Integer.MAX_VALUE) {
+                wins.add(fastestWin, index);
+            } else if (moves == 0 && !canDraw) {
+                counters.set(index, RESOLVED);
+                values[index] = (short) (slowestLoss + 1);
+                resolved.add(slowestLoss, index);
+            }
+        }
+
+        /**
+         * Update the predecessors of a resolved position.
+         * @param next receives the predecessors resolved by this position, by distance
+         */
+        private void retract(int index, int distance, int[] squares, Levels next) {
+            int color = decode(index, squares);
+            boolean lost = Tablebase.isLoss(values[index]);
+            for (int piece = 0; piece < squares.length; piece++) {
+                if (colors[piece] == color) {
+                    continue;
+                }
+                int from = squares[piece];
+                SquareSet destinations = getDestinations(squares, -1, piece);
+                for (int dest = destinations.first(); dest >= 0; dest = destinations.next(dest + 1)) {
+                    if (find(squares, dest) >= 0) {
+                        continue;
+                    }
+                    squares[piece] = dest;
+                    int predecessor = (int) Tablebase.index(squares, 1 - color, n);
+                    squares[piece] = from;
+
+                    if (lost) {
+                        if (resolve(predecessor, distance + 1)) {
+                            next.add(distance + 1, predecessor);
+                        }
+                    } else if (decrement(predecessor) && lossBound[predecessor] != CANNOT_LOSE) {
+                        int loss = Math.max(distance + 1, lossBound[predecessor]);
+                        if (counters.compareAndSet(predecessor, 0, RESOLVED)) {
+                            values[predecessor] = (short) (loss + 1);
+                            next.add(loss, predecessor);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Resolve an open position as won.
+         * @return true if this call resolved it.
+         */
+        private boolean resolve(int index, int distance) {
+            while (true) {
+                int count = counters.get(index);
+                if (count == RESOLVED) {
+                    return false;
+                }
+                if (counters.compareAndSet(index, count, RESOLVED)) {
+                    values[index] = (short) (distance + 1);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Count down the Moves of an open position.
+         * @return true if this call counted down the last Move.
+         */
+        private boolean decrement(int index) {
+            while (true) {
+                int count = counters.get(index);
+                if (count <= 0) {
+                    return false;
+                }
+                if (counters.compareAndSet(index, count, count - 1)) {
+                    return count == 1;
+                }
+            }
+        }
+
+        /**
+         * @return the player to move of a position, and its squares in squares.
+         */
+        private int decode(int index, int[] squares) {
+            int rest = index >>> 1;
+            for (int i = 0; i < squares.length; i++) {
+                squares[i] = rest % n;
+                rest /= n;
+            }
+            return index & 1;
+        }
+
+        /**
+         * @param skip a captured piece to leave out, -1 for none.
+         * @return true if the King of the color is attacked.
+         */
+        private boolean isChecked(int[] squares, int skip, int color) {
+            int king = -1;
+            for (int i = 0; i < squares.length; i++) {
+                if (types[i] == PieceType.KING && colors[i] == color) {
+                    king = squares[i];
+                }
+            }
+            for (int i = 0; i < squares.length; i++) {
+                if (i != skip && colors[i] != color && getDestinations(squares, skip, i).contains(king)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private SquareSet getDestinations(int[] squares, int skip, int piece) {
+            SquareSet own = SquareSet.EMPTY;
+            SquareSet enemy = SquareSet.EMPTY;
+            for (int i = 0; i < squares.length; i++) {
+                if (i == skip) {
+                    continue;
+                }
+                if (colors[i] == colors[piece]) {
+                    own = own.with(squares[i]);
+                } else {
+                    enemy = enemy.with(squares[i]);
+                }
+            }
+            PieceColor color = (colors[piece] == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+            return tables[types[piece].ordinal()].getDestinations(squares[piece], color, true, own, enemy);
+        }
+
+        /**
+         * @return the piece on a square, -1 if it is empty.
+         */
+        private int find(int[] squares, int square) {
+            for (int i = 0; i < squares.length; i++) {
+                if (squares[i] == square) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int[] without(int[] squares, int piece) {
+            int[] rest = new int[squares.length - 1];
+            System.arraycopy(squares, 0, rest, 0, piece);
+            System.arraycopy(squares, piece + 1, rest, piece, rest.length - piece);
+            return rest;
+        }
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws InterruptedException {
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+
+    /**
+     * Lists of positions by distance to mate. Each list is an int array holding its length at index 0.
+     */
+    private static class Levels {
+        private final List<int[]> lists = new ArrayList<int[]>();
+
+        void add(int level, int index) {
+            while (lists.size() <= level) {
+                lists.add(new int[8]);
+            }
+            int[] list = lists.get(level);
+            if (list[0] + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                lists.set(level, list);
+            }
+            list[++list[0]] = index;
+        }
+
+        void addAll(Levels other) {
+            for (int level = 0; level < other.lists.size(); level++) {
+                int[] list = other.lists.get(level);
+                for (int i = 1; i <= list[0]; i++) {
+                    add(level, list[i]);
+                }
+            }
+        }
+
+        int[] get(int level) {
+            return (level < lists.size()) ? lists.get(level) : new int[1];
+        }
+
+        int size() {
+            return lists.size();
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        BoardSize size = BoardSize.STANDARD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File directory = new File(".");
+        List<String> signatures = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-size")) {
+                size = BoardSize.of(Integer.parseInt(args[i + 1]), Integer.parseInt(args[i + 2]));
+                i += 2;
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-dir")) {
+                directory = new File(args[++i]);
+            } else {
+                signatures.add(args[i]);
+            }
+        }
+        if (signatures.isEmpty()) {
+            System.out.println("Usage: java game.TablebaseGenerator [-size rows columns] [-threads n] [-dir directory] signature...");
+            return;
+        }
+
+        TablebaseGenerator generator = new TablebaseGenerator(size, threads);
+        for (String signature : signatures) {
+            long start = System.currentTimeMillis();
+            Tablebase table = generator.generate(signature);
+            File file = new File(directory, table.getSignature() + ".tb");
+            table.write(file);
+            System.out.println(table.getSignature() + ": " + table.getNoOfEntries() + " positions, "
+                    + (table.isDecisive() ? "decisive" : "drawn") + ", " + file.length() + " bytes in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        generator.shutdown();
+    }
+}
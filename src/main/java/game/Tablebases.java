@@ -0,0 +1,247 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import game.piece.ChessPiece;
+import game.piece.PieceType;
+
+
+/**
+ * The Tablebases available to a game, loaded on first use from files named after their signature, e.g.
+ * "KCK.tb", in one directory. A position whose colors are swapped relative to a tablebase is probed
+ * with the board mirrored, so "KCK.tb" also answers King against King and Cannon.
+ *
+ * Boards and the Search probe through setTablebases(). Probing is thread-safe and does not lock once
+ * a tablebase was looked up: tables are found by a material key counted from the pieces.
+ */
+public class Tablebases {
+    private final File directory;
+    private final ConcurrentHashMap<Integer, Slot> tables;
+
+
+    /**
+     * The tablebase of a material key, or none if there is no file of it.
+     */
+    private static final class Slot {
+        final Tablebase table;
+
+        Slot(Tablebase table) {
+            this.table = table;
+        }
+    }
+
+
+    /**
+     * @param directory directory of the tablebase files, null to use only added tablebases.
+     */
+    public Tablebases(File directory) {
+        this.directory = directory;
+        this.tables = new ConcurrentHashMap<Integer, Slot>();
+    }
+
+    /**
+     * Make a tablebase available, e.g. one just generated.
+     */
+    public void add(Tablebase table) {
+        tables.put(getKey(table.getSignature()), new Slot(table));
+    }
+
+    /**
+     * @return the tablebase of a normalized signature, or null if there is none.
+     */
+    public Tablebase get(String signature) {
+        int key = getKey(signature);
+        return (key == -1) ? null : get(key);
+    }
+
+    /**
+     * Look up the current position of a Board.
+     * @param board the Board
+     * @param color 0 for white and 1 for black, the player to move.
+     * @return the value of the position (see Tablebase), or Tablebase.UNKNOWN if no tablebase has it.
+     */
+    public int probe(Board board, int color) {
+        SquareSet white = board.getOccupied(0);
+        SquareSet black = board.getOccupied(1);
+        if (white.size() + black.size() > TablebaseGenerator.MAX_PIECES) {
+            return Tablebase.UNKNOWN;
+        }
+        int whiteKey = getMaterialKey(board, white);
+        int blackKey = getMaterialKey(board, black);
+        if (whiteKey == -1 || blackKey == -1) {
+            return Tablebase.UNKNOWN;
+        }
+
+        Tablebase table = get(whiteKey | (blackKey << 16));
+        if (table != null && table.getSize().equals(board.getSize())) {
+            return table.probe(collect(board, white, black, false), color);
+        }
+        // Swap the colors and mirror the rows.
+        table = get(blackKey | (whiteKey << 16));
+        if (table != null && table.getSize().equals(board.getSize())) {
+            return table.probe(collect(board, black, white, true), 1 - color);
+        }
+        return Tablebase.UNKNOWN;
+    }
+
+    /**
+     * @return true if there is a tablebase of the material on the Board and every position in it is a
+     *         draw, i.e. neither side can force mate.
+     */
+    public boolean isDeadDraw(Board board) {
+        SquareSet white = board.getOccupied(0);
+        SquareSet black = board.getOccupied(1);
+        if (white.size() + black.size() > TablebaseGenerator.MAX_PIECES) {
+            return false;
+        }
+        int whiteKey = getMaterialKey(board, white);
+        int blackKey = getMaterialKey(board, black);
+        if (whiteKey == -1 || blackKey == -1) {
+            return false;
+        }
+        Tablebase table = get(whiteKey | (blackKey << 16));
+        if (table == null) {
+            table = get(blackKey | (whiteKey << 16));
+        }
+        return table != null && table.getSize().equals(board.getSize()) && !table.isDecisive();
+    }
+
+
+    /**
+     * @param key the material key of the white pieces in the low and of the black pieces in the high
+     *            16 bits, see getMaterialKey().
+     * @return the tablebase of the material, or null if there is none.
+     */
+    private Tablebase get(int key) {
+        Slot slot = tables.get(key);
+        return (slot != null) ? slot.table : load(key);
+    }
+
+    /**
+     * Read the file of a material key once; later probes find it, or its absence, in the map.
+     */
+    private synchronized Tablebase load(int key) {
+        Slot slot = tables.get(key);
+        if (slot != null) {
+            return slot.table;
+        }
+        Tablebase table = null;
+        File file = (directory == null) ? null : new File(directory, getSignature(key) + ".tb");
+        if (file != null && file.isFile()) {
+            try {
+                table = Tablebase.open(file);
+            } catch (IOException e) {
+                System.out.println("Cannot read tablebase " + file + ": " + e.getMessage());
+            }
+        }
+        tables.put(key, new Slot(table));
+        return table;
+    }
+
+    /**
+     * The pieces of one color other than the King, counted in 2 bits per PieceType. A tablebase has
+     * at most MAX_PIECES pieces, so a count never overflows.
+     * @return the key, or -1 if the pieces cannot be in a tablebase: a Pawn, or not exactly one King.
+     */
+    private static int getMaterialKey(Board board, SquareSet occupied) {
+        int columns = board.getSize().getColumns();
+        int key = 0;
+        int kings = 0;
+        for (int square = occupied.first(); square >= 0; square = occupied.next(square + 1)) {
+            PieceType type = board.getPiece(square / columns, square % columns).getType();
+            if (type == PieceType.PAWN) {
+                return -1;
+            } else if (type == PieceType.KING) {
+                kings++;
+            } else {
+                key += 1 << (2 * type.ordinal());
+            }
+        }
+        return (kings == 1) ? key : -1;
+    }
+
+    /**
+     * @return the key of a signature like "KCK" as in probe(), or -1 if it is not one.
+     */
+    private static int getKey(String signature) {
+        int split = signature.indexOf('K', 1);
+        if (!signature.startsWith("K") || split < 0 || signature.indexOf('K', split + 1) >= 0) {
+            return -1;
+        }
+        int key = 0;
+        for (int i = 1; i < signature.length(); i++) {
+            PieceType type = PieceType.fromLetter(signature.charAt(i));
+            if (type == null || type == PieceType.PAWN) {
+                return -1;
+            }
+            if (type != PieceType.KING) {
+                key += 1 << (2 * type.ordinal() + ((i > split) ? 16 : 0));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return the normalized signature of a key: per color the King, then the others by PieceType.
+     */
+    private static String getSignature(int key) {
+        StringBuilder signature = new StringBuilder();
+        for (int shift = 0; shift <= 16; shift += 16) {
+            signature.append('K');
+            for (PieceType type : PieceType.values()) {
+                int count = (key >>> (shift + 2 * type.ordinal())) & 3;
+                for (int i = 0; i < count; i++) {
+                    signature.append(type.getLetter());
+                }
+            }
+        }
+        return signature.toString();
+    }
+
+    /**
+     * @return the squares of the pieces in the order of the signature, the rows mirrored if asked.
+     */
+    private static int[] collect(Board board, SquareSet first, SquareSet second, boolean mirror) {
+        int count = first.size() + second.size();
+        int[] squares = new int[count];
+        char[] letters = new char[count];
+        collect(board, first, squares, letters, 0);
+        collect(board, second, squares, letters, first.size());
+        if (mirror) {
+            int rows = board.getSize().getRows();
+            int columns = board.getSize().getColumns();
+            for (int i = 0; i < count; i++) {
+                squares[i] = (rows - 1 - squares[i] / columns) * columns + squares[i] % columns;
+            }
+        }
+        return squares;
+    }
+
+    /**
+     * List the pieces of one color in signature order: the King, then the others sorted by PieceType.
+     * The pieces were checked by getMaterialKey().
+     */
+    private static void collect(Board board, SquareSet occupied, int[] squares, char[] letters, int offset) {
+        int columns = board.getSize().getColumns();
+        int next = offset + 1;
+        for (int square = occupied.first(); square >= 0; square = occupied.next(square + 1)) {
+            ChessPiece piece = board.getPiece(square / columns, square % columns);
+            if (piece.getType() == PieceType.KING) {
+                squares[offset] = square;
+                letters[offset] = 'K';
+                continue;
+            }
+            // Insertion by PieceType keeps the letters in the order of Tablebase.normalize().
+            int i = next++;
+            while (i > offset + 1 && PieceType.fromLetter(letters[i - 1]).ordinal() > piece.getType().ordinal()) {
+                letters[i] = letters[i - 1];
+                squares[i] = squares[i - 1];
+                i--;
+            }
+            letters[i] = piece.getType().getLetter();
+            squares[i] = square;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package game;
+
+import java.util.Random;
+
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+
+
+/**
+ * Zobrist keys used to hash positions: one random 64-bit key per piece type, color and square, and
+ * one key for black to move. The keys are generated from a fixed seed, so hashes are stable between
+ * runs and can be stored in files.
+ */
+final class Zobrist {
+    private static final long[][] PIECES = new long[16][BoardSize.MAX_SQUARES];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(0x5EED242L);
+        for (long[] keys : PIECES) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param piece the piece, may be null.
+     * @param square square index x * columns + y
+     * @return the key of the piece on the square, 0 for an empty square.
+     */
+    static long piece(ChessPiece piece, int square) {
+        if (piece == null) {
+            return 0L;
+        }
+        int index = piece.getType().ordinal() * 2 + ((piece.getColor() == PieceColor.BLACK) ? 1 : 0);
+        return PIECES[index][square];
+    }
+}
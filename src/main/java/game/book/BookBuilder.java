@@ -0,0 +1,224 @@
+package game.book;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.Board;
+import game.BoardSize;
+import game.GameResult;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+
+/**
+ * Builds an OpeningBook from a game archive.
+ *
+ * An archive is a text file with one game per line: the result ("1-0", "0-1" or "1/2-1/2") followed by
+ * the moves in coordinate notation, e.g. "1-0 e2e4 e7e5 g1f3". Blank lines and lines starting with '#'
+ * are skipped. The archive is streamed line by line; every game is replayed on a Board and the
+ * statistics of its first maxPly moves are aggregated by position key. A game with an unknown result or
+ * an invalid move is rejected as a whole.
+ *
+ * Usage: java game.book.BookBuilder archive book [maxPly] [rows columns]
+ */
+public class BookBuilder {
+    public static final int DEFAULT_MAX_PLY = 20;
+
+    private final BoardSize size;
+    private final int maxPly;
+    private final Player white;
+    private final Player black;
+
+    /* Position key -> move code -> {wins, draws, losses} of the player making the move. */
+    private final Map<Long, Map<Integer, int[]>> statistics;
+    private int noOfGames;
+    private int noOfRejected;
+
+
+    /**
+     * @param size dimensions of the board the games are played on.
+     * @param maxPly number of plies of every game that go into the book.
+     */
+    public BookBuilder(BoardSize size, int maxPly) {
+        this.size = size;
+        this.maxPly = maxPly;
+        this.white = new Player("WHITE", PieceColor.WHITE);
+        this.black = new Player("BLACK", PieceColor.BLACK);
+        this.statistics = new HashMap<Long, Map<Integer, int[]>>();
+    }
+
+
+    /**
+     * Add all games of an archive.
+     * @param reader the archive, read to the end but not closed.
+     * @return the number of games added.
+     */
+    public int addArchive(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int added = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (addGame(line)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Replay one game and add its first maxPly moves.
+     * @param line the result followed by the moves, see the class comment.
+     * @return true if the game was added, false if it was rejected.
+     */
+    public boolean addGame(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        GameResult result = GameResult.parse(tokens[0]);
+        if (result == null) {
+            noOfRejected++;
+            return false;
+        }
+
+        Board board = new Board(white, black, size);
+        int plies = Math.min(maxPly, tokens.length - 1);
+        long[] keys = new long[plies];
+        int[] codes = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            int color = ply % 2;
+            Move move = Move.parse((color == 0) ? PieceColor.WHITE : PieceColor.BLACK, board, tokens[ply + 1]);
+            keys[ply] = board.getKey();
+            if (move == null || !board.makeMove(move)) {
+                noOfRejected++;
+                return false;
+            }
+            codes[ply] = encode(move);
+        }
+
+        for (int ply = 0; ply < plies; ply++) {
+            Map<Integer, int[]> moves = statistics.get(keys[ply]);
+            if (moves == null) {
+                moves = new HashMap<Integer, int[]>();
+                statistics.put(keys[ply], moves);
+            }
+            int[] counts = moves.get(codes[ply]);
+            if (counts == null) {
+                counts = new int[3];
+                moves.put(codes[ply], counts);
+            }
+            counts[2 - result.getPoints(ply % 2)]++;
+        }
+        noOfGames++;
+        return true;
+    }
+
+    /**
+     * Write the book, see OpeningBook for the format.
+     * @param file the file to write, replaced if it exists.
+     */
+    public void write(File file) throws IOException {
+        List<long[]> records = new ArrayList<long[]>();
+        for (Map.Entry<Long, Map<Integer, int[]>> position : statistics.entrySet()) {
+            for (Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+                int[] counts = move.getValue();
+                long weight = Math.min(0xFFFF, 2L * counts[0] + counts[1]);
+                records.add(new long[] {position.getKey(), move.getKey(), weight, counts[0], counts[1], counts[2]});
+            }
+        }
+        Collections.sort(records, new Comparator<long[]>() {
+            public int compare(long[] a, long[] b) {
+                if (a[0] != b[0]) {
+                    return (a[0] < b[0]) ? -1 : 1;
+                }
+                if (a[2] != b[2]) {
+                    return (a[2] > b[2]) ? -1 : 1;
+                }
+                return Long.compare(a[1], b[1]);
+            }
+        });
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeShort(OpeningBook.VERSION);
+            out.writeByte(size.getRows());
+            out.writeByte(size.getColumns());
+            out.writeInt(records.size());
+            out.writeInt(maxPly);
+            for (long[] record : records) {
+                out.writeLong(record[0]);
+                out.writeShort((int) record[1]);
+                out.writeShort((int) record[2]);
+                out.writeInt((int) record[3]);
+                out.writeInt((int) record[4]);
+                out.writeInt((int) record[5]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the number of games added so far.
+     */
+    public int getNoOfGames() {
+        return noOfGames;
+    }
+
+    /**
+     * @return the number of games rejected so far.
+     */
+    public int getNoOfRejected() {
+        return noOfRejected;
+    }
+
+    /**
+     * @return the number of distinct positions so far.
+     */
+    public int getNoOfPositions() {
+        return statistics.size();
+    }
+
+
+    private int encode(Move move) {
+        int columns = size.getColumns();
+        return (move.getSrcX() * columns + move.getSrcY()) | (move.getDestX() * columns + move.getDestY()) << 7;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java game.book.BookBuilder archive book [maxPly] [rows columns]");
+            return;
+        }
+        int maxPly = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLY;
+        BoardSize size = (args.length > 4)
+                ? BoardSize.of(Integer.parseInt(args[3]), Integer.parseInt(args[4])) : BoardSize.STANDARD;
+
+        BookBuilder builder = new BookBuilder(size, maxPly);
+        Reader reader = new FileReader(args[0]);
+        try {
+            builder.addArchive(reader);
+        } finally {
+            reader.close();
+        }
+        builder.write(new File(args[1]));
+        System.out.println(builder.getNoOfGames() + " games, " + builder.getNoOfRejected() + " rejected, "
+                + builder.getNoOfPositions() + " positions");
+    }
+}
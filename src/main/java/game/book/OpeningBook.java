@@ -0,0 +1,203 @@
+package game.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import game.Board;
+import game.BoardSize;
+import game.Move;
+import game.piece.PieceColor;
+
+
+/**
+ * An opening book read from a memory-mapped file written by BookBuilder.
+ *
+ * The file is a 16 byte header followed by fixed-size records sorted by Zobrist key (see Board.getKey())
+ * and, within a key, by descending weight:
+ * <pre>
+ *     header: int magic, short version, byte rows, byte columns, int number of records, int max ply
+ *     record: long key, short move, short weight, int wins, int draws, int losses
+ * </pre>
+ * A move is stored as src | dest << 7 with squares indexed x * columns + y, and wins, draws and losses
+ * are counted for the player making the move.
+ *
+ * Opening a book only maps the file, nothing is parsed. Lookups binary-search the mapped records with
+ * absolute reads and do not allocate, so a book can be probed at every move of a game.
+ */
+public final class OpeningBook {
+    static final int MAGIC = 0x424F4F4B;   // "BOOK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+
+    private final ByteBuffer buffer;
+    private final BoardSize size;
+    private final int records;
+    private final int maxPly;
+
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        this.buffer = buffer;
+        this.size = BoardSize.of(buffer.get(6), buffer.get(7));
+        this.records = buffer.getInt(8);
+        this.maxPly = buffer.getInt(12);
+        if ((long) HEADER_SIZE + (long) records * RECORD_SIZE > buffer.capacity()) {
+            throw new IOException("Truncated opening book");
+        }
+    }
+
+    /**
+     * Map a book file. The file stays mapped until the book is garbage collected.
+     * @param file a file written by BookBuilder
+     * @return the book
+     * @throws IOException if the file cannot be read or is not an opening book.
+     */
+    public static OpeningBook open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * @return the dimensions of the board the book was built for.
+     */
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of records, i.e. distinct (position, move) pairs.
+     */
+    public int size() {
+        return records;
+    }
+
+    /**
+     * @return the number of plies of every game that went into the book.
+     */
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    /**
+     * Find the records of a position.
+     * @param key Zobrist key of the position, see Board.getKey()
+     * @return index of the first record of the position, the one with the highest weight, or -1 if the
+     *         position is not in the book. The following records up to getEnd(index) have the same key.
+     */
+    public int find(long key) {
+        int low = 0;
+        int high = records;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (low < records && getKey(low) == key) ? low : -1;
+    }
+
+    /**
+     * @param first index of a record
+     * @return index after the last record with the same key.
+     */
+    public int getEnd(int first) {
+        long key = getKey(first);
+        int end = first + 1;
+        while (end < records && getKey(end) == key) {
+            end++;
+        }
+        return end;
+    }
+
+    public long getKey(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    /**
+     * @return the move of a record as src | dest << 7.
+     */
+    public int getMoveCode(int index) {
+        return buffer.getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    /**
+     * @return the weight of a record, two points per win and one per draw.
+     */
+    public int getWeight(int index) {
+        return buffer.getShort(offset(index) + 10) & 0xFFFF;
+    }
+
+    public int getWins(int index) {
+        return buffer.getInt(offset(index) + 12);
+    }
+
+    public int getDraws(int index) {
+        return buffer.getInt(offset(index) + 16);
+    }
+
+    public int getLosses(int index) {
+        return buffer.getInt(offset(index) + 20);
+    }
+
+    /**
+     * @return the move of a record as a Move on a Board.
+     */
+    public Move getMove(int index, Board board, PieceColor player) {
+        int code = getMoveCode(index);
+        int columns = size.getColumns();
+        int src = code & 127;
+        int dest = code >> 7;
+        return new Move(player, board, src / columns, src % columns, dest / columns, dest % columns);
+    }
+
+    /**
+     * Choose a book move at random, in proportion to the weights of the moves of the position.
+     * @param board the Board of the game, of the size of the book
+     * @param color 0 for white and 1 for black, the player to move.
+     * @param random source of randomness
+     * @return a possible Move, or null if the position is out of the book.
+     */
+    public Move pick(Board board, int color, Random random) {
+        if (!board.getSize().equals(size)) {
+            return null;
+        }
+        int first = find(board.getKey());
+        if (first < 0) {
+            return null;
+        }
+        int end = getEnd(first);
+        int total = 0;
+        for (int i = first; i < end; i++) {
+            total += getWeight(i);
+        }
+        int index = first;
+        if (total > 0) {
+            int target = random.nextInt(total);
+            while (target >= getWeight(index)) {
+                target -= getWeight(index);
+                index++;
+            }
+        }
+        Move move = getMove(index, board, (color == 0) ? PieceColor.WHITE : PieceColor.BLACK);
+        return move.isMovePossible() ? move : null;
+    }
+
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
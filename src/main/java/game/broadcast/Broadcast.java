@@ -0,0 +1,368 @@
+package game.broadcast;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.Move;
+import game.MoveListener;
+import game.Position;
+
+
+/**
+ * Fans the Moves of a live game out to spectators, in the style of the reactive streams of
+ * java.util.concurrent.Flow: a Subscriber is sent onSubscribe() first, then onNext() for as many
+ * MoveEvents as it requested through its Subscription, and onComplete() once the Broadcast is closed.
+ *
+ * Set as the MoveListener of the GameHistory or GameController of the game, it creates and serializes
+ * one MoveEvent per Move played on the game thread and offers it to the buffer of every subscriber,
+ * which never blocks. Once the Broadcast is closed, the changes it is told of are ignored. Every buffer
+ * is bounded; when it is full the Overflow policy of the subscriber decides what is lost, so a slow
+ * spectator loses events instead of holding up the game or the other spectators. Buffers are drained
+ * by a small pool of threads, one drain per subscriber at a time, so the signals of a subscriber are
+ * never concurrent.
+ *
+ * Thread-safe.
+ */
+public class Broadcast implements MoveListener, Closeable {
+
+    /**
+     * Receives the events of a Broadcast, like Flow.Subscriber.
+     */
+    public interface Subscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(MoveEvent event);
+
+        /**
+         * The subscription was cancelled because onNext() threw, or request() was called with n <= 0.
+         */
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a Broadcast and a Subscriber, like Flow.Subscription.
+     */
+    public interface Subscription {
+        /**
+         * Ask for n more events, Long.MAX_VALUE for all. Safe to call from any thread.
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving events. Safe to call from any thread.
+         */
+        void cancel();
+    }
+
+    /**
+     * What happens to an event offered to a full buffer.
+     */
+    public enum Overflow {
+        /** Drop the oldest buffered event to make room. */
+        DROP_OLDEST,
+        /** Drop the new event. */
+        DROP_NEWEST,
+        /** Drop all buffered events and keep the new one, which carries the whole Position. */
+        CONFLATE
+    }
+
+    private final List<Feed> feeds;
+    private final ExecutorService executor;
+    private long sequence;      // guarded by this
+    private boolean closed;     // guarded by this
+
+
+    /**
+     * @param threads number of threads that deliver the events to the subscribers.
+     */
+    public Broadcast(int threads) {
+        this.feeds = new CopyOnWriteArrayList<Feed>();
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "broadcast-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Add a subscriber. It receives the events published from now on, after it was sent
+     * onSubscribe() and requested them. A subscriber added after close() is sent onSubscribe() and
+     * onComplete() at once, on the calling thread.
+     * @param capacity the largest number of events buffered for the subscriber.
+     * @param overflow what to drop when the buffer is full.
+     */
+    public void subscribe(Subscriber subscriber, int capacity, Overflow overflow) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        Feed feed = new Feed(subscriber, capacity, overflow);
+        synchronized (this) {
+            if (!closed) {
+                feeds.add(feed);
+                feed.schedule();
+                return;
+            }
+        }
+        // The threads may be stopped already, and there is nothing to deliver but the two signals.
+        feed.complete();
+        feed.runNow();
+    }
+
+    /**
+     * @return the number of subscribers that have not cancelled.
+     */
+    public int getNoOfSubscribers() {
+        return feeds.size();
+    }
+
+    @Override
+    public void moveMade(Move move, Position position) {
+        send(move.toString(), position);
+    }
+
+    @Override
+    public void positionChanged(Position position) {
+        send(null, position);
+    }
+
+    /**
+     * Create the next event and offer it to all subscribers.
+     * @param move the Move in coordinate notation, null for a new Position.
+     * @return the event.
+     * @throws IllegalStateException if the Broadcast is closed.
+     */
+    public MoveEvent publish(String move, Position position) {
+        MoveEvent event = send(move, position);
+        if (event == null) {
+            throw new IllegalStateException("Broadcast is closed");
+        }
+        return event;
+    }
+
+    /**
+     * @return the event offered to the subscribers, null if the Broadcast is closed.
+     */
+    private MoveEvent send(String move, Position position) {
+        MoveEvent event;
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            event = new MoveEvent(++sequence, move, position.toFen());
+        }
+        for (Feed feed : feeds) {
+            feed.offer(event);
+        }
+        return event;
+    }
+
+    /**
+     * Complete all subscriptions once their buffers are delivered, as the subscribers request them,
+     * and stop the threads after the last one is completed or cancelled.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Feed feed : feeds) {
+            feed.complete();
+            feed.schedule();
+        }
+        if (feeds.isEmpty()) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Forget a completed or cancelled subscription, stopping the threads if it was the last one of a
+     * closed Broadcast. The drain that calls this still runs to its end.
+     */
+    private synchronized void remove(Feed feed) {
+        feeds.remove(feed);
+        if (closed && feeds.isEmpty()) {
+            executor.shutdown();
+        }
+    }
+
+
+    /**
+     * The buffer and demand of one subscriber, drained by the executor.
+     */
+    private class Feed implements Subscription, Runnable {
+        private final Subscriber subscriber;
+        private final int capacity;
+        private final Overflow overflow;
+        private final AtomicBoolean scheduled;
+
+        /* Guarded by this. */
+        private final ArrayDeque<MoveEvent> buffer;
+        private long demand;
+        private boolean subscribed;
+        private boolean completed;
+        private boolean cancelled;
+        private Throwable error;
+
+        Feed(Subscriber subscriber, int capacity, Overflow overflow) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.overflow = overflow;
+            this.scheduled = new AtomicBoolean();
+            this.buffer = new ArrayDeque<MoveEvent>(Math.min(capacity, 64));
+        }
+
+        void offer(MoveEvent event) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (buffer.size() == capacity) {
+                    if (overflow == Overflow.DROP_NEWEST) {
+                        return;
+                    } else if (overflow == Overflow.DROP_OLDEST) {
+                        buffer.poll();
+                    } else {
+                        buffer.clear();
+                    }
+                }
+                buffer.add(event);
+                if (demand == 0) {
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        synchronized void complete() {
+            completed = true;
+        }
+
+        public void request(long n) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Requested " + n + " events");
+                } else {
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            remove(this);
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Closed and stopped; nothing left to deliver.
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Run the drain on the calling thread, taking the flag first so that a request() from
+         * onSubscribe() does not start a concurrent one.
+         */
+        void runNow() {
+            if (scheduled.compareAndSet(false, true)) {
+                run();
+            }
+        }
+
+        /**
+         * Deliver what is buffered and requested. Checks for new work after releasing the flag, so an
+         * event offered during the last delivery is not left behind.
+         */
+        public void run() {
+            do {
+                drain();
+                scheduled.set(false);
+            } while (hasWork() && scheduled.compareAndSet(false, true));
+        }
+
+        private synchronized boolean hasWork() {
+            return !cancelled && (!subscribed || error != null
+                    || (demand > 0 && !buffer.isEmpty()) || (completed && buffer.isEmpty()));
+        }
+
+        /**
+         * Send the signals that are due, each outside the lock, so offer() never waits for a
+         * subscriber.
+         */
+        private void drain() {
+            boolean first;
+            synchronized (this) {
+                first = !subscribed && !cancelled;
+                subscribed = true;
+            }
+            try {
+                if (first) {
+                    subscriber.onSubscribe(this);
+                }
+                while (true) {
+                    MoveEvent event = null;
+                    Throwable failure = null;
+                    synchronized (this) {
+                        if (cancelled) {
+                            return;
+                        }
+                        if (error != null) {
+                            failure = error;
+                            cancelled = true;
+                            buffer.clear();
+                        } else if (demand > 0 && !buffer.isEmpty()) {
+                            event = buffer.poll();
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        } else if (completed && buffer.isEmpty()) {
+                            cancelled = true;
+                        } else {
+                            return;
+                        }
+                    }
+                    if (event != null) {
+                        subscriber.onNext(event);
+                        continue;
+                    }
+                    remove(this);
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+    }
+}
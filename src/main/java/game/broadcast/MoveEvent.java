@@ -0,0 +1,62 @@
+package game.broadcast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+
+/**
+ * A change of a broadcast game: a Move, or a new Position after an undo or a jump.
+ *
+ * The event is serialized once when it is created, as the UTF-8 line
+ * "sequence move piece-placement\n" with "-" for the Move of a new Position, and the same bytes are
+ * handed to every subscriber. Events of a Broadcast are numbered from 1 without gaps, so a subscriber
+ * whose buffer dropped events can tell from the sequence numbers.
+ */
+public final class MoveEvent {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final long sequence;
+    private final String move;
+    private final String fen;
+    private final byte[] bytes;
+
+
+    /**
+     * @param move the Move in coordinate notation, null for a new Position.
+     * @param fen the piece placement after the change, see Board.fromFen().
+     */
+    public MoveEvent(long sequence, String move, String fen) {
+        this.sequence = sequence;
+        this.move = move;
+        this.fen = fen;
+        this.bytes = (sequence + " " + ((move == null) ? "-" : move) + " " + fen + "\n").getBytes(UTF_8);
+    }
+
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the Move in coordinate notation, null if the event is a new Position.
+     */
+    public String getMove() {
+        return move;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * @return a read-only view of the serialized event, shared by all subscribers.
+     */
+    public ByteBuffer getBytes() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, UTF_8).trim();
+    }
+}
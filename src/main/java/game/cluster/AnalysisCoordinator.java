@@ -0,0 +1,385 @@
+package game.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Distributes batch analysis over worker processes that connect through a local socket.
+ *
+ * A job is a list of AnalysisTasks, split into leases of a few tasks each. Every connected worker is
+ * served by a thread of its own, which sends it one lease at a time and waits for its results. A lease
+ * whose worker fails, disconnects or does not answer within the lease time is put back into the queue
+ * and handed to the next free worker; after MAX_ATTEMPTS failed attempts its job fails. Results are
+ * merged into the order of the tasks, so the outcome does not depend on which worker did what. Jobs
+ * whose leases wait while no worker has been connected for the lease time fail as well.
+ *
+ * Workers are AnalysisWorker processes, started by startWorkers() or by hand on the same machine:
+ * java game.cluster.AnalysisWorker port
+ * A worker that was disconnected, e.g. because its lease timed out, connects again; a process started
+ * by startWorkers() that exited is replaced.
+ *
+ * Protocol, in the big-endian encoding of DataOutputStream: the worker sends int MAGIC once. The
+ * coordinator sends a lease as int lease id, int number of tasks, and per task int index, UTF piece
+ * placement, byte player to move and byte depth. The worker answers with int lease id, int number of
+ * results, and per result int index, UTF best Move ("" for none), int score and long nodes.
+ *
+ * Thread-safe.
+ */
+public class AnalysisCoordinator implements Closeable {
+    static final int MAGIC = ('A' << 24) | ('N' << 16) | ('L' << 8) | 'Z';
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final ServerSocket server;
+    private final int leaseSize;
+    private final long leaseMillis;
+    private final BlockingQueue<Lease> pending;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+    private final ScheduledExecutorService watchdog;
+    private final List<Process> processes;
+    private final AtomicInteger leaseIds;
+    private final AtomicInteger failures;
+    private final AtomicInteger connected;
+    private volatile long idleSince;    // time the last worker disconnected, see checkIdle()
+    private volatile boolean closed;
+
+
+    /**
+     * The results of one list of tasks.
+     */
+    private static class Job {
+        final AnalysisResult[] results;
+        final CompletableFuture<List<AnalysisResult>> future;
+        int remaining;      // guarded by this
+
+        Job(int size) {
+            this.results = new AnalysisResult[size];
+            this.future = new CompletableFuture<List<AnalysisResult>>();
+            this.remaining = size;
+        }
+
+        synchronized void complete(int index, AnalysisResult result) {
+            if (results[index] == null) {
+                results[index] = result;
+                if (--remaining == 0) {
+                    future.complete(Arrays.asList(results));
+                }
+            }
+        }
+    }
+
+    /**
+     * A slice of the tasks of a Job, handed to one worker at a time.
+     */
+    private static class Lease {
+        final int id;
+        final Job job;
+        final int[] indices;
+        final AnalysisTask[] tasks;
+        int attempts;
+
+        Lease(int id, Job job, int[] indices, AnalysisTask[] tasks) {
+            this.id = id;
+            this.job = job;
+            this.indices = indices;
+            this.tasks = tasks;
+        }
+    }
+
+
+    /**
+     * Listen for workers on an ephemeral port of the loopback interface.
+     * @param leaseSize number of tasks per lease
+     * @param leaseMillis time a worker has for a lease before it is handed to another worker.
+     */
+    public AnalysisCoordinator(int leaseSize, long leaseMillis) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.leaseSize = leaseSize;
+        this.leaseMillis = leaseMillis;
+        this.pending = new LinkedBlockingQueue<Lease>();
+        this.processes = new ArrayList<Process>();
+        this.leaseIds = new AtomicInteger();
+        this.failures = new AtomicInteger();
+        this.connected = new AtomicInteger();
+        this.idleSince = System.currentTimeMillis();
+        final AtomicInteger count = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis-connection-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(10, leaseMillis / 4);
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                checkIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        this.acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "analysis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+
+    /**
+     * @return the port workers connect to.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Start worker processes with the class path of this JVM. They are stopped by close().
+     * @param count number of processes
+     */
+    public synchronized void startWorkers(int count) throws IOException {
+        idleSince = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            processes.add(startWorker());
+        }
+    }
+
+    /**
+     * Analyze a list of positions.
+     * @return the results in the order of the tasks. The Future fails with an IOException if a lease
+     *         failed MAX_ATTEMPTS times.
+     */
+    public Future<List<AnalysisResult>> submit(List<AnalysisTask> tasks) {
+        if (closed) {
+            throw new IllegalStateException("Coordinator is closed");
+        }
+        Job job = new Job(tasks.size());
+        if (connected.get() == 0 && pending.isEmpty()) {
+            idleSince = System.currentTimeMillis();
+        }
+        if (tasks.isEmpty()) {
+            job.future.complete(new ArrayList<AnalysisResult>());
+        }
+        for (int from = 0; from < tasks.size(); from += leaseSize) {
+            int to = Math.min(tasks.size(), from + leaseSize);
+            int[] indices = new int[to - from];
+            AnalysisTask[] slice = new AnalysisTask[to - from];
+            for (int i = from; i < to; i++) {
+                indices[i - from] = i;
+                slice[i - from] = tasks.get(i);
+            }
+            pending.add(new Lease(leaseIds.incrementAndGet(), job, indices, slice));
+        }
+        return job.future;
+    }
+
+    /**
+     * @return the number of leases that failed and were handed out again, for monitoring.
+     */
+    public int getNoOfFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Stop accepting workers, disconnect the connected ones and stop the processes started by
+     * startWorkers(). Pending jobs fail.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        connections.shutdownNow();
+        watchdog.shutdownNow();
+        synchronized (this) {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+        List<Lease> left = new ArrayList<Lease>();
+        pending.drainTo(left);
+        for (Lease lease : left) {
+            lease.job.future.completeExceptionally(new IOException("Coordinator closed"));
+        }
+    }
+
+
+    private void accept() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                continue;
+            }
+            try {
+                connections.execute(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (RuntimeException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Hand leases to one worker until it fails or the coordinator is closed.
+     */
+    private void serve(Socket socket) {
+        Lease lease = null;
+        boolean counted = false;
+        try {
+            socket.setSoTimeout((int) leaseMillis);
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            connected.incrementAndGet();
+            counted = true;
+            while (!closed) {
+                lease = pending.take();
+                if (lease.job.future.isDone()) {
+                    lease = null;
+                    continue;
+                }
+                send(out, lease);
+                receive(in, lease);
+                lease = null;
+            }
+        } catch (InterruptedException e) {
+            // Closed.
+        } catch (IOException e) {
+            // The worker failed, timed out or sent something else than results.
+        } finally {
+            if (lease != null) {
+                retry(lease);
+            }
+            closeQuietly(socket);
+            if (counted && connected.decrementAndGet() == 0) {
+                idleSince = System.currentTimeMillis();
+            }
+            replaceWorkers();
+        }
+    }
+
+    private static void send(DataOutputStream out, Lease lease) throws IOException {
+        out.writeInt(lease.id);
+        out.writeInt(lease.tasks.length);
+        for (int i = 0; i < lease.tasks.length; i++) {
+            AnalysisTask task = lease.tasks[i];
+            out.writeInt(lease.indices[i]);
+            out.writeUTF(task.getFen());
+            out.writeByte(task.getColor());
+            out.writeByte(task.getDepth());
+        }
+        out.flush();
+    }
+
+    private static void receive(DataInputStream in, Lease lease) throws IOException {
+        if (in.readInt() != lease.id || in.readInt() != lease.tasks.length) {
+            throw new IOException("Results for another lease");
+        }
+        AnalysisResult[] results = new AnalysisResult[lease.tasks.length];
+        for (int i = 0; i < results.length; i++) {
+            if (in.readInt() != lease.indices[i]) {
+                throw new IOException("Results out of order");
+            }
+            String move = in.readUTF();
+            results[i] = new AnalysisResult(move.isEmpty() ? null : move, in.readInt(), in.readLong());
+        }
+        // Only complete the lease once all of its results have arrived.
+        for (int i = 0; i < results.length; i++) {
+            lease.job.complete(lease.indices[i], results[i]);
+        }
+    }
+
+    private void retry(Lease lease) {
+        failures.incrementAndGet();
+        if (closed) {
+            lease.job.future.completeExceptionally(new IOException("Coordinator closed"));
+        } else if (++lease.attempts >= MAX_ATTEMPTS) {
+            lease.job.future.completeExceptionally(new IOException("Lease failed " + lease.attempts + " times"));
+        } else {
+            pending.add(lease);
+        }
+    }
+
+    /**
+     * Fail the pending leases once no worker has been connected for the lease time.
+     */
+    private void checkIdle() {
+        if (connected.get() > 0 || pending.isEmpty() || System.currentTimeMillis() - idleSince < leaseMillis) {
+            return;
+        }
+        List<Lease> left = new ArrayList<Lease>();
+        pending.drainTo(left);
+        for (Lease lease : left) {
+            lease.job.future.completeExceptionally(
+                    new IOException("No worker connected for " + leaseMillis + " ms"));
+        }
+    }
+
+    /**
+     * Start a new process for every process of startWorkers() that exited.
+     */
+    private synchronized void replaceWorkers() {
+        for (int i = 0; i < processes.size() && !closed; i++) {
+            if (!processes.get(i).isAlive()) {
+                try {
+                    processes.set(i, startWorker());
+                } catch (IOException e) {
+                    System.out.println("Cannot restart analysis worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Process startWorker() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                AnalysisWorker.class.getName(), String.valueOf(getPort()));
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package game.cluster;
+
+
+/**
+ * The outcome of an AnalysisTask.
+ */
+public final class AnalysisResult {
+    private final String bestMove;
+    private final int score;
+    private final long nodes;
+
+
+    public AnalysisResult(String bestMove, int score, long nodes) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.nodes = nodes;
+    }
+
+
+    /**
+     * @return the best Move in coordinate notation, null if the game is over in the position.
+     */
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the score in centipawns for the player to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return bestMove + " " + score;
+    }
+}
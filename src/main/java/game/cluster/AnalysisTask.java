@@ -0,0 +1,56 @@
+package game.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.Board;
+import game.store.GameRecord;
+
+
+/**
+ * A position to analyze: its piece placement (see Board.fromFen), the player to move and the depth of
+ * the search.
+ */
+public final class AnalysisTask {
+    private final String fen;
+    private final int color;
+    private final int depth;
+
+
+    /**
+     * @throws IllegalArgumentException if the piece placement is not valid.
+     */
+    public AnalysisTask(String fen, int color, int depth) {
+        Board.fromFen(fen);
+        this.fen = fen;
+        this.color = color;
+        this.depth = depth;
+    }
+
+    /**
+     * @return a task for every position of a game, from the start to the position after the last Move.
+     */
+    public static List<AnalysisTask> forGame(GameRecord game, int depth) {
+        List<AnalysisTask> tasks = new ArrayList<AnalysisTask>();
+        for (int ply = 0; ply <= game.getNoOfMoves(); ply++) {
+            tasks.add(new AnalysisTask(game.replay(ply).toFen(), ply % 2, depth));
+        }
+        return tasks;
+    }
+
+
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * @return 0 for white and 1 for black, the player to move.
+     */
+    public int getColor() {
+        return color;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
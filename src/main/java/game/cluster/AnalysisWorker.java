@@ -0,0 +1,133 @@
+package game.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import game.Board;
+import game.engine.Evaluation;
+import game.engine.Evaluator;
+import game.engine.Search;
+import game.engine.SearchInfo;
+import game.engine.TranspositionTable;
+
+
+/**
+ * A worker of an AnalysisCoordinator: connects to it, and searches the positions of every lease it is
+ * sent on Boards of its own. After a disconnect, e.g. when the coordinator gave up on a slow lease, it
+ * connects again, until the coordinator is gone.
+ *
+ * Usage: java game.cluster.AnalysisWorker port [hash mb]
+ */
+public class AnalysisWorker {
+    private final Evaluator evaluation;
+    private final TranspositionTable table;
+
+
+    /**
+     * @param hashMegabytes size of the TranspositionTable, cleared before every position.
+     */
+    public AnalysisWorker(Evaluator evaluation, int hashMegabytes) {
+        this.evaluation = evaluation;
+        this.table = new TranspositionTable(hashMegabytes);
+    }
+
+
+    /**
+     * Serve the coordinator on a local port, connecting again after every disconnect.
+     * @return once the coordinator no longer accepts connections.
+     */
+    public void connect(int port) {
+        while (true) {
+            Socket socket;
+            try {
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                run(socket);
+            } catch (IOException e) {
+                // Disconnected by the coordinator, e.g. after the lease time.
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Connect again anyway.
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve leases on a connection until the coordinator closes it.
+     */
+    public void run(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(AnalysisCoordinator.MAGIC);
+        out.flush();
+        while (true) {
+            int lease;
+            try {
+                lease = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            int count = in.readInt();
+            int[] indices = new int[count];
+            String[] fens = new String[count];
+            int[] colors = new int[count];
+            int[] depths = new int[count];
+            for (int i = 0; i < count; i++) {
+                indices[i] = in.readInt();
+                fens[i] = in.readUTF();
+                colors[i] = in.readByte();
+                depths[i] = in.readByte();
+            }
+
+            out.writeInt(lease);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                AnalysisResult result = analyze(new AnalysisTask(fens[i], colors[i], depths[i]));
+                out.writeInt(indices[i]);
+                out.writeUTF((result.getBestMove() == null) ? "" : result.getBestMove());
+                out.writeInt(result.getScore());
+                out.writeLong(result.getNodes());
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Search one position.
+     */
+    public AnalysisResult analyze(AnalysisTask task) {
+        table.clear();
+        Search search = new Search(evaluation);
+        search.setTranspositionTable(table);
+        Board board = Board.fromFen(task.getFen(), task.getColor());
+        SearchInfo info = search.search(board, task.getColor(), task.getDepth(), null);
+        if (info == null || info.getBestMove() == null) {
+            return new AnalysisResult(null, (info == null) ? 0 : info.getScore(), search.getNodes());
+        }
+        return new AnalysisResult(info.getBestMove().toString(), info.getScore(), search.getNodes());
+    }
+
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java game.cluster.AnalysisWorker port [hash mb]");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        int hash = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+        new AnalysisWorker(new Evaluation(), hash).connect(port);
+    }
+}
@@ -0,0 +1,88 @@
+package game.engine;
+
+import game.Board;
+
+
+/**
+ * A fixed suite of positions searched to a fixed depth, to check changes to the move generator, the
+ * Board and the Search.
+ *
+ * The search is deterministic, so the total number of nodes is a signature of their behavior: a change
+ * that should only make things faster must not change it. Nodes per second is the figure of speed.
+ * Every position is searched on its own Board with a cleared TranspositionTable, so the result does not
+ * depend on the order of the suite.
+ *
+ * Usage: java game.engine.Bench [depth] [expected nodes]
+ * With an expected number of nodes, the exit status is 1 if the signature differs. The Maven profile
+ * "bench" runs it with the signature of the current tree: mvn -Pbench verify
+ */
+public class Bench {
+    public static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * Piece placement (see Board.fromFen) and player to move, "w" or "b".
+     */
+    static final String[][] POSITIONS = {
+            // Standard chess
+            {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", "w"},
+            {"r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR", "w"},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R", "b"},
+            {"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R", "w"},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8", "w"},
+            {"6k1/5ppp/8/8/8/8/5PPP/3R2K1", "w"},
+            // Cannons and Alfils on 8x8
+            {"rcbqkbcr/pppppppp/8/8/8/8/PPPPPPPP/RCBQKBCR", "w"},
+            {"r1a1k1ar/ppp2ppp/2n5/3pp3/2C5/2A2c2/PPPP1PPP/R3K1NR", "w"},
+            {"4k3/8/4c3/8/4P3/2A5/8/2C1K3", "w"},
+            {"6k1/1c3ppp/8/1A6/8/8/1C3PPP/6K1", "w"},
+            // Larger boards
+            {"rnbqkabnr/ppppppppp/9/9/9/9/9/9/PPPPPPPPP/RNBQKABNR", "w"},
+            {"rnabqkbanr/pppppppppp/10/10/10/10/10/10/PPPPPPPPPP/RNABQKBANR", "w"},
+            {"r1a1k2c1r/ppp2ppppp/2n7/3pp5/10/4P5/2C7/10/PPPP1PPPPP/R1A1K2ANR", "w"},
+    };
+
+
+    /**
+     * Search every position of the suite and print one line per position and the totals.
+     * @param depth the depth of every search
+     * @return the total number of nodes, the signature.
+     */
+    public static long run(int depth) {
+        TranspositionTable table = new TranspositionTable(16);
+        long nodes = 0;
+        long time = 0;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            int color = POSITIONS[i][1].equals("w") ? 0 : 1;
+            Board board = Board.fromFen(POSITIONS[i][0], color);
+            table.clear();
+            Search search = new Search(new Evaluation());
+            search.setTranspositionTable(table);
+
+            long start = System.nanoTime();
+            SearchInfo info = search.search(board, color, depth, null);
+            long elapsed = System.nanoTime() - start;
+            nodes += search.getNodes();
+            time += elapsed;
+            System.out.println(String.format("%2d %-12s %6d %10d nodes  %s", i + 1, info.getBestMove(),
+                    info.getScore(), search.getNodes(), POSITIONS[i][0]));
+        }
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time:  " + time / 1000000 + " ms");
+        System.out.println("NPS:   " + (long) (nodes * 1e9 / Math.max(1, time)));
+        return nodes;
+    }
+
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        long nodes = run(depth);
+        if (args.length > 1) {
+            long expected = Long.parseLong(args[1]);
+            if (nodes != expected) {
+                System.out.println("Signature changed: expected " + expected + " nodes, searched " + nodes);
+                System.exit(1);
+            }
+            System.out.println("Signature OK");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package game.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import game.Board;
+import game.Move;
+import game.piece.PieceColor;
+
+
+/**
+ * Measures the throughput of the evaluators: the handcrafted Evaluation and a NnueEvaluator.
+ *
+ * Random lines of Moves are played from the positions of Bench and taken back again, evaluating after
+ * every Move as a search does at its leaves. The time of playing the lines without evaluation is
+ * measured as well and subtracted, so the figures include the incremental updates of the NnueEvaluator
+ * but not the cost of the Moves themselves. The evaluation of a position whose accumulator is up to
+ * date is measured on its own, too.
+ *
+ * Usage: java game.engine.EvalBench [network file | -hidden n] [-rounds n]
+ * Without a file, a network of random weights with 256 hidden values is used.
+ */
+public class EvalBench {
+    private static final int PLIES = 16;
+    private static final int LINES = 8;
+
+    private final List<Board> boards;
+    private final List<List<Move>> lines;
+    private int checksum;      // keeps the JIT from dropping the evaluations
+
+
+    public EvalBench(long seed) {
+        this.boards = new ArrayList<Board>();
+        this.lines = new ArrayList<List<Move>>();
+        Random random = new Random(seed);
+        for (String[] position : Bench.POSITIONS) {
+            for (int i = 0; i < LINES; i++) {
+                int color = position[1].equals("w") ? 0 : 1;
+                Board board = Board.fromFen(position[0], color);
+                List<Move> line = new ArrayList<Move>();
+                for (int ply = 0; ply < PLIES; ply++) {
+                    List<Move> moves = board.getAllValidMovesByPlayer(color);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    Move move = moves.get(random.nextInt(moves.size()));
+                    board.makeTrialMove(move);
+                    line.add(move);
+                    color = 1 - color;
+                }
+                for (int ply = 0; ply < line.size(); ply++) {
+                    board.undoTrialMove();
+                }
+                boards.add(board);
+                lines.add(line);
+            }
+        }
+    }
+
+
+    /**
+     * Play all lines a number of times, evaluating after every Move.
+     * @param evaluator the evaluator, null to play the lines only, with no PieceListener on the Boards.
+     * @return nanoseconds taken; the number of evaluations is rounds * getNoOfMoves().
+     */
+    public long playLines(Evaluator evaluator, int rounds) {
+        if (evaluator == null) {
+            for (Board board : boards) {
+                board.setPieceListener(null);
+            }
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < boards.size(); i++) {
+                Board board = boards.get(i);
+                List<Move> line = lines.get(i);
+                for (Move move : line) {
+                    board.makeTrialMove(move);
+                    if (evaluator != null) {
+                        checksum += evaluator.evaluate(board, (move.getPlayerColor() == PieceColor.WHITE) ? 1 : 0);
+                    }
+                }
+                for (int ply = 0; ply < line.size(); ply++) {
+                    board.undoTrialMove();
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Evaluate the starting position of every line a number of times.
+     * @return nanoseconds taken; the number of evaluations is rounds * getNoOfBoards().
+     */
+    public long evaluateBoards(Evaluator evaluator, int rounds) {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (Board board : boards) {
+                checksum += evaluator.evaluate(board, round & 1);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    public int getChecksum() {
+        return checksum;
+    }
+
+    public int getNoOfBoards() {
+        return boards.size();
+    }
+
+    public int getNoOfMoves() {
+        int moves = 0;
+        for (List<Move> line : lines) {
+            moves += line.size();
+        }
+        return moves;
+    }
+
+    /**
+     * Print the evaluations per second of an evaluator.
+     */
+    public void report(String name, Evaluator evaluator, int rounds) {
+        // Warm up, so the JIT has compiled the loops before they are timed.
+        playLines(evaluator, rounds / 4 + 1);
+        evaluateBoards(evaluator, rounds / 4 + 1);
+
+        long moves = (long) rounds * getNoOfMoves();
+        long played = Math.max(1, playLines(evaluator, rounds) - playLines(null, rounds));
+        long evaluated = Math.max(1, evaluateBoards(evaluator, rounds * 10));
+        System.out.println(String.format("%-12s %12d evals/s after Moves %14d evals/s of a position", name,
+                (long) (moves * 1e9 / played), (long) ((long) rounds * 10 * getNoOfBoards() * 1e9 / evaluated)));
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        NnueEvaluator network = null;
+        int hidden = 256;
+        int rounds = 50;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-hidden")) {
+                hidden = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else {
+                network = NnueEvaluator.load(new File(args[i]));
+            }
+        }
+        if (network == null) {
+            network = NnueEvaluator.random(hidden, 1);
+        }
+
+        EvalBench bench = new EvalBench(1);
+        System.out.println(bench.getNoOfBoards() + " lines, " + bench.getNoOfMoves() + " Moves per round, "
+                + rounds + " rounds");
+        bench.report("Handcrafted", new Evaluation(), rounds);
+        bench.report("NNUE " + network.getHidden(), network, rounds);
+        System.out.println("Checksum: " + bench.getChecksum());
+    }
+}
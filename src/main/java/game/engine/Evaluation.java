@@ -0,0 +1,207 @@
+package game.engine;
+
+import game.Board;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+
+/**
+ * Handcrafted evaluation: material plus piece-square bonuses.
+ *
+ * Piece-square tables are written from the point of view of white (x = 7 is the white back rank) and
+ * mirrored vertically for black. Scores are in centipawns.
+ *
+ * The evaluation is linear in its weights: the material of every PieceType followed by a piece-square
+ * table of 64 squares per PieceType, see getWeightIndex(). An Evaluation can be created with tuned
+ * weights, e.g. from game.tuning.Tuner; the default weights are the tables below.
+ */
+public class Evaluation implements Evaluator {
+    public static final int NO_OF_WEIGHTS = 8 + 8 * 64;
+
+    /** Material value indexed by PieceType.ordinal(). */
+    static final int[] MATERIAL = {
+        100,    // PAWN
+        500,    // ROOK
+        320,    // KNIGHT
+        330,    // BISHOP
+        900,    // QUEEN
+        0,      // KING
+        350,    // CANNON
+        150     // ALFIL
+    };
+
+    private static final int[] PAWN_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+
+    private static final int[] KNIGHT_TABLE = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50
+    };
+
+    private static final int[] CENTER_TABLE = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20
+    };
+
+    private static final int[] ROOK_TABLE = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+
+    private static final int[] KING_TABLE = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20
+    };
+
+    /**
+     * Piece-square tables indexed by PieceType.ordinal(), then by square x*8+y for white. Larger boards
+     * are scaled onto the 8x8 tables.
+     */
+    static final int[][] PIECE_SQUARE = {
+        PAWN_TABLE,
+        ROOK_TABLE,
+        KNIGHT_TABLE,
+        CENTER_TABLE,   // BISHOP
+        CENTER_TABLE,   // QUEEN
+        KING_TABLE,
+        ROOK_TABLE,     // CANNON
+        CENTER_TABLE    // ALFIL
+    };
+
+    private final int[] material;
+    private final int[][] pieceSquare;
+
+
+    /**
+     * Create an Evaluation with the default weights.
+     */
+    public Evaluation() {
+        this(getDefaultWeights());
+    }
+
+    /**
+     * @param weights NO_OF_WEIGHTS weights in the order of getWeightIndex().
+     */
+    public Evaluation(int[] weights) {
+        if (weights.length != NO_OF_WEIGHTS) {
+            throw new IllegalArgumentException("Expected " + NO_OF_WEIGHTS + " weights, got " + weights.length);
+        }
+        this.material = new int[8];
+        this.pieceSquare = new int[8][64];
+        for (int type = 0; type < 8; type++) {
+            material[type] = weights[type];
+            System.arraycopy(weights, 8 + type * 64, pieceSquare[type], 0, 64);
+        }
+    }
+
+
+    /**
+     * Evaluate a Board from the point of view of a player.
+     * @param board the Board to evaluate
+     * @param color 0 for white and 1 for black
+     * @return score in centipawns, positive if the player is better.
+     */
+    public int evaluate(Board board, int color) {
+        int rows = board.getSize().getRows();
+        int columns = board.getSize().getColumns();
+        int score = 0;
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
+                ChessPiece piece = board.getPiece(x, y);
+                if (piece == null) {
+                    continue;
+                }
+                int type = piece.getType().ordinal();
+                if (piece.getColor() == PieceColor.WHITE) {
+                    score += material[type] + pieceSquare[type][getTableSquare(rows, columns, x, y, 0)];
+                } else {
+                    score -= material[type] + pieceSquare[type][getTableSquare(rows, columns, x, y, 1)];
+                }
+            }
+        }
+        return (color == 0) ? score : -score;
+    }
+
+    /**
+     * @return a copy of the weights of this Evaluation in the order of getWeightIndex().
+     */
+    public int[] getWeights() {
+        int[] weights = new int[NO_OF_WEIGHTS];
+        for (int type = 0; type < 8; type++) {
+            weights[type] = material[type];
+            System.arraycopy(pieceSquare[type], 0, weights, 8 + type * 64, 64);
+        }
+        return weights;
+    }
+
+    /**
+     * @return the weights of the tables of this class.
+     */
+    public static int[] getDefaultWeights() {
+        int[] weights = new int[NO_OF_WEIGHTS];
+        for (int type = 0; type < 8; type++) {
+            weights[type] = MATERIAL[type];
+            System.arraycopy(PIECE_SQUARE[type], 0, weights, 8 + type * 64, 64);
+        }
+        return weights;
+    }
+
+    /**
+     * @param type the PieceType
+     * @param square square of the piece-square table, see getTableSquare(), or -1 for the material.
+     * @return the index of the weight in getWeights().
+     */
+    public static int getWeightIndex(PieceType type, int square) {
+        return (square < 0) ? type.ordinal() : 8 + type.ordinal() * 64 + square;
+    }
+
+    /**
+     * Map a square of a Board of any size onto the 8x8 piece-square tables, mirrored for black.
+     * @param color 0 for white and 1 for black, the color of the piece.
+     * @return the square of the table, 0 to 63.
+     */
+    public static int getTableSquare(int rows, int columns, int x, int y, int color) {
+        int row = (color == 0) ? x : rows - 1 - x;
+        return (row * 8 / rows) * 8 + y * 8 / columns;
+    }
+
+    /**
+     * @return the default material value of a piece type in centipawns.
+     */
+    public static int getMaterial(PieceType type) {
+        return MATERIAL[type.ordinal()];
+    }
+}
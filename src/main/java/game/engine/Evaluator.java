@@ -0,0 +1,19 @@
+package game.engine;
+
+import game.Board;
+
+
+/**
+ * Static evaluation of a position for the Search: the handcrafted Evaluation or a NnueEvaluator.
+ * Implementations are shared by the Searches of several threads and must be thread-safe.
+ */
+public interface Evaluator {
+
+    /**
+     * Evaluate a Board from the point of view of a player.
+     * @param board the Board to evaluate
+     * @param color 0 for white and 1 for black
+     * @return score in centipawns, positive if the player is better.
+     */
+    int evaluate(Board board, int color);
+}
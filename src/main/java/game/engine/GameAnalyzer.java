@@ -0,0 +1,96 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.Board;
+import game.store.GameRecord;
+
+
+/**
+ * Analyzes every position of a finished game in parallel, for a GameReview that flags blunders.
+ *
+ * Every position is a task for a pool of worker threads. A task rebuilds its position by replaying the
+ * Moves of the game on a Board of its own and searches it with a Search of its own, so the only state
+ * the workers share is the TranspositionTable. Results found for one position, e.g. the position after
+ * the next Move, are reused by the others through it. With a worker per position, a game takes about
+ * as long as its slowest position.
+ */
+public class GameAnalyzer {
+    private final Evaluator evaluation;
+    private final int depth;
+    private final TranspositionTable table;
+    private final ExecutorService workers;
+
+
+    /**
+     * @param evaluation evaluation used by all workers, must be thread-safe.
+     * @param depth depth of the search of every position.
+     * @param threads number of worker threads.
+     * @param table table shared by the workers, e.g. new TranspositionTable(64).
+     */
+    public GameAnalyzer(Evaluator evaluation, int depth, int threads, TranspositionTable table) {
+        this.evaluation = evaluation;
+        this.depth = depth;
+        this.table = table;
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "game-analyzer-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Analyze all positions of a game, from the start to the position after the last Move.
+     * @throws IllegalStateException if a Move of the game is not valid.
+     */
+    public GameReview analyze(final GameRecord game) throws InterruptedException {
+        List<Future<SearchInfo>> tasks = new ArrayList<Future<SearchInfo>>();
+        for (int ply = game.getNoOfMoves(); ply >= 0; ply--) {
+            final int plies = ply;
+            tasks.add(workers.submit(new Callable<SearchInfo>() {
+                public SearchInfo call() {
+                    Board board = game.replay(plies);
+                    Search search = new Search(evaluation);
+                    search.setTranspositionTable(table);
+                    return search.search(board, plies % 2, depth, null);
+                }
+            }));
+        }
+
+        // Submitted from the last position, which the positions before it can use, back to the first.
+        SearchInfo[] positions = new SearchInfo[tasks.size()];
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                positions[positions.length - 1 - i] = tasks.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<SearchInfo> task : tasks) {
+                task.cancel(true);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return new GameReview(game, positions);
+    }
+
+    /**
+     * Stop the worker threads once the running analyses are done.
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
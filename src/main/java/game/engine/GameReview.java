@@ -0,0 +1,71 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.Move;
+import game.store.GameRecord;
+
+
+/**
+ * The analysis of every position of a game by a GameAnalyzer. Position ply is the one after ply Moves,
+ * with white to move if ply is even; the Move of ply leads from position ply to position ply + 1.
+ */
+public final class GameReview {
+    public static final int BLUNDER = 200;
+
+    private final GameRecord game;
+    private final SearchInfo[] positions;
+
+
+    GameReview(GameRecord game, SearchInfo[] positions) {
+        this.game = game;
+        this.positions = positions;
+    }
+
+    public GameRecord getGame() {
+        return game;
+    }
+
+    /**
+     * @return the search result of a position, from the point of view of the player to move.
+     */
+    public SearchInfo getPosition(int ply) {
+        return positions[ply];
+    }
+
+    /**
+     * @return the score of a position in centipawns from the point of view of white.
+     */
+    public int getScore(int ply) {
+        return (ply % 2 == 0) ? positions[ply].getScore() : -positions[ply].getScore();
+    }
+
+    /**
+     * @return what the Move of a ply cost the player who made it in centipawns, 0 if it was the best Move.
+     */
+    public int getLoss(int ply) {
+        return Math.max(0, positions[ply].getScore() + positions[ply + 1].getScore());
+    }
+
+    /**
+     * @return the best Move in the position before a ply, null if there is none.
+     */
+    public Move getBestMove(int ply) {
+        return positions[ply].getBestMove();
+    }
+
+    /**
+     * @param threshold the smallest loss in centipawns that counts, e.g. BLUNDER.
+     * @return the plies whose Move lost at least the threshold, in order.
+     */
+    public List<Integer> getBlunders(int threshold) {
+        List<Integer> blunders = new ArrayList<Integer>();
+        for (int ply = 0; ply < game.getNoOfMoves(); ply++) {
+            if (getLoss(ply) >= threshold) {
+                blunders.add(ply);
+            }
+        }
+        return blunders;
+    }
+}
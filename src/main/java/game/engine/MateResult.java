@@ -0,0 +1,67 @@
+package game.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+import game.Move;
+
+
+/**
+ * Result of a MateSolver: a forced mate with its line, a proof that there is none within the limit, or
+ * unknown if the solver ran out of nodes.
+ */
+public final class MateResult {
+
+    public enum Status {
+        /** The player to move mates in getMateIn() moves, see getLine(). */
+        MATE,
+        /** The player to move cannot force mate within the given number of moves. */
+        NO_MATE,
+        /** The node limit was reached first. */
+        UNKNOWN
+    }
+
+    private final Status status;
+    private final int mateIn;
+    private final List<Move> line;
+    private final long nodes;
+
+
+    MateResult(Status status, int mateIn, List<Move> line, long nodes) {
+        this.status = status;
+        this.mateIn = mateIn;
+        this.line = Collections.unmodifiableList(line);
+        this.nodes = nodes;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the smallest number of moves of the player to move that forces mate, 0 if there is no mate.
+     */
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    /**
+     * @return a mating line, alternating Moves of both players and ending in checkmate; empty if there is
+     *         no mate. The defending Moves are one defense each, not necessarily the longest.
+     */
+    public List<Move> getLine() {
+        return line;
+    }
+
+    /**
+     * @return number of nodes expanded by the solver.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return (status == Status.MATE) ? "mate in " + mateIn + " " + line : status.toString();
+    }
+}
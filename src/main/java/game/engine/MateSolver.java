@@ -0,0 +1,212 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.Board;
+import game.Move;
+
+
+/**
+ * Proves or disproves forced mates by depth-first proof-number search (df-pn).
+ *
+ * Every node has a proof number, the least number of leaves still to prove for a mate, and a disproof
+ * number, the least number to refute it. The search always expands the most proving node: at the
+ * attacker's nodes the child with the smallest proof number, at the defender's nodes the child with the
+ * smallest disproof number. It stays below a child until the child's numbers exceed thresholds derived
+ * from its siblings, so it runs depth first with memory for the table only. Unlike alpha-beta, it needs
+ * no evaluation, and narrow forcing lines with few defenses are followed far before wide quiet ones.
+ *
+ * Mate in n moves is searched with 2n - 1 plies left at the root, and a node is identified by its
+ * position key and the plies left, so a proof always respects the limit. The limit is raised from one
+ * move to the maximum, so the first mate found is the shortest. At the attacker's last move only
+ * checking Moves are tried. All Moves come from the move generator, so screens of Cannons, jumps of
+ * Alfils and other pieces are handled like any other Move.
+ *
+ * The solver makes and undoes Moves on the Board it is given, so it must run on a private Board.
+ */
+public class MateSolver {
+    private static final int INFINITY = Integer.MAX_VALUE / 4;
+    private static final long DEPTH_MIX = 0x9E3779B97F4A7C15L;
+
+    private final long maxNodes;
+    private final Map<Long, int[]> table;
+    private long nodes;
+    private volatile boolean stopped;
+
+
+    /**
+     * @param maxNodes the number of nodes after which a search gives up with MateResult.Status.UNKNOWN.
+     */
+    public MateSolver(long maxNodes) {
+        this.maxNodes = maxNodes;
+        this.table = new HashMap<Long, int[]>();
+    }
+
+
+    /**
+     * @param board private Board, restored when the solver returns.
+     * @param color 0 for white and 1 for black, the player to move and the one trying to mate.
+     * @param maxMoves the largest number of Moves of the player to move to look for a mate in.
+     * @return the shortest mate, a proof that there is none within maxMoves, or unknown.
+     */
+    public MateResult solve(Board board, int color, int maxMoves) {
+        table.clear();
+        nodes = 0;
+        try {
+            return deepen(board, color, maxMoves);
+        } finally {
+            // A stop() ends this solve() only.
+            stopped = false;
+        }
+    }
+
+    /**
+     * Look for a mate in 1, 2, ... maxMoves Moves.
+     */
+    private MateResult deepen(Board board, int color, int maxMoves) {
+        for (int n = 1; n <= maxMoves; n++) {
+            int remaining = 2 * n - 1;
+            int[] root = search(board, color, remaining, INFINITY, INFINITY);
+            if (root[0] == 0) {
+                List<Move> line = new ArrayList<Move>();
+                collectLine(board, color, remaining, line);
+                return new MateResult(MateResult.Status.MATE, n, line, nodes);
+            }
+            if (root[1] != 0) {
+                return new MateResult(MateResult.Status.UNKNOWN, 0, new ArrayList<Move>(), nodes);
+            }
+        }
+        return new MateResult(MateResult.Status.NO_MATE, 0, new ArrayList<Move>(), nodes);
+    }
+
+    /**
+     * Ask a running solver to stop as soon as possible, with an unknown result, or the next one to
+     * return at once if none is running. Safe to call from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+
+    /**
+     * Expand a node until its proof or disproof number reaches its threshold.
+     * @param remaining plies left: odd at the attacker's nodes, even at the defender's.
+     * @return {proof number, disproof number} of the node.
+     */
+    private int[] search(Board board, int color, int remaining, int proofThreshold, int disproofThreshold) {
+        nodes++;
+        boolean attacker = remaining % 2 == 1;
+        long key = board.getKey();
+        if (!attacker && remaining == 0) {
+            // Mated or not: with Moves left the defender escaped, without them it depends on the check.
+            boolean mated = board.isChecked(color) && board.getAllValidMovesByPlayer(color).isEmpty();
+            return store(key, remaining, mated ? 0 : INFINITY, mated ? INFINITY : 0);
+        }
+
+        List<Move> moves = board.getAllValidMovesByPlayer(color);
+        if (moves.isEmpty()) {
+            boolean mated = !attacker && board.isChecked(color);
+            return store(key, remaining, mated ? 0 : INFINITY, mated ? INFINITY : 0);
+        }
+
+        int opponent = (color + 1) % 2;
+        List<Move> children = new ArrayList<Move>(moves.size());
+        List<Long> keys = new ArrayList<Long>(moves.size());
+        for (Move move : moves) {
+            board.makeTrialMove(move);
+            if (remaining > 1 || board.isChecked(opponent)) {
+                children.add(move);
+                keys.add(board.getKey());
+            }
+            board.undoTrialMove();
+        }
+        if (children.isEmpty()) {
+            return store(key, remaining, INFINITY, 0);
+        }
+
+        while (true) {
+            int proof = attacker ? INFINITY : 0;
+            int disproof = attacker ? 0 : INFINITY;
+            int best = -1;
+            int bestNumber = INFINITY;
+            int secondNumber = INFINITY;
+            int[] bestChild = null;
+            for (int i = 0; i < children.size(); i++) {
+                int[] child = lookup(keys.get(i), remaining - 1);
+                // The number to minimize: proof at the attacker's nodes, disproof at the defender's.
+                int number = attacker ? child[0] : child[1];
+                if (attacker) {
+                    proof = Math.min(proof, child[0]);
+                    disproof = Math.min(INFINITY, disproof + child[1]);
+                } else {
+                    proof = Math.min(INFINITY, proof + child[0]);
+                    disproof = Math.min(disproof, child[1]);
+                }
+                if (number < bestNumber) {
+                    secondNumber = bestNumber;
+                    bestNumber = number;
+                    best = i;
+                    bestChild = child;
+                } else if (number < secondNumber) {
+                    secondNumber = number;
+                }
+            }
+
+            if (proof >= proofThreshold || disproof >= disproofThreshold || nodes >= maxNodes || stopped) {
+                return store(key, remaining, proof, disproof);
+            }
+
+            int childProof;
+            int childDisproof;
+            if (attacker) {
+                childProof = Math.min(proofThreshold, secondNumber + 1);
+                childDisproof = Math.min(INFINITY, disproofThreshold - disproof + bestChild[1]);
+            } else {
+                childProof = Math.min(INFINITY, proofThreshold - proof + bestChild[0]);
+                childDisproof = Math.min(disproofThreshold, secondNumber + 1);
+            }
+            board.makeTrialMove(children.get(best));
+            search(board, opponent, remaining - 1, childProof, childDisproof);
+            board.undoTrialMove();
+        }
+    }
+
+    /**
+     * Follow a proof from the table: at the attacker's nodes a proven Move, at the defender's the first
+     * defense.
+     */
+    private void collectLine(Board board, int color, int remaining, List<Move> line) {
+        if (remaining == 0) {
+            return;
+        }
+        int opponent = (color + 1) % 2;
+        for (Move move : board.getAllValidMovesByPlayer(color)) {
+            board.makeTrialMove(move);
+            int[] child = table.get(board.getKey() ^ (remaining - 1) * DEPTH_MIX);
+            if (child != null && child[0] == 0) {
+                line.add(move);
+                collectLine(board, opponent, remaining - 1, line);
+                board.undoTrialMove();
+                return;
+            }
+            board.undoTrialMove();
+        }
+    }
+
+    /**
+     * @return the numbers of a node, 1 and 1 if it was not expanded yet.
+     */
+    private int[] lookup(long key, int remaining) {
+        int[] numbers = table.get(key ^ remaining * DEPTH_MIX);
+        return (numbers == null) ? new int[] {1, 1} : numbers;
+    }
+
+    private int[] store(long key, int remaining, int proof, int disproof) {
+        int[] numbers = {proof, disproof};
+        table.put(key ^ remaining * DEPTH_MIX, numbers);
+        return numbers;
+    }
+}
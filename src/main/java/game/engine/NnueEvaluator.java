@@ -0,0 +1,297 @@
+package game.engine;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import game.Board;
+import game.BoardSize;
+import game.PieceListener;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+
+
+/**
+ * An efficiently updatable neural network (NNUE) evaluation, an alternative to the handcrafted
+ * Evaluation.
+ *
+ * The inputs are one feature per color, PieceType and square, seen from the perspective of each
+ * player: the player's own pieces first and the board mirrored vertically for black, so both players
+ * share the weights. The first layer sums the weights of the features present into an accumulator of
+ * "hidden" 16-bit values per perspective. Since a Move changes two to three features only, the
+ * accumulators are not recomputed but updated by the Board as pieces are taken and put, through a
+ * PieceListener attached the first time a Board is evaluated. A Board with a PieceListener of its own
+ * is refused rather than detached from it. The output layer clips the accumulator of
+ * the player to move and that of the opponent to 0..QA and takes their dot product with 8-bit weights.
+ *
+ * The loops over the hidden values have no dependencies between iterations, so the JIT compiles them to
+ * SIMD instructions where the CPU has them, and to plain loops elsewhere.
+ *
+ * Networks are read from a file in little-endian order: int MAGIC, int VERSION, int
+ * hidden, int output bias, then short[hidden] feature biases, short[INPUTS * hidden] feature weights by
+ * feature, and short[2 * hidden] output weights, those of the player to move first. Scores are
+ * (output + bias) * SCALE / (QA * QB) centipawns.
+ *
+ * Thread-safe: the network is immutable, and the accumulators belong to the Boards.
+ */
+public class NnueEvaluator implements Evaluator {
+    public static final int MAGIC = ('N' << 24) | ('N' << 16) | ('U' << 8) | 'E';
+    public static final int VERSION = 1;
+    public static final int INPUTS = 2 * 8 * BoardSize.MAX_SQUARES;
+    public static final int QA = 255;
+    public static final int QB = 64;
+    public static final int SCALE = 400;
+    private static final int HEADER = 16;
+    private static final int READ_BUFFER = 64 << 10;
+
+    private final int hidden;
+    private final short[] featureBias;
+    private final short[] featureWeights;
+    private final short[] outputWeights;
+    private final int outputBias;
+
+
+    /**
+     * @param hidden number of hidden values per perspective
+     * @param featureBias hidden values
+     * @param featureWeights INPUTS * hidden values, by feature
+     * @param outputWeights 2 * hidden values from -128 to 127
+     * @param outputBias bias of the output
+     */
+    public NnueEvaluator(int hidden, short[] featureBias, short[] featureWeights, short[] outputWeights, int outputBias) {
+        if (featureBias.length != hidden || featureWeights.length != INPUTS * hidden || outputWeights.length != 2 * hidden) {
+            throw new IllegalArgumentException("Weights do not match " + hidden + " hidden values");
+        }
+        for (short weight : outputWeights) {
+            if (weight < -128 || weight > 127) {
+                throw new IllegalArgumentException("Output weight out of range: " + weight);
+            }
+        }
+        this.hidden = hidden;
+        this.featureBias = featureBias;
+        this.featureWeights = featureWeights;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Read a network from a file, see the class comment. The weights are read straight into the arrays
+     * of the network through a small buffer.
+     * @throws IOException if the file is not a network.
+     */
+    public static NnueEvaluator load(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() < HEADER) {
+                throw new IOException("Not a network: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER);
+            readFully(channel, buffer);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a network: " + file);
+            }
+            int hidden = buffer.getInt();
+            int outputBias = buffer.getInt();
+            if (hidden <= 0 || channel.size() != HEADER + 2L * hidden * (INPUTS + 3)) {
+                throw new IOException("Network " + file + " has " + channel.size() + " bytes for " + hidden + " hidden values");
+            }
+            short[] featureBias = new short[hidden];
+            short[] featureWeights = new short[INPUTS * hidden];
+            short[] outputWeights = new short[2 * hidden];
+            readShorts(channel, buffer, featureBias);
+            readShorts(channel, buffer, featureWeights);
+            readShorts(channel, buffer, outputWeights);
+            try {
+                return new NnueEvaluator(hidden, featureBias, featureWeights, outputWeights, outputBias);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage() + " in " + file);
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Fill an array with the next shorts of a channel, a buffer at a time.
+     */
+    private static void readShorts(FileChannel channel, ByteBuffer buffer, short[] values) throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(), 2 * (values.length - done)));
+            readFully(channel, buffer);
+            ShortBuffer shorts = buffer.asShortBuffer();
+            int count = shorts.remaining();
+            shorts.get(values, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Read up to the limit of a buffer and flip it.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Network ends early");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Write the network in the format of load().
+     */
+    public void save(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + 2 * hidden * (INPUTS + 3)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hidden).putInt(outputBias);
+        buffer.asShortBuffer().put(featureBias).put(featureWeights).put(outputWeights);
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.setLength(0);
+            output.write(buffer.array());
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Create a network of small random weights, e.g. to measure the speed of the evaluation.
+     */
+    public static NnueEvaluator random(int hidden, long seed) {
+        Random random = new Random(seed);
+        short[] featureBias = new short[hidden];
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] outputWeights = new short[2 * hidden];
+        for (int i = 0; i < hidden; i++) {
+            featureBias[i] = (short) random.nextInt(64);
+        }
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(33) - 16);
+        }
+        for (int i = 0; i < hidden; i++) {
+            outputWeights[i] = (short) (random.nextInt(33) - 16);
+            outputWeights[hidden + i] = (short) -outputWeights[i];
+        }
+        return new NnueEvaluator(hidden, featureBias, featureWeights, outputWeights, 0);
+    }
+
+
+    public int getHidden() {
+        return hidden;
+    }
+
+    /**
+     * @throws IllegalStateException if the Board has a PieceListener other than an accumulator, which
+     * would no longer be told of its changes if it were replaced.
+     */
+    @Override
+    public int evaluate(Board board, int color) {
+        PieceListener listener = board.getPieceListener();
+        Accumulator accumulator;
+        if (listener instanceof Accumulator && ((Accumulator) listener).network == this) {
+            accumulator = (Accumulator) listener;
+        } else if (listener == null || listener instanceof Accumulator) {
+            accumulator = new Accumulator(this);
+            accumulator.piecesReset(board);
+            board.setPieceListener(accumulator);
+        } else {
+            throw new IllegalStateException("Board already has a PieceListener: " + listener);
+        }
+
+        short[] us = accumulator.values[color];
+        short[] them = accumulator.values[1 - color];
+        int sum = 0;
+        for (int i = 0; i < hidden; i++) {
+            sum += Math.min(QA, Math.max(0, us[i])) * outputWeights[i];
+        }
+        for (int i = 0; i < hidden; i++) {
+            sum += Math.min(QA, Math.max(0, them[i])) * outputWeights[hidden + i];
+        }
+        return (int) ((long) (sum + outputBias) * SCALE / (QA * QB));
+    }
+
+    /**
+     * Evaluate a Board from scratch, without an accumulator, e.g. to check the incremental updates.
+     */
+    int evaluateFully(Board board, int color) {
+        return evaluate(new Board(board.snapshot()), color);
+    }
+
+    /**
+     * @param perspective 0 for white and 1 for black, the player whose accumulator it is.
+     * @param square x * columns + y
+     * @return the index of the feature of a piece.
+     */
+    static int getFeature(int perspective, ChessPiece piece, int square, BoardSize size) {
+        int color = (piece.getColor() == PieceColor.WHITE) ? 0 : 1;
+        if (perspective == 1) {
+            int columns = size.getColumns();
+            square = (size.getRows() - 1 - square / columns) * columns + square % columns;
+        }
+        return ((color ^ perspective) * 8 + piece.getType().ordinal()) * BoardSize.MAX_SQUARES + square;
+    }
+
+
+    /**
+     * The hidden values of both perspectives of a Board, kept up to date as its pieces change.
+     */
+    private static final class Accumulator implements PieceListener {
+        final NnueEvaluator network;
+        final short[][] values;
+        private BoardSize size;
+
+        Accumulator(NnueEvaluator network) {
+            this.network = network;
+            this.values = new short[2][network.hidden];
+        }
+
+        public void pieceAdded(int square, ChessPiece piece) {
+            update(square, piece, 1);
+        }
+
+        public void pieceRemoved(int square, ChessPiece piece) {
+            update(square, piece, -1);
+        }
+
+        public void piecesReset(Board board) {
+            size = board.getSize();
+            for (int perspective = 0; perspective < 2; perspective++) {
+                System.arraycopy(network.featureBias, 0, values[perspective], 0, network.hidden);
+            }
+            int columns = size.getColumns();
+            for (int square = 0; square < size.getSquares(); square++) {
+                ChessPiece piece = board.getPiece(square / columns, square % columns);
+                if (piece != null) {
+                    update(square, piece, 1);
+                }
+            }
+        }
+
+        private void update(int square, ChessPiece piece, int sign) {
+            int hidden = network.hidden;
+            short[] weights = network.featureWeights;
+            for (int perspective = 0; perspective < 2; perspective++) {
+                short[] accumulator = values[perspective];
+                int offset = getFeature(perspective, piece, square, size) * hidden;
+                if (sign > 0) {
+                    for (int i = 0; i < hidden; i++) {
+                        accumulator[i] += weights[offset + i];
+                    }
+                } else {
+                    for (int i = 0; i < hidden; i++) {
+                        accumulator[i] -= weights[offset + i];
+                    }
+                }
+            }
+        }
+    }
+}
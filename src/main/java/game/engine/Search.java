@@ -0,0 +1,323 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import game.Board;
+import game.Move;
+import game.Tablebase;
+import game.Tablebases;
+import game.piece.ChessPiece;
+
+
+/**
+ * Iterative deepening alpha-beta search (negamax) with a capture-only quiescence search.
+ * A position that repeats one reached earlier in the search or the game, or that reaches the limit
+ * of the fifty-move rule, is scored as a draw. Positions found in a tablebase (see setTablebases) are
+ * scored exactly, by their distance to mate. With a TranspositionTable (see setTranspositionTable),
+ * results are kept by position key and reused, also between Searches that share the table.
+ *
+ * The search makes and undoes Moves on the Board it is given, so it must run on a private Board, e.g.
+ * new Board(position). Every completed depth is reported to a Listener, and stop() may be called from
+ * any thread to end the search early. A search also stops by itself after a number of nodes, see
+ * setNodeLimit().
+ */
+public class Search {
+
+    public static final int MATE = 100000;
+    public static final int MAX_PLY = 64;
+    private static final int INFINITY = MATE + 1;
+
+    /**
+     * Receives the result of every completed iteration, on the searching thread.
+     */
+    public interface Listener {
+        void onIteration(SearchInfo info);
+    }
+
+    private final Evaluator evaluation;
+    private Tablebases tablebases;
+    private TranspositionTable table;
+    private volatile boolean stopped;
+    private long nodes;
+    private long nodeLimit = Long.MAX_VALUE;
+
+    private final Move[][] pvTable;
+    private final int[] pvLength;
+    private List<Move> previousPv;
+
+
+    public Search(Evaluator evaluation) {
+        this.evaluation = evaluation;
+        this.pvTable = new Move[MAX_PLY + 1][MAX_PLY + 1];
+        this.pvLength = new int[MAX_PLY + 1];
+        this.previousPv = Collections.emptyList();
+    }
+
+
+    /**
+     * Search a position by iterative deepening.
+     * @param board private Board to search on, restored when the search returns.
+     * @param color 0 for white and 1 for black, the player to move.
+     * @param maxDepth last depth to search.
+     * @param listener notified after every completed depth, may be null.
+     * @return the result of the deepest completed iteration, null if stopped before depth 1 finished.
+     */
+    public SearchInfo search(Board board, int color, int maxDepth, Listener listener) {
+        long start = System.currentTimeMillis();
+        SearchInfo best = null;
+        nodes = 0;
+        previousPv = Collections.emptyList();
+
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = negamax(board, color, depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+
+            List<Move> pv = new ArrayList<Move>();
+            for (int i = 0; i < pvLength[0]; i++) {
+                pv.add(pvTable[0][i]);
+            }
+            previousPv = pv;
+            best = new SearchInfo(depth, score, pv, nodes, System.currentTimeMillis() - start);
+            if (listener != null) {
+                listener.onIteration(best);
+            }
+            if (best.isMate() || pv.isEmpty()) {
+                break;
+            }
+        }
+        // A stop() or the node limit ends this search only.
+        stopped = false;
+        return best;
+    }
+
+    /**
+     * Probe tablebases below the root of the search.
+     * @param tablebases the tablebases, null for none.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Keep and reuse search results in a table, which may be shared with Searches on other threads.
+     * @param table the table, null for none.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Stop searches once they have visited a number of nodes, like stop(). The result is that of the
+     * deepest iteration completed before.
+     * @param nodeLimit the number of nodes, Long.MAX_VALUE for no limit.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Ask a running search to stop as soon as possible, or the next one to return at once if none is
+     * running. Safe to call from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return number of nodes visited by the last (or current) search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+
+    private int negamax(Board board, int color, int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (stopped) {
+            return 0;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiesce(board, color, ply, alpha, beta);
+        }
+        if (++nodes >= nodeLimit) {
+            stopped = true;
+        }
+        if (ply > 0 && (board.isRepetition(2) || board.getHalfMoveClock() >= 100)) {
+            return 0;
+        }
+        if (ply > 0 && tablebases != null) {
+            int value = tablebases.probe(board, color);
+            if (value != Tablebase.UNKNOWN) {
+                if (value == Tablebase.DRAW) {
+                    return 0;
+                }
+                int mate = MATE - ply - Tablebase.getDistance(value);
+                return Tablebase.isWin(value) ? mate : -mate;
+            }
+        }
+
+        int hashMove = 0;
+        if (table != null) {
+            long entry = table.probe(board.getKey());
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                int score = fromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (ply > 0 && TranspositionTable.getDepth(entry) >= depth
+                        && (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha))) {
+                    return score;
+                }
+            }
+        }
+
+        List<Move> moves = board.getAllValidMovesByPlayer(color);
+        if (moves.isEmpty()) {
+            return board.isChecked(color) ? -MATE + ply : 0;
+        }
+        orderMoves(board, moves, ply, hashMove);
+
+        int originalAlpha = alpha;
+        Move best = null;
+        for (Move move : moves) {
+            board.makeTrialMove(move);
+            int score = -negamax(board, (color + 1) % 2, depth - 1, ply + 1, -beta, -alpha);
+            board.undoTrialMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = move;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+
+        if (table != null) {
+            int bound = (alpha >= beta) ? TranspositionTable.LOWER
+                    : (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(board.getKey(), toTable(alpha, ply), depth, bound, (best == null) ? 0 : encode(board, best));
+        }
+        return alpha;
+    }
+
+    private int quiesce(Board board, int color, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (stopped) {
+            return 0;
+        }
+        if (++nodes >= nodeLimit) {
+            stopped = true;
+        }
+
+        int standPat = evaluation.evaluate(board, color);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        List<Move> captures = new ArrayList<Move>();
+        for (Move move : board.getAllValidMovesByPlayer(color)) {
+            if (board.getPiece(move.getDestX(), move.getDestY()) != null) {
+                captures.add(move);
+            }
+        }
+        orderMoves(board, captures, -1, 0);
+
+        for (Move move : captures) {
+            board.makeTrialMove(move);
+            int score = -quiesce(board, (color + 1) % 2, ply + 1, -beta, -alpha);
+            board.undoTrialMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private void updatePv(int ply, Move move) {
+        pvTable[ply][ply] = move;
+        for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    /**
+     * Mate scores are stored relative to the position in the table, and relative to the root in the
+     * search.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score + ply;
+        }
+        return (score < -MATE + MAX_PLY) ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score - ply;
+        }
+        return (score < -MATE + MAX_PLY) ? score + ply : score;
+    }
+
+    private static int encode(Board board, Move move) {
+        int columns = board.getSize().getColumns();
+        return (move.getSrcX() * columns + move.getSrcY()) | (move.getDestX() * columns + move.getDestY()) << 7;
+    }
+
+    /**
+     * Order Moves: the Move of the previous principal variation first, then the best Move found in the
+     * table, then captures by most valuable victim / least valuable attacker, then quiet Moves.
+     * @param ply ply of the node, -1 in the quiescence search.
+     * @param hashMove best Move from the table as src | dest << 7, 0 for none.
+     */
+    private void orderMoves(final Board board, List<Move> moves, int ply, final int hashMove) {
+        final Move pvMove = (ply >= 0 && ply < previousPv.size()) ? previousPv.get(ply) : null;
+        Collections.sort(moves, new Comparator<Move>() {
+            public int compare(Move a, Move b) {
+                return score(b) - score(a);
+            }
+
+            private int score(Move move) {
+                if (pvMove != null && move.getSrcX() == pvMove.getSrcX() && move.getSrcY() == pvMove.getSrcY()
+                        && move.getDestX() == pvMove.getDestX() && move.getDestY() == pvMove.getDestY()) {
+                    return Integer.MAX_VALUE / 2;
+                }
+                if (hashMove != 0 && encode(board, move) == hashMove) {
+                    return Integer.MAX_VALUE / 2 - 1;
+                }
+                ChessPiece victim = board.getPiece(move.getDestX(), move.getDestY());
+                if (victim == null) {
+                    return 0;
+                }
+                ChessPiece attacker = board.getPiece(move.getSrcX(), move.getSrcY());
+                return 10 * Evaluation.getMaterial(victim.getType()) - Evaluation.getMaterial(attacker.getType())
+                        + 10000;
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package game.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+import game.Move;
+
+
+/**
+ * Result of one completed iteration of the Search: depth, score and principal variation.
+ */
+public final class SearchInfo {
+    private final int depth;
+    private final int score;
+    private final List<Move> pv;
+    private final long nodes;
+    private final long timeMillis;
+
+
+    SearchInfo(int depth, int score, List<Move> pv, long nodes, long timeMillis) {
+        this.depth = depth;
+        this.score = score;
+        this.pv = Collections.unmodifiableList(pv);
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return score in centipawns from the point of view of the player to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return true if the score is a forced mate for either side.
+     */
+    public boolean isMate() {
+        return Math.abs(score) > Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return number of moves to mate, positive if the player to move mates.
+     */
+    public int getMateIn() {
+        int plies = Search.MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public List<Move> getPv() {
+        return pv;
+    }
+
+    /**
+     * @return the first Move of the principal variation, null if there is no valid Move.
+     */
+    public Move getBestMove() {
+        return pv.isEmpty() ? null : pv.get(0);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return the principal variation in coordinate notation, separated by spaces.
+     */
+    public String getPvString() {
+        StringBuilder builder = new StringBuilder();
+        for (Move move : pv) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(move);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,376 @@
+package game.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.Board;
+
+
+/**
+ * Solves a suite of test positions with expected best Moves in parallel and reports how many were
+ * solved, how fast and at how many nodes per second, to compare the tactical strength of engine builds
+ * per CPU-second.
+ *
+ * A suite is a text file with one position per line: the piece placement (see Board.fromFen), the
+ * player to move ("w" or "b"), "bm" and the expected best Moves in coordinate notation, optionally
+ * followed by "; id" and a name. Blank lines and lines starting with '#' are skipped, e.g.
+ * <pre>
+ *     r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w bm h5f7; id scholar
+ * </pre>
+ *
+ * Every position is searched by iterative deepening on a worker of its own until the depth, time or
+ * node limit. It counts as solved if the last completed iteration plays an expected Move; its time to
+ * solution is the time of the first iteration from which on all iterations did.
+ *
+ * Usage: java game.engine.SuiteRunner suite [-threads n] [-time ms] [-nodes n] [-depth d] [-hash mb]
+ *        [-nnue network]
+ */
+public class SuiteRunner {
+
+    /**
+     * A position of a suite.
+     */
+    public static final class Entry {
+        private final String id;
+        private final String fen;
+        private final int color;
+        private final List<String> bestMoves;
+
+        public Entry(String id, String fen, int color, List<String> bestMoves) {
+            this.id = id;
+            this.fen = fen;
+            this.color = color;
+            this.bestMoves = Collections.unmodifiableList(bestMoves);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public List<String> getBestMoves() {
+            return bestMoves;
+        }
+    }
+
+    /**
+     * The outcome of one Entry.
+     */
+    public static final class Result {
+        private final Entry entry;
+        private final String move;
+        private final long solvedMillis;
+        private final long millis;
+        private final long nodes;
+
+        Result(Entry entry, String move, long solvedMillis, long millis, long nodes) {
+            this.entry = entry;
+            this.move = move;
+            this.solvedMillis = solvedMillis;
+            this.millis = millis;
+            this.nodes = nodes;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+
+        /**
+         * @return the Move found in coordinate notation, null if not even depth 1 was completed.
+         */
+        public String getMove() {
+            return move;
+        }
+
+        public boolean isSolved() {
+            return solvedMillis >= 0;
+        }
+
+        /**
+         * @return the time to solution in milliseconds, -1 if the position was not solved.
+         */
+        public long getSolvedMillis() {
+            return solvedMillis;
+        }
+
+        /**
+         * @return the time of the whole search in milliseconds.
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+    }
+
+    private final int threads;
+    private final int maxDepth;
+    private final long timeMillis;
+    private final long nodeLimit;
+    private final int hashMegabytes;
+    private Evaluator evaluation = new Evaluation();
+
+
+    /**
+     * @param threads number of positions searched at the same time
+     * @param maxDepth last depth searched
+     * @param timeMillis time limit per position, 0 for none.
+     * @param nodeLimit node limit per position, 0 for none.
+     * @param hashMegabytes size of the TranspositionTable of each worker, 0 for none.
+     */
+    public SuiteRunner(int threads, int maxDepth, long timeMillis, long nodeLimit, int hashMegabytes) {
+        this.threads = threads;
+        this.maxDepth = maxDepth;
+        this.timeMillis = timeMillis;
+        this.nodeLimit = nodeLimit;
+        this.hashMegabytes = hashMegabytes;
+    }
+
+
+    /**
+     * Evaluate with another Evaluator than the handcrafted Evaluation, e.g. a NnueEvaluator.
+     */
+    public void setEvaluator(Evaluator evaluation) {
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Read a suite, see the class comment.
+     * @throws IllegalArgumentException if a line is not valid.
+     */
+    public static List<Entry> read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<Entry> entries = new ArrayList<Entry>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String id = String.valueOf(entries.size() + 1);
+            int separator = line.indexOf(';');
+            if (separator >= 0) {
+                String rest = line.substring(separator + 1).trim();
+                if (rest.startsWith("id ")) {
+                    id = rest.substring(3).trim().replace("\"", "");
+                }
+                line = line.substring(0, separator).trim();
+            }
+            String[] tokens = line.split("\\s+");
+            if (tokens.length < 4 || !tokens[2].equals("bm") || !(tokens[1].equals("w") || tokens[1].equals("b"))) {
+                throw new IllegalArgumentException("Not a test position: " + line);
+            }
+            Board.fromFen(tokens[0]);
+            entries.add(new Entry(id, tokens[0], tokens[1].equals("w") ? 0 : 1,
+                    new ArrayList<String>(Arrays.asList(tokens).subList(3, tokens.length))));
+        }
+        return entries;
+    }
+
+    /**
+     * Solve all positions of a suite.
+     * @return the results in the order of the suite.
+     */
+    public List<Result> run(List<Entry> entries) throws InterruptedException {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "suite-runner-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ExecutorService workers = Executors.newFixedThreadPool(threads, factory);
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(factory);
+        final ThreadLocal<TranspositionTable> tables = new ThreadLocal<TranspositionTable>() {
+            @Override
+            protected TranspositionTable initialValue() {
+                return (hashMegabytes > 0) ? new TranspositionTable(hashMegabytes) : null;
+            }
+        };
+
+        List<Future<Result>> tasks = new ArrayList<Future<Result>>();
+        for (final Entry entry : entries) {
+            tasks.add(workers.submit(new Callable<Result>() {
+                public Result call() {
+                    TranspositionTable table = tables.get();
+                    if (table != null) {
+                        table.clear();
+                    }
+                    return solve(entry, table, timer);
+                }
+            }));
+        }
+
+        List<Result> results = new ArrayList<Result>();
+        try {
+            for (Future<Result> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+            timer.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Search one position and find the time to solution from its iterations.
+     */
+    private Result solve(final Entry entry, TranspositionTable table, ScheduledExecutorService timer) {
+        final Search search = new Search(evaluation);
+        search.setTranspositionTable(table);
+        if (nodeLimit > 0) {
+            search.setNodeLimit(nodeLimit);
+        }
+        final long start = System.currentTimeMillis();
+        final List<long[]> iterations = new ArrayList<long[]>();     // {milliseconds, 1 if solved}
+        Future<?> alarm = (timeMillis <= 0) ? null : timer.schedule(new Runnable() {
+            public void run() {
+                search.stop();
+            }
+        }, timeMillis, TimeUnit.MILLISECONDS);
+
+        Board board = Board.fromFen(entry.getFen(), entry.getColor());
+        SearchInfo info = search.search(board, entry.getColor(), maxDepth,
+                new Search.Listener() {
+                    public void onIteration(SearchInfo info) {
+                        boolean solved = info.getBestMove() != null
+                                && entry.getBestMoves().contains(info.getBestMove().toString());
+                        iterations.add(new long[] {System.currentTimeMillis() - start, solved ? 1 : 0});
+                    }
+                });
+        long millis = System.currentTimeMillis() - start;
+        if (alarm != null) {
+            alarm.cancel(false);
+        }
+
+        long solvedMillis = -1;
+        for (int i = iterations.size() - 1; i >= 0 && iterations.get(i)[1] == 1; i--) {
+            solvedMillis = iterations.get(i)[0];
+        }
+        String move = (info == null || info.getBestMove() == null) ? null : info.getBestMove().toString();
+        return new Result(entry, move, solvedMillis, millis, search.getNodes());
+    }
+
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the time to solution below which that share of the solved positions was solved, -1 if
+     *         none was solved.
+     */
+    public static long getPercentile(List<Result> results, double percentile) {
+        List<Long> times = new ArrayList<Long>();
+        for (Result result : results) {
+            if (result.isSolved()) {
+                times.add(result.getSolvedMillis());
+            }
+        }
+        if (times.isEmpty()) {
+            return -1;
+        }
+        Collections.sort(times);
+        int index = (int) Math.ceil(percentile / 100 * times.size()) - 1;
+        return times.get(Math.max(0, Math.min(times.size() - 1, index)));
+    }
+
+    /**
+     * Print one line per position and the totals.
+     */
+    public static void report(List<Result> results) {
+        int solved = 0;
+        long nodes = 0;
+        long millis = 0;
+        for (Result result : results) {
+            if (result.isSolved()) {
+                solved++;
+            }
+            nodes += result.getNodes();
+            millis += result.getMillis();
+            System.out.println(String.format("%-16s %-6s %-6s bm %-12s %7d ms %10d nodes", result.getEntry().getId(),
+                    result.isSolved() ? "solved" : "FAILED", result.getMove(), result.getEntry().getBestMoves(),
+                    result.isSolved() ? result.getSolvedMillis() : result.getMillis(), result.getNodes()));
+        }
+
+        double seconds = Math.max(1, millis) / 1000.0;
+        System.out.println(String.format("Solved: %d of %d (%.1f%%)", solved, results.size(),
+                100.0 * solved / Math.max(1, results.size())));
+        System.out.println(String.format("Time to solution: p50 %d ms, p90 %d ms, max %d ms",
+                getPercentile(results, 50), getPercentile(results, 90), getPercentile(results, 100)));
+        System.out.println(String.format("Nodes: %d in %.1f s of search, %d nps, %.2f solved per CPU-second",
+                nodes, seconds, (long) (nodes / seconds), solved / seconds));
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        String file = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long time = 0;
+        long nodes = 0;
+        int depth = Search.MAX_PLY;
+        int hash = 16;
+        String network = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-time")) {
+                time = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-nodes")) {
+                nodes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-depth")) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-hash")) {
+                hash = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-nnue")) {
+                network = args[++i];
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null || (time <= 0 && nodes <= 0 && depth == Search.MAX_PLY)) {
+            System.out.println("Usage: java game.engine.SuiteRunner suite [-threads n] [-time ms] [-nodes n] [-depth d] [-hash mb] [-nnue network]");
+            System.out.println("At least one of -time, -nodes and -depth is needed.");
+            return;
+        }
+
+        Reader reader = new FileReader(file);
+        List<Entry> entries;
+        try {
+            entries = read(reader);
+        } finally {
+            reader.close();
+        }
+        SuiteRunner runner = new SuiteRunner(threads, depth, time, nodes, hash);
+        if (network != null) {
+            runner.setEvaluator(NnueEvaluator.load(new File(network)));
+        }
+        report(runner.run(entries));
+    }
+}
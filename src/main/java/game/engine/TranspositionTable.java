@@ -0,0 +1,90 @@
+package game.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A hash table of search results by position key (Board.getKey()), shared by any number of Searches
+ * on different threads without locks.
+ *
+ * An entry is two longs: the key xor the data, and the data. A reader only accepts an entry whose two
+ * words xor to its key, so an entry half written by another thread reads as a miss rather than as
+ * the result of a different position. The data packs the score (32 bits), the depth (8 bits), the
+ * bound (2 bits) and the best Move as src | dest << 7 (14 bits, 0 for none). Each slot keeps the
+ * deeper of two results of the same position and always takes a different position.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;     // score >= the true value, a fail high
+    public static final int UPPER = 3;     // score <= the true value, a fail low
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+
+    /**
+     * @param megabytes approximate size, rounded down to a power of two entries.
+     */
+    public TranspositionTable(int megabytes) {
+        int slots = Integer.highestOneBit(Math.max(1, (int) Math.min(1 << 26, (megabytes * (1L << 20)) / 16)));
+        this.entries = new AtomicLongArray(2 * slots);
+        this.mask = slots - 1;
+    }
+
+
+    /**
+     * @return the data of a position, 0 if it is not in the table.
+     */
+    public long probe(long key) {
+        int slot = 2 * (int) (key & mask);
+        long data = entries.get(slot + 1);
+        return ((entries.get(slot) ^ data) == key) ? data : 0;
+    }
+
+    /**
+     * @param key position key
+     * @param score score of the position, mate scores relative to the position (see Search).
+     * @param depth remaining depth of the search
+     * @param bound EXACT, LOWER or UPPER
+     * @param move best Move as src | dest << 7, 0 if unknown.
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        int slot = 2 * (int) (key & mask);
+        long old = entries.get(slot + 1);
+        if ((entries.get(slot) ^ old) == key && getDepth(old) > depth && bound != EXACT) {
+            return;
+        }
+        long data = (score & 0xFFFFFFFFL) | (long) depth << 32 | (long) bound << 40 | (long) move << 42;
+        entries.set(slot, key ^ data);
+        entries.set(slot + 1, data);
+    }
+
+    /**
+     * Forget all entries.
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+
+    public static int getScore(long data) {
+        return (int) data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    /**
+     * @return EXACT, LOWER or UPPER, 0 if the data is empty.
+     */
+    public static int getBound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data >>> 42) & 0x3FFF;
+    }
+}
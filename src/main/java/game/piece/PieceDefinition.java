@@ -0,0 +1,148 @@
+package game.piece;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A PieceDefinition describes how a piece moves. The description is compiled into lookup tables per
+ * board size (see game.AttackTable), so move generation and attack detection never branch on the
+ * piece type.
+ *
+ * Offsets are given as {dx, dy} and expanded to all eight symmetries, e.g. leaper(2, 1) is the Knight.
+ * A piece is built from any combination of:
+ *  - leapers: jump to the square at an offset, whatever is in between.
+ *  - riders: slide along a direction until the first piece, which may be captured.
+ *  - hoppers: move along a direction to any square behind at least one screen, like the Cannon.
+ *  - pawn rules: step forward to an empty square, two steps on the first move if both squares are
+ *    empty, and capture one square diagonally forward. Forward is towards x = 0 for white.
+ */
+public final class PieceDefinition {
+    private final int[][] leaps;
+    private final int[][] rides;
+    private final int[][] hops;
+    private final boolean pawn;
+
+
+    private PieceDefinition(int[][] leaps, int[][] rides, int[][] hops, boolean pawn) {
+        this.leaps = leaps;
+        this.rides = rides;
+        this.hops = hops;
+        this.pawn = pawn;
+    }
+
+
+    /**
+     * @return a piece that jumps to the squares at offset (dx, dy) and its symmetries.
+     */
+    public static PieceDefinition leaper(int dx, int dy) {
+        return new PieceDefinition(symmetries(dx, dy), new int[0][], new int[0][], false);
+    }
+
+    /**
+     * @return a piece that slides along direction (dx, dy) and its symmetries.
+     */
+    public static PieceDefinition rider(int dx, int dy) {
+        return new PieceDefinition(new int[0][], symmetries(dx, dy), new int[0][], false);
+    }
+
+    /**
+     * @return a piece that moves along direction (dx, dy) and its symmetries to any square behind a screen.
+     */
+    public static PieceDefinition hopper(int dx, int dy) {
+        return new PieceDefinition(new int[0][], new int[0][], symmetries(dx, dy), false);
+    }
+
+    /**
+     * @return a piece that follows the pawn rules.
+     */
+    public static PieceDefinition pawn() {
+        return new PieceDefinition(new int[0][], new int[0][], new int[0][], true);
+    }
+
+    /**
+     * @return a piece that moves like this piece or like the other one, e.g. the Queen is rider(1, 0)
+     *         and rider(1, 1).
+     */
+    public PieceDefinition and(PieceDefinition other) {
+        return new PieceDefinition(concat(leaps, other.leaps), concat(rides, other.rides),
+                concat(hops, other.hops), pawn || other.pawn);
+    }
+
+
+    /**
+     * @return true if the piece slides along direction (dx, dy).
+     */
+    public boolean ridesAlong(int dx, int dy) {
+        return contains(rides, dx, dy);
+    }
+
+    /**
+     * @return true if the piece hops along direction (dx, dy).
+     */
+    public boolean hopsAlong(int dx, int dy) {
+        return contains(hops, dx, dy);
+    }
+
+    public boolean isHopper() {
+        return hops.length > 0;
+    }
+
+    public boolean isPawn() {
+        return pawn;
+    }
+
+    /**
+     * @return the offsets {dx, dy} the piece jumps to.
+     */
+    public int[][] getLeaperOffsets() {
+        return leaps.clone();
+    }
+
+    /**
+     * @return the directions {dx, dy} the piece slides along.
+     */
+    public int[][] getRiderDirections() {
+        return rides.clone();
+    }
+
+    /**
+     * @return the directions {dx, dy} the piece hops along.
+     */
+    public int[][] getHopperDirections() {
+        return hops.clone();
+    }
+
+
+    private static int[][] symmetries(int dx, int dy) {
+        List<int[]> offsets = new ArrayList<int[]>();
+        int[][] candidates = {{dx, dy}, {dy, dx}};
+        for (int[] candidate : candidates) {
+            for (int signX = -1; signX <= 1; signX += 2) {
+                for (int signY = -1; signY <= 1; signY += 2) {
+                    int[] offset = {signX * candidate[0], signY * candidate[1]};
+                    if (!contains(offsets.toArray(new int[0][]), offset[0], offset[1])) {
+                        offsets.add(offset);
+                    }
+                }
+            }
+        }
+        return offsets.toArray(new int[0][]);
+    }
+
+    private static int[][] concat(int[][] a, int[][] b) {
+        int[][] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static boolean contains(int[][] offsets, int dx, int dy) {
+        for (int[] offset : offsets) {
+            if (offset[0] == dx && offset[1] == dy) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,49 @@
 package game.piece;
 
+/**
+ * The types of pieces, how they move and the letter that names them, e.g. in tablebase signatures.
+ * A new piece only needs a constant with its letter and PieceDefinition.
+ */
 public enum PieceType {
-    PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING,
-    CANNON, ALFIL
+    PAWN('P', PieceDefinition.pawn()),
+    ROOK('R', PieceDefinition.rider(1, 0)),
+    KNIGHT('N', PieceDefinition.leaper(2, 1)),
+    BISHOP('B', PieceDefinition.rider(1, 1)),
+    QUEEN('Q', PieceDefinition.rider(1, 0).and(PieceDefinition.rider(1, 1))),
+    KING('K', PieceDefinition.leaper(1, 0).and(PieceDefinition.leaper(1, 1))),
+    /** Cannon is a classic piece in Chinese Chess, it moves linearly by hopping over a "curdle" piece. */
+    CANNON('C', PieceDefinition.hopper(1, 0)),
+    /** Alfil (Elephant) is a classic piece in Chinese Chess, it moves diagonally by distance of two. */
+    ALFIL('A', PieceDefinition.leaper(2, 2));
+
+    private final char letter;
+    private final PieceDefinition definition;
+
+    PieceType(char letter, PieceDefinition definition) {
+        this.letter = letter;
+        this.definition = definition;
+    }
+
+    /**
+     * @return the type named by an upper case letter, e.g. 'C' for the Cannon, or null if there is none.
+     */
+    public static PieceType fromLetter(char letter) {
+        for (PieceType type : values()) {
+            if (type.letter == letter) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the upper case letter of the type, e.g. 'N' for the Knight.
+     */
+    public char getLetter() {
+        return letter;
+    }
+
+    public PieceDefinition getDefinition() {
+        return definition;
+    }
 }
@@ -0,0 +1,103 @@
+package game.rating;
+
+/**
+ * The rating of one player: a strength on the Elo scale, the deviation of that estimate (Glicko) and the
+ * results it is based on. Immutable; a RatingFormula returns new Ratings after a game.
+ *
+ * Ratings are ordered for the leaderboard: strongest first, ties broken by name.
+ */
+public final class Rating implements Comparable<Rating> {
+    public static final double INITIAL_VALUE = 1500;
+    public static final double INITIAL_DEVIATION = 350;
+
+    private final String name;
+    private final double value;
+    private final double deviation;
+    private final int wins;
+    private final int draws;
+    private final int losses;
+
+
+    public Rating(String name, double value, double deviation, int wins, int draws, int losses) {
+        this.name = name;
+        this.value = value;
+        this.deviation = deviation;
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    /**
+     * @return the rating of a player without games.
+     */
+    public static Rating initial(String name) {
+        return new Rating(name, INITIAL_VALUE, INITIAL_DEVIATION, 0, 0, 0);
+    }
+
+    /**
+     * @param value the new value
+     * @param deviation the new deviation
+     * @param points 0 for a loss, 1 for a draw and 2 for a win, see GameResult.getPoints().
+     * @return this rating after one more game.
+     */
+    public Rating next(double value, double deviation, int points) {
+        return new Rating(name, value, deviation, wins + ((points == 2) ? 1 : 0), draws + ((points == 1) ? 1 : 0),
+                losses + ((points == 0) ? 1 : 0));
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getDeviation() {
+        return deviation;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    public int getNoOfGames() {
+        return wins + draws + losses;
+    }
+
+    public int compareTo(Rating other) {
+        if (value != other.value) {
+            return (value > other.value) ? -1 : 1;
+        }
+        return name.compareTo(other.name);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Rating)) {
+            return false;
+        }
+        Rating rating = (Rating) other;
+        return name.equals(rating.name) && value == rating.value && deviation == rating.deviation
+                && wins == rating.wins && draws == rating.draws && losses == rating.losses;
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode() * 31 + Double.valueOf(value).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %.0f (%.0f) +%d =%d -%d", name, value, deviation, wins, draws, losses);
+    }
+}
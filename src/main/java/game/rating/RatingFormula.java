@@ -0,0 +1,64 @@
+package game.rating;
+
+/**
+ * How the Ratings of two players change after a game between them.
+ */
+public interface RatingFormula {
+
+    /**
+     * Elo with a K-factor of 32. The deviation is left as it is.
+     */
+    RatingFormula ELO = new RatingFormula() {
+        private static final double K = 32;
+
+        public Rating[] update(Rating white, Rating black, int points) {
+            double expected = expectedScore(white.getValue() - black.getValue(), 1);
+            double change = K * (points / 2.0 - expected);
+            return new Rating[] {
+                    white.next(white.getValue() + change, white.getDeviation(), points),
+                    black.next(black.getValue() - change, black.getDeviation(), 2 - points)};
+        }
+    };
+
+    /**
+     * Glicko: every game is a rating period of its own. An uncertain rating moves faster and becomes more
+     * certain with each game, down to a deviation of 30.
+     */
+    RatingFormula GLICKO = new RatingFormula() {
+        private static final double Q = 0.0057564627324851142;    // ln(10) / 400
+        private static final double MIN_DEVIATION = 30;
+
+        public Rating[] update(Rating white, Rating black, int points) {
+            return new Rating[] {updateOne(white, black, points), updateOne(black, white, 2 - points)};
+        }
+
+        private Rating updateOne(Rating player, Rating opponent, int points) {
+            double g = 1 / Math.sqrt(1 + 3 * Q * Q * opponent.getDeviation() * opponent.getDeviation()
+                    / (Math.PI * Math.PI));
+            double expected = expectedScore(player.getValue() - opponent.getValue(), g);
+            double precision = 1 / (player.getDeviation() * player.getDeviation())
+                    + Q * Q * g * g * expected * (1 - expected);
+            double value = player.getValue() + Q / precision * g * (points / 2.0 - expected);
+            return player.next(value, Math.max(MIN_DEVIATION, Math.sqrt(1 / precision)), points);
+        }
+    };
+
+
+    /**
+     * @param white rating of the white player before the game
+     * @param black rating of the black player before the game
+     * @param points 0 if white lost, 1 for a draw and 2 if white won.
+     * @return {white, black}, the ratings after the game.
+     */
+    Rating[] update(Rating white, Rating black, int points);
+
+
+    /**
+     * @param difference rating of the player minus rating of the opponent
+     * @param g weight of the difference, 1 for Elo.
+     * @return the expected score of the player, between 0 and 1.
+     */
+    static double expectedScore(double difference, double g) {
+        return 1 / (1 + Math.pow(10, -g * difference / 400));
+    }
+}
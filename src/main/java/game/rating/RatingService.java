@@ -0,0 +1,267 @@
+package game.rating;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import game.GameResult;
+
+
+/**
+ * The Ratings of all players, updated with every finished game, and a leaderboard sorted by rating.
+ *
+ * Games between different pairs of players are recorded in parallel: a game locks the stripes of its two
+ * players, always the lower stripe first, so games that share a player are applied one at a time and in
+ * a consistent order. The leaderboard is a concurrent sorted set; a recorded game moves its two players
+ * to their new places instead of sorting everyone again.
+ *
+ * A snapshot of all Ratings can be saved to a file, also periodically in the background. A snapshot
+ * waits for the games being recorded, so it never holds half of a game. It is written to a temporary
+ * file first and then renamed, so a crash leaves the previous snapshot intact.
+ */
+public class RatingService implements Closeable {
+    public static final int MAGIC = 0x52415445;     // "RATE"
+    public static final int VERSION = 1;
+
+    private static final int STRIPES = 64;
+
+    private final RatingFormula formula;
+    private final ConcurrentHashMap<String, Rating> ratings;
+    private final ConcurrentSkipListSet<Rating> leaderboard;
+    private final Object[] stripes;
+    private final ReadWriteLock snapshotLock;
+    private final AtomicLong noOfGames;
+    private ScheduledExecutorService snapshots;
+    private File snapshotFile;
+
+
+    /**
+     * @param formula how ratings change, e.g. RatingFormula.GLICKO.
+     */
+    public RatingService(RatingFormula formula) {
+        this.formula = formula;
+        this.ratings = new ConcurrentHashMap<String, Rating>();
+        this.leaderboard = new ConcurrentSkipListSet<Rating>();
+        this.stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.snapshotLock = new ReentrantReadWriteLock();
+        this.noOfGames = new AtomicLong();
+    }
+
+
+    /**
+     * Update the Ratings of both players of a finished game.
+     * @return {white, black}, the new ratings.
+     * @throws IllegalArgumentException if a player plays against themself.
+     */
+    public Rating[] record(String white, String black, GameResult result) {
+        if (white.equals(black)) {
+            throw new IllegalArgumentException("Player " + white + " cannot play against themself");
+        }
+        int first = getStripe(white);
+        int second = getStripe(black);
+        snapshotLock.readLock().lock();
+        try {
+            synchronized (stripes[Math.min(first, second)]) {
+                synchronized (stripes[Math.max(first, second)]) {
+                    Rating[] before = {get(white), get(black)};
+                    Rating[] after = formula.update(before[0], before[1], result.getPoints(0));
+                    for (int i = 0; i < 2; i++) {
+                        ratings.put(after[i].getName(), after[i]);
+                        leaderboard.remove(before[i]);
+                        leaderboard.add(after[i]);
+                    }
+                    noOfGames.incrementAndGet();
+                    return after;
+                }
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the Rating of a player, the initial Rating if they have not played yet.
+     */
+    public Rating get(String name) {
+        Rating rating = ratings.get(name);
+        return (rating == null) ? Rating.initial(name) : rating;
+    }
+
+    /**
+     * @param count the maximum number of players
+     * @return the strongest players, strongest first. Players whose game is being recorded may be missing.
+     */
+    public List<Rating> getLeaderboard(int count) {
+        List<Rating> top = new ArrayList<Rating>(Math.min(count, 64));
+        Iterator<Rating> iterator = leaderboard.iterator();
+        while (top.size() < count && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    /**
+     * @return the number of rated players.
+     */
+    public int size() {
+        return ratings.size();
+    }
+
+    /**
+     * @return the number of games recorded since the service was created.
+     */
+    public long getNoOfGames() {
+        return noOfGames.get();
+    }
+
+
+    /**
+     * Save a snapshot of all Ratings, see the class comment.
+     * Layout: int magic, short version, int count, then per player the UTF name, double value,
+     * double deviation, int wins, int draws and int losses.
+     */
+    public void save(File file) throws IOException {
+        List<Rating> all;
+        snapshotLock.writeLock().lock();
+        try {
+            all = new ArrayList<Rating>(ratings.values());
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temporary);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(all.size());
+            for (Rating rating : all) {
+                out.writeUTF(rating.getName());
+                out.writeDouble(rating.getValue());
+                out.writeDouble(rating.getDeviation());
+                out.writeInt(rating.getWins());
+                out.writeInt(rating.getDraws());
+                out.writeInt(rating.getLosses());
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * Replace all Ratings with those of a snapshot.
+     */
+    public void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + " is not a rating snapshot");
+            }
+            int count = in.readInt();
+            List<Rating> loaded = new ArrayList<Rating>(count);
+            for (int i = 0; i < count; i++) {
+                loaded.add(new Rating(in.readUTF(), in.readDouble(), in.readDouble(), in.readInt(), in.readInt(),
+                        in.readInt()));
+            }
+
+            snapshotLock.writeLock().lock();
+            try {
+                ratings.clear();
+                leaderboard.clear();
+                for (Rating rating : loaded) {
+                    ratings.put(rating.getName(), rating);
+                    leaderboard.add(rating);
+                }
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Save a snapshot in the background at a fixed period, and once more on close().
+     * @param file the snapshot file
+     * @param period time between snapshots
+     * @param unit unit of the period
+     */
+    public synchronized void startSnapshots(File file, long period, TimeUnit unit) {
+        if (snapshots != null) {
+            throw new IllegalStateException("Snapshots are already saved to " + snapshotFile);
+        }
+        snapshotFile = file;
+        snapshots = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rating-snapshots");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        snapshots.scheduleAtFixedRate(new Runnable() {
+            private long saved = -1;
+
+            public void run() {
+                if (noOfGames.get() == saved) {
+                    return;
+                }
+                saved = noOfGames.get();
+                try {
+                    save(snapshotFile);
+                } catch (IOException e) {
+                    System.out.println("Cannot save ratings to " + snapshotFile + ": " + e.getMessage());
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stop the background snapshots and save a last one.
+     */
+    public synchronized void close() throws IOException {
+        if (snapshots == null) {
+            return;
+        }
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshots = null;
+        save(snapshotFile);
+    }
+
+
+    private static int getStripe(String name) {
+        int hash = name.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
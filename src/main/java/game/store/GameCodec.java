@@ -0,0 +1,215 @@
+package game.store;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import game.Board;
+import game.BoardSize;
+import game.GameResult;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+
+/**
+ * Compact binary encoding of a game for archives. Every Move is stored as its index in the list of valid
+ * Moves of its position, Board.getAllValidMovesByPlayer(), in just enough bits to count that list: a
+ * position with 20 valid Moves takes 5 bits, a forced Move none. A game of 80 plies fits in about 60
+ * bytes, against about 400 in coordinate notation.
+ *
+ * Layout:
+ * <pre>
+ *     byte version, byte rows, byte columns, byte result,
+ *     short length + UTF-8 white name, short length + UTF-8 black name, short number of Moves,
+ *     the Move indexes, most significant bit first, padded to a whole byte.
+ * </pre>
+ *
+ * Both directions replay the game through the move generator, so encoding rejects an invalid Move and
+ * decoding needs no more than one list of valid Moves per ply. Games can be concatenated into one
+ * buffer, encode() and decode() leave the position after the game.
+ */
+public final class GameCodec {
+    public static final int VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return the encoded game.
+     * @throws IllegalArgumentException if a Move of the game is not valid or a name is too long.
+     */
+    public static byte[] encode(GameRecord record) {
+        byte[] white = GameRecord.getNameBytes(record.getWhite());
+        byte[] black = GameRecord.getNameBytes(record.getBlack());
+        byte[] moves = encodeMoves(record);
+        ByteBuffer out = ByteBuffer.allocate(4 + 2 + white.length + 2 + black.length + 2 + moves.length);
+        out.put((byte) VERSION);
+        out.put((byte) record.getSize().getRows());
+        out.put((byte) record.getSize().getColumns());
+        out.put((byte) record.getResult().ordinal());
+        out.putShort((short) white.length);
+        out.put(white);
+        out.putShort((short) black.length);
+        out.put(black);
+        out.putShort((short) record.getNoOfMoves());
+        out.put(moves);
+        return out.array();
+    }
+
+    /**
+     * Encode a game at the position of a buffer, which is advanced past it.
+     */
+    public static void encode(GameRecord record, ByteBuffer out) {
+        out.put(encode(record));
+    }
+
+    /**
+     * @return the game of an encoded buffer.
+     */
+    public static GameRecord decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decode a game at the position of a buffer, which is advanced past it.
+     * @throws IllegalArgumentException if the data is not a valid game.
+     */
+    public static GameRecord decode(ByteBuffer in) {
+        try {
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown version " + version);
+            }
+            BoardSize size = BoardSize.of(in.get(), in.get());
+            int result = in.get();
+            if (result < 0 || result >= GameResult.values().length) {
+                throw new IllegalArgumentException("Unknown result " + result);
+            }
+            String white = getString(in);
+            String black = getString(in);
+            int noOfMoves = in.getShort() & 0xFFFF;
+
+            Board board = new Board(new Player(white, PieceColor.WHITE), new Player(black, PieceColor.BLACK), size);
+            List<Move> moves = new ArrayList<Move>(noOfMoves);
+            BitReader bits = new BitReader(in);
+            for (int ply = 0; ply < noOfMoves; ply++) {
+                List<Move> valid = new ArrayList<Move>(board.getAllValidMovesByPlayer(ply % 2));
+                int index = bits.read(getWidth(valid.size()));
+                if (index >= valid.size()) {
+                    throw new IllegalArgumentException("Invalid move " + index + " at ply " + ply);
+                }
+                Move move = valid.get(index);
+                board.makeMove(move);
+                moves.add(move);
+            }
+            return new GameRecord(size, white, black, GameResult.values()[result], moves);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game", e);
+        }
+    }
+
+
+    private static byte[] encodeMoves(GameRecord record) {
+        BoardSize size = record.getSize();
+        int columns = size.getColumns();
+        Board board = new Board(new Player(record.getWhite(), PieceColor.WHITE),
+                new Player(record.getBlack(), PieceColor.BLACK), size);
+        BitWriter bits = new BitWriter(record.getNoOfMoves());
+        for (int ply = 0; ply < record.getNoOfMoves(); ply++) {
+            int code = record.getMoveCode(ply);
+            List<Move> valid = board.getAllValidMovesByPlayer(ply % 2);
+            int index = 0;
+            Move played = null;
+            for (Move move : valid) {
+                if ((move.getSrcX() * columns + move.getSrcY() | (move.getDestX() * columns + move.getDestY()) << 7)
+                        == code) {
+                    played = move;
+                    break;
+                }
+                index++;
+            }
+            if (played == null) {
+                throw new IllegalArgumentException("Invalid move at ply " + ply + " of game " + record.getId());
+            }
+            bits.write(index, getWidth(valid.size()));
+            board.makeMove(played);
+        }
+        return bits.toByteArray();
+    }
+
+    /**
+     * @return the number of bits to store an index into a list of n Moves.
+     */
+    static int getWidth(int n) {
+        return (n <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+
+    /**
+     * Appends bit fields, most significant bit first.
+     */
+    private static class BitWriter {
+        private byte[] bytes;
+        private int length;     // in bits
+
+        BitWriter(int capacity) {
+            bytes = new byte[Math.max(8, capacity)];
+        }
+
+        void write(int value, int width) {
+            for (int bit = width - 1; bit >= 0; bit--) {
+                if (length == 8 * bytes.length) {
+                    bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+                }
+                if (((value >>> bit) & 1) != 0) {
+                    bytes[length >> 3] |= 0x80 >>> (length & 7);
+                }
+                length++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (length + 7) >> 3);
+        }
+    }
+
+    /**
+     * Reads the bit fields of a BitWriter from a buffer, a byte at a time, so the buffer ends up right
+     * after the last byte used.
+     */
+    private static class BitReader {
+        private final ByteBuffer in;
+        private int current;
+        private int available;
+
+        BitReader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        int read(int width) {
+            int value = 0;
+            for (int i = 0; i < width; i++) {
+                if (available == 0) {
+                    current = in.get() & 0xFF;
+                    available = 8;
+                }
+                available--;
+                value = value << 1 | (current >>> available) & 1;
+            }
+            return value;
+        }
+    }
+}
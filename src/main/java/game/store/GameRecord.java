@@ -0,0 +1,256 @@
+package game.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.Board;
+import game.BoardSize;
+import game.GameHistory;
+import game.GameResult;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+
+/**
+ * An immutable finished game: the players, the result and the Moves, white first. A Move is kept as
+ * src | dest << 7 with squares indexed x * columns + y.
+ *
+ * Encoded in a GameStore segment as:
+ * <pre>
+ *     long id, long time, byte rows, byte columns, byte result,
+ *     short length + UTF-8 white name, short length + UTF-8 black name, short number of Moves, short Moves...
+ * </pre>
+ */
+public final class GameRecord {
+    /** The longest player name, in UTF-8 bytes, that its short length can hold. */
+    static final int MAX_NAME_LENGTH = 0xFFFF;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final long id;
+    private final long time;
+    private final BoardSize size;
+    private final String white;
+    private final String black;
+    private final GameResult result;
+    private final short[] moves;
+
+
+    private GameRecord(long id, long time, BoardSize size, String white, String black, GameResult result,
+                       short[] moves) {
+        this.id = id;
+        this.time = time;
+        this.size = size;
+        this.white = white;
+        this.black = black;
+        this.result = result;
+        this.moves = moves;
+    }
+
+    /**
+     * @param size dimensions of the board
+     * @param white name of the white player
+     * @param black name of the black player
+     * @param result result of the game
+     * @param moves the Moves of the game, white first.
+     * @throws IllegalArgumentException if a name is longer than MAX_NAME_LENGTH bytes in UTF-8.
+     */
+    public GameRecord(BoardSize size, String white, String black, GameResult result, List<Move> moves) {
+        this(-1, System.currentTimeMillis(), size, white, black, result, encode(size, moves));
+        getNameBytes(white);
+        getNameBytes(black);
+    }
+
+    /**
+     * @return a record of the Moves of a GameHistory up to its current ply.
+     */
+    public static GameRecord of(GameHistory history, String white, String black, GameResult result) {
+        List<Move> moves = new ArrayList<Move>();
+        for (int i = 0; i < history.getPly(); i++) {
+            moves.add(history.getMove(i));
+        }
+        return new GameRecord(history.getBoard().getSize(), white, black, result, moves);
+    }
+
+    /**
+     * @param moves the Moves of a game on a standard board in coordinate notation, white first, e.g.
+     * "e2e4", "e7e5".
+     * @return a record of the game.
+     * @throws IllegalArgumentException if a Move is not valid or a name is too long.
+     */
+    public static GameRecord of(String white, String black, GameResult result, String... moves) {
+        Board board = new Board(new Player(white, PieceColor.WHITE), new Player(black, PieceColor.BLACK));
+        List<Move> played = new ArrayList<Move>();
+        for (int i = 0; i < moves.length; i++) {
+            Move move = Move.parse((i % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK, board, moves[i]);
+            if (move == null || !board.makeMove(move)) {
+                throw new IllegalArgumentException("Invalid move " + moves[i] + " at ply " + i);
+            }
+            played.add(move);
+        }
+        return new GameRecord(BoardSize.STANDARD, white, black, result, played);
+    }
+
+
+    /**
+     * @return the id given by the GameStore, -1 if the record is not stored.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the time the record was created, in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    public String getWhite() {
+        return white;
+    }
+
+    public String getBlack() {
+        return black;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    public int getNoOfMoves() {
+        return moves.length;
+    }
+
+    /**
+     * @return the Move of a ply as src | dest << 7.
+     */
+    public int getMoveCode(int ply) {
+        return moves[ply] & 0x3FFF;
+    }
+
+    /**
+     * Play the game on a new Board.
+     * @return the Board after the last Move.
+     * @throws IllegalStateException if a Move is not valid.
+     */
+    public Board replay() {
+        return replay(moves.length);
+    }
+
+    /**
+     * Play the first Moves of the game on a new Board.
+     * @param plies the number of Moves to play
+     * @return the Board after the last Move played, with the player to move being plies % 2.
+     * @throws IllegalStateException if a Move is not valid.
+     */
+    public Board replay(int plies) {
+        Board board = new Board(new Player(white, PieceColor.WHITE), new Player(black, PieceColor.BLACK), size);
+        int columns = size.getColumns();
+        for (int i = 0; i < plies; i++) {
+            int src = moves[i] & 127;
+            int dest = moves[i] >> 7;
+            Move move = new Move((i % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK, board,
+                    src / columns, src % columns, dest / columns, dest % columns);
+            if (!board.makeMove(move)) {
+                throw new IllegalStateException("Invalid move " + move + " in game " + id);
+            }
+        }
+        return board;
+    }
+
+
+    GameRecord withId(long id) {
+        return new GameRecord(id, time, size, white, black, result, moves);
+    }
+
+    /**
+     * @return the number of bytes of the encoded record.
+     */
+    int getEncodedSize() {
+        return 8 + 8 + 3 + 2 + white.getBytes(UTF8).length + 2 + black.getBytes(UTF8).length + 2 + 2 * moves.length;
+    }
+
+    void encode(ByteBuffer out) {
+        out.putLong(id);
+        out.putLong(time);
+        out.put((byte) size.getRows());
+        out.put((byte) size.getColumns());
+        out.put((byte) result.ordinal());
+        putString(out, white);
+        putString(out, black);
+        out.putShort((short) moves.length);
+        for (short move : moves) {
+            out.putShort(move);
+        }
+    }
+
+    /**
+     * Decode a record at the position of a buffer, which is advanced past it.
+     */
+    static GameRecord decode(ByteBuffer in) {
+        long id = in.getLong();
+        long time = in.getLong();
+        BoardSize size = BoardSize.of(in.get(), in.get());
+        GameResult result = GameResult.values()[in.get()];
+        String white = getString(in);
+        String black = getString(in);
+        short[] moves = new short[in.getShort() & 0xFFFF];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = in.getShort();
+        }
+        return new GameRecord(id, time, size, white, black, result, moves);
+    }
+
+    /**
+     * Read the names of a record without decoding its Moves.
+     * @return {white, black}
+     */
+    static String[] decodePlayers(ByteBuffer in) {
+        in.position(in.position() + 8 + 8 + 3);
+        return new String[] {getString(in), getString(in)};
+    }
+
+
+    private static short[] encode(BoardSize size, List<Move> moves) {
+        int columns = size.getColumns();
+        short[] codes = new short[moves.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Move move = moves.get(i);
+            codes[i] = (short) ((move.getSrcX() * columns + move.getSrcY())
+                    | (move.getDestX() * columns + move.getDestY()) << 7);
+        }
+        return codes;
+    }
+
+    /**
+     * @return the UTF-8 bytes of a player name.
+     * @throws IllegalArgumentException if the name is longer than MAX_NAME_LENGTH bytes.
+     */
+    static byte[] getNameBytes(String name) {
+        byte[] bytes = name.getBytes(UTF8);
+        if (bytes.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Name of " + bytes.length + " bytes, at most " + MAX_NAME_LENGTH);
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer out, String text) {
+        byte[] bytes = getNameBytes(text);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -0,0 +1,514 @@
+package game.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import game.GameResult;
+import game.Player;
+
+
+/**
+ * An append-only store of finished games in a directory of segment files "games-00000.seg",
+ * "games-00001.seg", ...
+ *
+ * A segment is a sequence of records, each an int length and the int CRC-32 of the body, followed by
+ * the body encoded by GameRecord. A new segment is started once the current one reaches the segment
+ * size. Games get consecutive ids from 0 in the order they are appended.
+ *
+ * Appends are queued and written by one writer thread, which drains the queue, writes all pending
+ * records at once and forces them to disk with a single fsync before completing their Futures. Under
+ * load, thousands of games share one fsync. If a write fails, the records of the batch are removed
+ * again and their Futures fail, so the segments only ever hold the games with ids handed out; should
+ * that removal fail too, or the writer hit anything but an IOException, the store fails all later
+ * appends.
+ *
+ * The index is kept in memory and rebuilt by scanning the segments on open: the location of every id,
+ * and per player name the ids of their games and their wins, draws and losses. A record at the end of
+ * the last segment that is cut short, fails its checksum or cannot be decoded, e.g. after a crash during
+ * a write, is truncated. Games are read through memory-mapped segments.
+ *
+ * All methods are thread-safe.
+ */
+public class GameStore implements Closeable {
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    private static final int HEADER = 8;
+    private static final String PREFIX = "games-";
+    private static final String SUFFIX = ".seg";
+
+    private final File directory;
+    private final long segmentSize;
+    private final BlockingQueue<Append> queue;
+    private final Thread writer;
+
+    /* Guarded by this. */
+    private long[] locations;       // id -> segment << 32 | offset
+    private int size;
+    private final Map<String, PlayerEntry> players;
+    private final List<MappedByteBuffer> mapped;
+    private boolean closed;
+    private IOException failure;    // the error that stopped the writer
+
+    /* Accessed by the writer thread only, after the constructor. */
+    private FileChannel channel;
+    private int segment;
+    private long position;
+
+
+    /**
+     * Record of one queued append.
+     */
+    private static class Append {
+        final GameRecord record;
+        final CompletableFuture<Long> future;
+
+        Append(GameRecord record) {
+            this.record = record;
+            this.future = new CompletableFuture<Long>();
+        }
+    }
+
+    /**
+     * Index of the games of one player.
+     */
+    private static class PlayerEntry {
+        final List<Long> ids = new ArrayList<Long>();
+        final int[] counts = new int[3];    // wins, draws, losses
+    }
+
+
+    /**
+     * Open the store with the default segment size.
+     * @param directory directory of the segments, created if it does not exist.
+     */
+    public GameStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory directory of the segments, created if it does not exist.
+     * @param segmentSize size in bytes after which a new segment is started.
+     */
+    public GameStore(File directory, long segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.queue = new LinkedBlockingQueue<Append>();
+        this.locations = new long[1024];
+        this.players = new HashMap<String, PlayerEntry>();
+        this.mapped = new ArrayList<MappedByteBuffer>();
+
+        String[] names = directory.list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        Arrays.sort(names);
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(getName(i))) {
+                throw new IOException("Missing segment " + getName(i) + " in " + directory);
+            }
+            scan(i, i == names.length - 1);
+        }
+        segment = Math.max(0, names.length - 1);
+        channel = new RandomAccessFile(getFile(segment), "rw").getChannel();
+        position = channel.size();
+        channel.position(position);
+
+        writer = new Thread(new Runnable() {
+            public void run() {
+                write();
+            }
+        }, "game-store");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Queue a game to be stored.
+     * @param record the game, its id is ignored.
+     * @return a Future of the id of the game, done once the game is on disk.
+     */
+    public Future<Long> append(GameRecord record) {
+        Append append = new Append(record);
+        synchronized (this) {
+            if (closed) {
+                append.future.completeExceptionally(new IOException("Store is closed"));
+                return append.future;
+            }
+            if (failure != null) {
+                append.future.completeExceptionally(new IOException("Store failed", failure));
+                return append.future;
+            }
+            queue.add(append);
+        }
+        return append.future;
+    }
+
+    /**
+     * Read a stored game.
+     * @return the game, or null if there is no game with this id.
+     */
+    public GameRecord get(long id) throws IOException {
+        ByteBuffer buffer;
+        synchronized (this) {
+            if (id < 0 || id >= size) {
+                return null;
+            }
+            buffer = getBuffer((int) (locations[(int) id] >>> 32), (int) locations[(int) id]);
+        }
+        buffer.position(buffer.position() + HEADER);
+        return GameRecord.decode(buffer);
+    }
+
+    /**
+     * @return the number of stored games.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the ids of the stored games of a player, oldest first.
+     */
+    public synchronized List<Long> getGameIds(String player) {
+        PlayerEntry entry = players.get(player);
+        return (entry == null) ? Collections.<Long>emptyList() : new ArrayList<Long>(entry.ids);
+    }
+
+    /**
+     * @return {wins, draws, losses} of a player over the stored games.
+     */
+    public synchronized int[] getStatistics(String player) {
+        PlayerEntry entry = players.get(player);
+        return (entry == null) ? new int[3] : entry.counts.clone();
+    }
+
+    /**
+     * Set the wins, draws and losses of a Player to those in the store.
+     */
+    public void restoreStatistics(Player player) {
+        int[] counts = getStatistics(player.getName());
+        player.setStatistics(counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Write the queued games and close the segments. Games appended later fail.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(new Append(null));    // wakes the writer up and stops it
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+
+    /**
+     * The writer thread: group commit of everything queued since the last fsync.
+     */
+    private void write() {
+        List<Append> batch = new ArrayList<Append>();
+        boolean running = true;
+        while (running) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+            if (batch.get(batch.size() - 1).record == null) {
+                batch.remove(batch.size() - 1);
+                running = false;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            IOException failed;
+            synchronized (this) {
+                failed = failure;
+            }
+            try {
+                if (failed != null) {
+                    throw new IOException("Store failed", failed);
+                }
+                commit(batch);
+            } catch (IOException e) {
+                for (Append append : batch) {
+                    append.future.completeExceptionally(e);
+                }
+            } catch (RuntimeException e) {
+                // A bug rather than a disk error: fail this batch and the store, but keep the thread
+                // alive so close() and later appends do not wait for it forever.
+                System.out.println("Failed to store games in " + directory + ": " + e);
+                IOException error = new IOException("Store failed", e);
+                synchronized (this) {
+                    if (failure == null) {
+                        failure = error;
+                    }
+                }
+                for (Append append : batch) {
+                    append.future.completeExceptionally(error);
+                }
+            }
+        }
+    }
+
+    private void commit(List<Append> batch) throws IOException {
+        int startSegment = segment;
+        long startPosition = position;
+        long[] offsets = new long[batch.size()];
+        List<GameRecord> records;
+        try {
+            records = writeRecords(batch, offsets);
+        } catch (IOException e) {
+            rollback(startSegment, startPosition);
+            throw e;
+        } catch (RuntimeException e) {
+            rollback(startSegment, startPosition);
+            throw e;
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < records.size(); i++) {
+                index(records.get(i), offsets[i]);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(records.get(i).getId());
+        }
+    }
+
+    /**
+     * Give the records of a batch their ids and write them to the segments.
+     * @param offsets set to the locations of the records.
+     * @return the records with their ids.
+     */
+    private List<GameRecord> writeRecords(List<Append> batch, long[] offsets) throws IOException {
+        long next;
+        synchronized (this) {
+            next = size;
+        }
+        List<GameRecord> records = new ArrayList<GameRecord>(batch.size());
+        int bytes = 0;
+        for (Append append : batch) {
+            GameRecord record = append.record.withId(next++);
+            records.add(record);
+            bytes += HEADER + record.getEncodedSize();
+        }
+
+        // A batch larger than the rest of the segment is split, with the rest going to new segments.
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < records.size(); i++) {
+            GameRecord record = records.get(i);
+            if (position + buffer.position() > 0
+                    && position + buffer.position() + HEADER + record.getEncodedSize() > segmentSize) {
+                flush(buffer);
+                channel.close();
+                segment++;
+                channel = new RandomAccessFile(getFile(segment), "rw").getChannel();
+                position = 0;
+            }
+            int start = buffer.position();
+            offsets[i] = (long) segment << 32 | (position + start);
+            buffer.position(start + HEADER);
+            record.encode(buffer);
+            int length = buffer.position() - start - HEADER;
+            crc.reset();
+            crc.update(buffer.array(), start + HEADER, length);
+            buffer.putInt(start, length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        flush(buffer);
+        return records;
+    }
+
+    /**
+     * Remove what a failed batch wrote: delete the segments it started and cut the segment it started
+     * in back to the end of the last committed record. If that fails as well, the store is failed.
+     */
+    private void rollback(int startSegment, long startPosition) {
+        try {
+            if (segment != startSegment) {
+                channel.close();
+                for (int number = segment; number > startSegment; number--) {
+                    File file = getFile(number);
+                    if (file.exists() && !file.delete()) {
+                        throw new IOException("Cannot delete " + file);
+                    }
+                }
+                segment = startSegment;
+                channel = new RandomAccessFile(getFile(segment), "rw").getChannel();
+            }
+            channel.truncate(startPosition);
+            channel.position(startPosition);
+            channel.force(false);
+            position = startPosition;
+        } catch (IOException e) {
+            System.out.println("Cannot undo a failed write in " + directory + ": " + e.getMessage());
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Write the records in a buffer at the end of the current segment and force them to disk.
+     */
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            writeSegment(channel, buffer);
+        }
+        channel.force(false);
+        position += bytes;
+        buffer.clear();
+    }
+
+    /**
+     * Write a buffer to a segment. Package-private so tests can make writes fail.
+     */
+    int writeSegment(FileChannel channel, ByteBuffer buffer) throws IOException {
+        return channel.write(buffer);
+    }
+
+    /**
+     * Index the records of a segment, truncating a torn record at the end of the last segment.
+     */
+    private void scan(int number, boolean last) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getFile(number), "rw");
+        try {
+            long length = file.length();
+            ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            CRC32 crc = new CRC32();
+            int offset = 0;
+            while (offset < length) {
+                int bodyLength = (offset + HEADER <= length) ? buffer.getInt(offset) : -1;
+                boolean valid = bodyLength > 0 && offset + HEADER + (long) bodyLength <= length;
+                if (valid) {
+                    byte[] bytes = new byte[bodyLength];
+                    ByteBuffer body = buffer.duplicate();
+                    body.position(offset + HEADER);
+                    body.get(bytes);
+                    crc.reset();
+                    crc.update(bytes);
+                    valid = (int) crc.getValue() == buffer.getInt(offset + 4);
+                }
+                GameRecord record = null;
+                if (valid) {
+                    ByteBuffer body = buffer.duplicate();
+                    body.position(offset + HEADER);
+                    body.limit(offset + HEADER + bodyLength);
+                    try {
+                        record = GameRecord.decode(body);
+                    } catch (RuntimeException e) {
+                        // A record written by a faulty writer: its CRC is right, its body is not.
+                        valid = false;
+                    }
+                }
+                if (!valid) {
+                    if (!last) {
+                        throw new IOException("Corrupt record at " + offset + " in " + getFile(number));
+                    }
+                    System.out.println("Truncating " + getFile(number) + " at " + offset);
+                    file.setLength(offset);
+                    break;
+                }
+
+                if (record.getId() != size) {
+                    throw new IOException("Expected game " + size + " but found " + record.getId()
+                            + " in " + getFile(number));
+                }
+                index(record, (long) number << 32 | offset);
+                offset += HEADER + bodyLength;
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Add a stored record to the index (guarded by this).
+     */
+    private void index(GameRecord record, long location) {
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, 2 * size);
+        }
+        locations[size++] = location;
+
+        GameResult result = record.getResult();
+        String[] names = {record.getWhite(), record.getBlack()};
+        for (int color = 0; color < 2; color++) {
+            PlayerEntry entry = players.get(names[color]);
+            if (entry == null) {
+                entry = new PlayerEntry();
+                players.put(names[color], entry);
+            }
+            entry.ids.add(record.getId());
+            entry.counts[2 - result.getPoints(color)]++;
+        }
+    }
+
+    /**
+     * @return a buffer positioned at a record (guarded by this), mapping the segment again if it grew.
+     */
+    private ByteBuffer getBuffer(int number, int offset) throws IOException {
+        while (mapped.size() <= number) {
+            mapped.add(null);
+        }
+        MappedByteBuffer buffer = mapped.get(number);
+        if (buffer == null || offset + HEADER > buffer.capacity()
+                || offset + HEADER + buffer.getInt(offset) > buffer.capacity()) {
+            RandomAccessFile file = new RandomAccessFile(getFile(number), "r");
+            try {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            } finally {
+                file.close();
+            }
+            mapped.set(number, buffer);
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return view;
+    }
+
+    private File getFile(int number) {
+        return new File(directory, getName(number));
+    }
+
+    private static String getName(int number) {
+        return String.format("%s%05d%s", PREFIX, number, SUFFIX);
+    }
+}
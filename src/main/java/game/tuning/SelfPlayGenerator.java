@@ -0,0 +1,241 @@
+package game.tuning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import game.Board;
+import game.BoardSize;
+import game.GameResult;
+import game.GameStatus;
+import game.Move;
+import game.Player;
+import game.engine.Evaluation;
+import game.engine.Search;
+import game.engine.SearchInfo;
+import game.engine.TranspositionTable;
+import game.piece.PieceColor;
+
+
+/**
+ * Generates training data for the evaluation by self-play: fast games of shallow searches, with the
+ * positions labeled by the score of the search and the result of the game.
+ *
+ * Every worker thread plays games on a Board, Search and TranspositionTable of its own, so workers share
+ * nothing but the writer and a counter of positions. A game starts with a few random Moves, for
+ * variety, and is then played by the Search at a fixed depth until it is over or reaches MAX_PLIES,
+ * which counts as a draw. Only quiet positions are kept: not in check, with a best Move that is no
+ * capture and no mate found. Their records are collected per game, labeled once the result is known and
+ * copied into the worker's chunk, which goes to the writer when full.
+ *
+ * Usage: java game.tuning.SelfPlayGenerator file [-size rows columns] [-threads n] [-depth d]
+ *        [-positions n] [-seed s]
+ */
+public class SelfPlayGenerator {
+    public static final int RANDOM_PLIES = 8;
+    public static final int MAX_PLIES = 300;
+
+    private final BoardSize size;
+    private final int depth;
+    private final int threads;
+    private final long seed;
+    private final Evaluation evaluation;
+
+
+    /**
+     * @param size size of the board of all games
+     * @param depth depth of the search of every Move
+     * @param threads number of games played at the same time
+     * @param seed seed of the random openings; worker i uses seed + i.
+     */
+    public SelfPlayGenerator(BoardSize size, int depth, int threads, long seed) {
+        this.size = size;
+        this.depth = depth;
+        this.threads = threads;
+        this.seed = seed;
+        this.evaluation = new Evaluation();
+    }
+
+
+    /**
+     * Play games until at least a number of positions has been written. Games in progress when the
+     * number is reached are finished, so a few more may be written.
+     * @param writer writer for the size of the board of this generator.
+     * @param positions the number of positions to write.
+     * @return the number of positions written.
+     */
+    public long generate(final TrainingDataWriter writer, final long positions) throws IOException, InterruptedException {
+        if (!writer.getSize().equals(size)) {
+            throw new IllegalArgumentException("Writer for " + writer.getSize() + ", games on " + size);
+        }
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong games = new AtomicLong();
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "self-play-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long start = System.nanoTime();
+        List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+        for (int i = 0; i < threads; i++) {
+            final Random random = new Random(seed + i);
+            tasks.add(workers.submit(new Callable<Void>() {
+                public Void call() throws IOException {
+                    play(writer, random, written, games, positions);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Positions: %d from %d games in %.1f s, %d positions/s",
+                written.get(), games.get(), seconds, (long) (written.get() / seconds)));
+        return written.get();
+    }
+
+    /**
+     * The loop of a worker: play games until enough positions are written.
+     */
+    private void play(TrainingDataWriter writer, Random random, AtomicLong written, AtomicLong games,
+                      long positions) throws IOException {
+        Search search = new Search(evaluation);
+        TranspositionTable table = new TranspositionTable(4);
+        search.setTranspositionTable(table);
+        ByteBuffer game = ByteBuffer.allocate(MAX_PLIES * TrainingRecord.MAX_SIZE);
+        ByteBuffer chunk = ByteBuffer.allocate(TrainingDataWriter.CHUNK_SIZE);
+        int[] results = new int[MAX_PLIES];
+        int inChunk = 0;
+
+        while (written.get() < positions && !Thread.currentThread().isInterrupted()) {
+            table.clear();
+            game.clear();
+            int records = playGame(search, random, game, results);
+            games.incrementAndGet();
+            if (records == 0) {
+                continue;
+            }
+            if (chunk.remaining() < game.position()) {
+                writer.write(chunk, inChunk);
+                inChunk = 0;
+            }
+            game.flip();
+            chunk.put(game);
+            inChunk += records;
+            written.addAndGet(records);
+        }
+        writer.write(chunk, inChunk);
+    }
+
+    /**
+     * Play one game and encode its quiet positions.
+     * @param game buffer for the records, which are labeled with the result at the end.
+     * @param results scratch space for the offsets of the result bytes.
+     * @return the number of records.
+     */
+    private int playGame(Search search, Random random, ByteBuffer game, int[] results) {
+        Board board = new Board(new Player("WHITE", PieceColor.WHITE), new Player("BLACK", PieceColor.BLACK), size);
+        int color = 0;
+        for (int ply = 0; ply < RANDOM_PLIES; ply++) {
+            List<Move> moves = board.getAllValidMovesByPlayer(color);
+            if (moves.isEmpty()) {
+                return 0;
+            }
+            board.makeMove(moves.get(random.nextInt(moves.size())));
+            color = 1 - color;
+        }
+
+        int records = 0;
+        GameResult result = GameResult.DRAW;
+        for (int ply = RANDOM_PLIES; ply < MAX_PLIES; ply++) {
+            GameStatus status = board.getStatus(color);
+            if (status.isGameOver()) {
+                result = GameResult.of(status, color);
+                break;
+            }
+            SearchInfo info = search.search(board, color, depth, null);
+            Move move = info.getBestMove();
+            if (move == null) {
+                break;
+            }
+            boolean capture = board.getPiece(move.getDestX(), move.getDestY()) != null;
+            if (status == GameStatus.ACTIVE && !capture && !info.isMate()) {
+                TrainingRecord.encode(board, color, info.getScore(), 0, game);
+                results[records++] = game.position() - 1;
+            }
+            board.makeMove(move);
+            color = 1 - color;
+        }
+
+        for (int i = 0; i < records; i++) {
+            game.put(results[i], (byte) result.getPoints(0));
+        }
+        return records;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        String file = null;
+        BoardSize size = BoardSize.STANDARD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 3;
+        long positions = 100000;
+        long seed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-size")) {
+                size = BoardSize.of(Integer.parseInt(args[++i]), Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-depth")) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-positions")) {
+                positions = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: java game.tuning.SelfPlayGenerator file [-size rows columns] [-threads n] "
+                    + "[-depth d] [-positions n] [-seed s]");
+            return;
+        }
+
+        TrainingDataWriter writer = new TrainingDataWriter(new File(file), size);
+        try {
+            new SelfPlayGenerator(size, depth, threads, seed).generate(writer, positions);
+        } finally {
+            writer.close();
+        }
+    }
+}
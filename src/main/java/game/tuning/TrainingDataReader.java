@@ -0,0 +1,76 @@
+package game.tuning;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import game.BoardSize;
+
+
+/**
+ * Reads a file written by TrainingDataWriter, one chunk at a time.
+ */
+public class TrainingDataReader implements Closeable {
+    private final BoardSize size;
+    private final DataInputStream in;
+    private ByteBuffer chunk;
+    private int remaining;
+
+
+    /**
+     * @throws IOException if the file is not a training data file.
+     */
+    public TrainingDataReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), TrainingDataWriter.CHUNK_SIZE));
+        try {
+            if (in.readInt() != TrainingDataWriter.MAGIC || in.readShort() != TrainingDataWriter.VERSION) {
+                throw new IOException("Not a training data file: " + file);
+            }
+            this.size = BoardSize.of(in.readUnsignedByte(), in.readUnsignedByte());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        this.chunk = ByteBuffer.allocate(TrainingDataWriter.CHUNK_SIZE);
+    }
+
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * @return the next record, null at the end of the file.
+     * @throws IOException if a chunk is cut short.
+     */
+    public TrainingRecord next() throws IOException {
+        while (remaining == 0) {
+            int count;
+            try {
+                count = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length > chunk.capacity()) {
+                chunk = ByteBuffer.allocate(length);
+            }
+            chunk.clear();
+            in.readFully(chunk.array(), 0, length);
+            chunk.limit(length);
+            remaining = count;
+        }
+        remaining--;
+        return TrainingRecord.decode(size, chunk);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
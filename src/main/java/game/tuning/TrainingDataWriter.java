@@ -0,0 +1,81 @@
+package game.tuning;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import game.BoardSize;
+
+
+/**
+ * Writes a file of TrainingRecords of one board size.
+ *
+ * The file starts with the magic "TRNG", a short version and a byte each for the rows and columns of
+ * the board. It continues with chunks, each an int number of records, an int length in bytes and the
+ * records. Producers fill chunks of their own and hand over whole chunks, so the lock is taken once per
+ * chunk rather than once per record, and the file is written through a large buffer.
+ *
+ * Thread-safe.
+ */
+public class TrainingDataWriter implements Closeable {
+    static final int MAGIC = ('T' << 24) | ('R' << 16) | ('N' << 8) | 'G';
+    static final short VERSION = 1;
+
+    /**
+     * Size of the chunks producers should fill before calling write().
+     */
+    public static final int CHUNK_SIZE = 64 << 10;
+
+    private final BoardSize size;
+    private final DataOutputStream out;
+    private long records;
+
+
+    public TrainingDataWriter(File file, BoardSize size) throws IOException {
+        this.size = size;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 4 * CHUNK_SIZE));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(size.getRows());
+        out.writeByte(size.getColumns());
+    }
+
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    /**
+     * Append a chunk of records.
+     * @param chunk the records encoded by TrainingRecord.encode() from position 0 to the position of
+     *              the buffer, which is cleared afterwards.
+     * @param count number of records in the chunk.
+     */
+    public synchronized void write(ByteBuffer chunk, int count) throws IOException {
+        if (count == 0) {
+            chunk.clear();
+            return;
+        }
+        out.writeInt(count);
+        out.writeInt(chunk.position());
+        out.write(chunk.array(), chunk.arrayOffset(), chunk.position());
+        records += count;
+        chunk.clear();
+    }
+
+    /**
+     * @return the number of records written so far.
+     */
+    public synchronized long getNoOfRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,190 @@
+package game.tuning;
+
+import java.nio.ByteBuffer;
+
+import game.Board;
+import game.BoardSize;
+import game.SquareSet;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+
+/**
+ * A labeled position for training an evaluation: the pieces, the player to move, the score of a search
+ * and the result of the game the position was played in.
+ *
+ * Encoded in 20 bytes plus half a byte per piece:
+ * <pre>
+ *     long low and long high word of the occupied squares (square x * columns + y),
+ *     one nibble per occupied square in square order: PieceType ordinal | 8 for black, padded to a byte,
+ *     byte player to move, short score in centipawns for the player to move,
+ *     byte result for white: 0 loss, 1 draw, 2 win.
+ * </pre>
+ * The size of the board is not part of the record but of the file, see TrainingDataWriter.
+ */
+public final class TrainingRecord {
+    /**
+     * Largest number of bytes of an encoded record.
+     */
+    public static final int MAX_SIZE = 20 + BoardSize.MAX_SQUARES / 2;
+
+    private final BoardSize size;
+    private final int[] squares;
+    private final byte[] pieces;
+    private final int color;
+    private final int score;
+    private final int result;
+
+
+    private TrainingRecord(BoardSize size, int[] squares, byte[] pieces, int color, int score, int result) {
+        this.size = size;
+        this.squares = squares;
+        this.pieces = pieces;
+        this.color = color;
+        this.score = score;
+        this.result = result;
+    }
+
+    /**
+     * Encode a position of a Board at the position of a buffer, which is advanced past it.
+     * @param board the Board
+     * @param color 0 for white and 1 for black, the player to move.
+     * @param score score of the position in centipawns for the player to move, clamped to a short.
+     * @param result result of the game for white: 0 loss, 1 draw, 2 win.
+     */
+    public static void encode(Board board, int color, int score, int result, ByteBuffer out) {
+        int columns = board.getSize().getColumns();
+        SquareSet occupied = SquareSet.EMPTY;
+        for (int i = 0; i < board.getSize().getSquares(); i++) {
+            if (board.getPiece(i / columns, i % columns) != null) {
+                occupied = occupied.with(i);
+            }
+        }
+        out.putLong(occupied.getLow());
+        out.putLong(occupied.getHigh());
+
+        int nibbles = 0;
+        int pending = 0;
+        for (int i = occupied.first(); i >= 0; i = occupied.next(i + 1)) {
+            ChessPiece piece = board.getPiece(i / columns, i % columns);
+            int code = piece.getType().ordinal() | ((piece.getColor() == PieceColor.BLACK) ? 8 : 0);
+            pending = pending << 4 | code;
+            if (++nibbles % 2 == 0) {
+                out.put((byte) pending);
+                pending = 0;
+            }
+        }
+        if (nibbles % 2 == 1) {
+            out.put((byte) (pending << 4));
+        }
+        out.put((byte) color);
+        out.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+        out.put((byte) result);
+    }
+
+    /**
+     * Decode a record at the position of a buffer, which is advanced past it.
+     */
+    public static TrainingRecord decode(BoardSize size, ByteBuffer in) {
+        SquareSet occupied = SquareSet.fromWords(in.getLong(), in.getLong());
+        int[] squares = new int[occupied.size()];
+        byte[] pieces = new byte[squares.length];
+        int n = 0;
+        int current = 0;
+        for (int i = occupied.first(); i >= 0; i = occupied.next(i + 1)) {
+            if (n % 2 == 0) {
+                current = in.get() & 0xFF;
+            }
+            squares[n] = i;
+            pieces[n] = (byte) ((n % 2 == 0) ? current >>> 4 : current & 15);
+            n++;
+        }
+        int color = in.get();
+        int score = in.getShort();
+        int result = in.get();
+        return new TrainingRecord(size, squares, pieces, color, score, result);
+    }
+
+
+    public BoardSize getSize() {
+        return size;
+    }
+
+    public int getNoOfPieces() {
+        return squares.length;
+    }
+
+    /**
+     * @return the square x * columns + y of the i-th piece, in square order.
+     */
+    public int getSquare(int i) {
+        return squares[i];
+    }
+
+    public PieceType getType(int i) {
+        return PieceType.values()[pieces[i] & 7];
+    }
+
+    /**
+     * @return 0 if the i-th piece is white, 1 if it is black.
+     */
+    public int getColor(int i) {
+        return pieces[i] >>> 3;
+    }
+
+    /**
+     * @return 0 for white and 1 for black, the player to move.
+     */
+    public int getColorToMove() {
+        return color;
+    }
+
+    /**
+     * @return the score of the search in centipawns for the player to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the result of the game for white: 0 loss, 1 draw, 2 win.
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * @return a new Board with the pieces of the record and its player to move, see Board.fromFen().
+     */
+    public Board toBoard() {
+        int columns = size.getColumns();
+        char[][] rows = new char[size.getRows()][columns];
+        for (int i = 0; i < squares.length; i++) {
+            char letter = getType(i).getLetter();
+            rows[squares[i] / columns][squares[i] % columns] = (getColor(i) == 0) ? letter : Character.toLowerCase(letter);
+        }
+        StringBuilder fen = new StringBuilder();
+        for (int x = 0; x < rows.length; x++) {
+            int empty = 0;
+            for (int y = 0; y < columns; y++) {
+                if (rows[x][y] == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(rows[x][y]);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (x < rows.length - 1) {
+                fen.append('/');
+            }
+        }
+        return Board.fromFen(fen.toString(), color);
+    }
+}
@@ -0,0 +1,391 @@
+package game.tuning;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import game.engine.Evaluation;
+import game.piece.PieceType;
+
+
+/**
+ * Tunes the weights of the Evaluation on labeled positions, Texel style: the score of a position is
+ * mapped to an expected result by the sigmoid 1 / (1 + 10^(-k * score / 400)), and the weights are
+ * changed to minimize the mean squared difference to the target of every position.
+ *
+ * The target blends the result of the game with the score of the search that played it, mapped by the
+ * same sigmoid: lambda * result + (1 - lambda) * sigmoid(search score). The scaling k is fitted to the
+ * starting weights first and kept fixed.
+ *
+ * Since the Evaluation is linear in its weights, the gradient of the error is exact and cheap. Every
+ * epoch shuffles the positions and takes an Adam step per mini-batch; the error and gradient of a batch
+ * are computed in parallel by a ForkJoinPool over slices of the TuningSet. After every epoch the error
+ * over all positions is measured, and the best weights so far are written to the checkpoint file.
+ *
+ * Usage: java game.tuning.Tuner data [-weights file] [-out file] [-epochs n] [-batch n] [-rate r]
+ *        [-lambda l] [-threads n]
+ */
+public class Tuner {
+    /** Positions below which a task is not split. */
+    private static final int SLICE = 8192;
+    private static final double LN10_400 = Math.log(10) / 400;
+
+    private final TuningSet data;
+    private final ForkJoinPool pool;
+    private final double lambda;
+    private double scaling = 1;
+
+
+    /**
+     * @param data the positions
+     * @param threads parallelism of the ForkJoinPool
+     * @param lambda weight of the result of the game in the target, 1 - lambda that of the search.
+     */
+    public Tuner(TuningSet data, int threads, double lambda) {
+        this.data = data;
+        this.pool = new ForkJoinPool(threads);
+        this.lambda = lambda;
+    }
+
+
+    /**
+     * @return the scaling k of the sigmoid.
+     */
+    public double getScaling() {
+        return scaling;
+    }
+
+    public void setScaling(double scaling) {
+        this.scaling = scaling;
+    }
+
+    /**
+     * Find the scaling k that minimizes the error of a set of weights by golden-section search, and use it.
+     * @return the scaling.
+     */
+    public double fitScaling(int[] weights) {
+        double[] w = toDouble(weights);
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = 0.05;
+        double high = 5;
+        for (int i = 0; i < 40; i++) {
+            double a = high - ratio * (high - low);
+            double b = low + ratio * (high - low);
+            scaling = a;
+            double errorA = getError(w);
+            scaling = b;
+            double errorB = getError(w);
+            if (errorA < errorB) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        scaling = (low + high) / 2;
+        return scaling;
+    }
+
+    /**
+     * @return the mean squared error of a set of weights over all positions.
+     */
+    public double getError(int[] weights) {
+        return getError(toDouble(weights));
+    }
+
+    private double getError(double[] weights) {
+        if (data.size() == 0) {
+            return 0;
+        }
+        return pool.invoke(new Slice(weights, null, 0, data.size(), false))[0] / data.size();
+    }
+
+    /**
+     * Tune a set of weights.
+     * @param initial the starting weights, see Evaluation.getWeights().
+     * @param epochs number of passes over the positions
+     * @param batchSize positions per step
+     * @param rate step size of Adam in centipawns
+     * @param seed seed of the shuffling
+     * @param checkpoint file to write the best weights to after every improving epoch, may be null.
+     * @return the weights with the smallest error over all positions.
+     */
+    public int[] tune(int[] initial, int epochs, int batchSize, double rate, long seed, File checkpoint)
+            throws IOException {
+        int n = Evaluation.NO_OF_WEIGHTS;
+        double[] weights = toDouble(initial);
+        double[] moment = new double[n];
+        double[] velocity = new double[n];
+        int[] order = new int[data.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        int[] best = initial.clone();
+        double bestError = getError(weights);
+        System.out.println(String.format("Positions: %d, scaling %.4f, error %.6f", data.size(), scaling, bestError));
+
+        long step = 0;
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            long start = System.currentTimeMillis();
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            for (int from = 0; from < order.length; from += batchSize) {
+                int to = Math.min(order.length, from + batchSize);
+                double[] gradient = pool.invoke(new Slice(weights, order, from, to, true));
+                step++;
+                double correction1 = 1 - Math.pow(0.9, step);
+                double correction2 = 1 - Math.pow(0.999, step);
+                for (int i = 0; i < n; i++) {
+                    double g = gradient[i + 1] / (to - from);
+                    moment[i] = 0.9 * moment[i] + 0.1 * g;
+                    velocity[i] = 0.999 * velocity[i] + 0.001 * g * g;
+                    weights[i] -= rate * (moment[i] / correction1) / (Math.sqrt(velocity[i] / correction2) + 1e-8);
+                }
+            }
+
+            int[] rounded = toInt(weights);
+            double error = getError(rounded);
+            System.out.println(String.format("Epoch %d: error %.6f in %d ms", epoch, error,
+                    System.currentTimeMillis() - start));
+            if (error < bestError) {
+                bestError = error;
+                best = rounded;
+                if (checkpoint != null) {
+                    writeWeights(checkpoint, best);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stop the threads of the ForkJoinPool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+
+    /**
+     * Error, and optionally gradient, of a slice of positions.
+     */
+    private class Slice extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        private final double[] weights;
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final boolean gradient;
+
+        /**
+         * @param order positions in the order of the slice, null for 0 to size - 1.
+         */
+        Slice(double[] weights, int[] order, int from, int to, boolean gradient) {
+            this.weights = weights;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.gradient = gradient;
+        }
+
+        /**
+         * @return the sum of the errors, followed by the sums of the gradient if requested.
+         */
+        @Override
+        protected double[] compute() {
+            if (to - from > SLICE) {
+                int middle = (from + to) >>> 1;
+                Slice left = new Slice(weights, order, from, middle, gradient);
+                left.fork();
+                double[] sum = new Slice(weights, order, middle, to, gradient).compute();
+                double[] other = left.join();
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += other[i];
+                }
+                return sum;
+            }
+
+            double[] sum = new double[gradient ? 1 + Evaluation.NO_OF_WEIGHTS : 1];
+            short[] pieces = data.pieces;
+            int[] offsets = data.offsets;
+            for (int k = from; k < to; k++) {
+                int i = (order == null) ? k : order[k];
+                double score = 0;
+                for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                    int piece = pieces[p];
+                    int type = piece & 7;
+                    double value = weights[type] + weights[8 + type * 64 + (piece >>> 4)];
+                    score += ((piece & 8) == 0) ? value : -value;
+                }
+                double expected = sigmoid(score);
+                double target = lambda * data.results[i] / 2 + (1 - lambda) * sigmoid(data.scores[i]);
+                double difference = target - expected;
+                sum[0] += difference * difference;
+                if (gradient) {
+                    // d error / d score; d score / d weight is +1 or -1 per piece.
+                    double slope = -2 * difference * expected * (1 - expected) * scaling * LN10_400;
+                    for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                        int piece = pieces[p];
+                        int type = piece & 7;
+                        double g = ((piece & 8) == 0) ? slope : -slope;
+                        sum[1 + type] += g;
+                        sum[1 + 8 + type * 64 + (piece >>> 4)] += g;
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+
+    private double sigmoid(double score) {
+        return 1 / (1 + Math.pow(10, -scaling * score / 400));
+    }
+
+    private static double[] toDouble(int[] weights) {
+        double[] result = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            result[i] = weights[i];
+        }
+        return result;
+    }
+
+    private static int[] toInt(double[] weights) {
+        int[] result = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            result[i] = (int) Math.round(weights[i]);
+        }
+        return result;
+    }
+
+
+    /**
+     * Write weights as text: the material on one line, then every piece-square table as 8 rows of 8,
+     * each table after a comment with the name of its PieceType. Written to a temporary file first and
+     * then renamed, so a crash leaves the previous checkpoint intact.
+     */
+    public static void writeWeights(File file, int[] weights) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        PrintWriter out = new PrintWriter(new FileWriter(temporary));
+        try {
+            out.println("# material");
+            for (int type = 0; type < 8; type++) {
+                out.print(String.format("%5d", weights[type]));
+            }
+            out.println();
+            for (PieceType type : PieceType.values()) {
+                out.println("# " + type);
+                for (int square = 0; square < 64; square++) {
+                    out.print(String.format("%5d", weights[Evaluation.getWeightIndex(type, square)]));
+                    if (square % 8 == 7) {
+                        out.println();
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Could not write " + temporary);
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            throw new IOException("Could not rename " + temporary + " to " + file);
+        }
+    }
+
+    /**
+     * Read weights written by writeWeights(); lines starting with '#' are skipped.
+     * @throws IOException if the file does not hold Evaluation.NO_OF_WEIGHTS numbers.
+     */
+    public static int[] readWeights(File file) throws IOException {
+        List<Integer> values = new ArrayList<Integer>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                for (String token : line.split("\\s+")) {
+                    values.add(Integer.parseInt(token));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a weights file: " + file, e);
+        } finally {
+            in.close();
+        }
+        if (values.size() != Evaluation.NO_OF_WEIGHTS) {
+            throw new IOException("Expected " + Evaluation.NO_OF_WEIGHTS + " weights in " + file + ", got " + values.size());
+        }
+        int[] weights = new int[values.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = values.get(i);
+        }
+        return weights;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        String file = null;
+        String initial = null;
+        String output = "weights.txt";
+        int epochs = 10;
+        int batch = 16384;
+        double rate = 1;
+        double lambda = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-weights")) {
+                initial = args[++i];
+            } else if (args[i].equals("-out")) {
+                output = args[++i];
+            } else if (args[i].equals("-epochs")) {
+                epochs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-batch")) {
+                batch = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-rate")) {
+                rate = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-lambda")) {
+                lambda = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: java game.tuning.Tuner data [-weights file] [-out file] [-epochs n] "
+                    + "[-batch n] [-rate r] [-lambda l] [-threads n]");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        TuningSet data = new TuningSet();
+        TrainingDataReader reader = new TrainingDataReader(new File(file));
+        try {
+            data.addAll(reader);
+        } finally {
+            reader.close();
+        }
+        System.out.println("Loaded " + data.size() + " positions in " + (System.currentTimeMillis() - start) + " ms");
+
+        int[] weights = (initial == null) ? Evaluation.getDefaultWeights() : readWeights(new File(initial));
+        Tuner tuner = new Tuner(data, threads, lambda);
+        tuner.fitScaling(weights);
+        tuner.tune(weights, epochs, batch, rate, 0, new File(output));
+        tuner.shutdown();
+    }
+}
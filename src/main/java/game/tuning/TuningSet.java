@@ -0,0 +1,76 @@
+package game.tuning;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import game.engine.Evaluation;
+
+
+/**
+ * Labeled positions held in memory for the Tuner, in primitive arrays rather than objects: tens of
+ * millions of positions take a few hundred megabytes and are scanned without pointer chasing.
+ *
+ * Every piece is a short: PieceType ordinal | color << 3 | square of the piece-square table << 4, see
+ * Evaluation.getTableSquare(). The pieces of position i are those from offsets[i] to offsets[i + 1].
+ * Scores are stored for white, results as 0 for a loss of white, 1 for a draw and 2 for a win.
+ */
+public class TuningSet {
+    short[] pieces;
+    int[] offsets;
+    short[] scores;
+    byte[] results;
+    int size;
+
+
+    public TuningSet() {
+        this.pieces = new short[1 << 16];
+        this.offsets = new int[1 << 12];
+        this.scores = new short[offsets.length];
+        this.results = new byte[offsets.length];
+    }
+
+
+    /**
+     * Read all records of a file.
+     * @return this
+     */
+    public TuningSet addAll(TrainingDataReader reader) throws IOException {
+        TrainingRecord record;
+        while ((record = reader.next()) != null) {
+            add(record);
+        }
+        return this;
+    }
+
+    public void add(TrainingRecord record) {
+        int rows = record.getSize().getRows();
+        int columns = record.getSize().getColumns();
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            scores = Arrays.copyOf(scores, offsets.length);
+            results = Arrays.copyOf(results, offsets.length);
+        }
+        int start = offsets[size];
+        if (start + record.getNoOfPieces() > pieces.length) {
+            pieces = Arrays.copyOf(pieces, 2 * pieces.length);
+        }
+        for (int i = 0; i < record.getNoOfPieces(); i++) {
+            int color = record.getColor(i);
+            int square = Evaluation.getTableSquare(rows, columns, record.getSquare(i) / columns,
+                    record.getSquare(i) % columns, color);
+            pieces[start + i] = (short) (record.getType(i).ordinal() | color << 3 | square << 4);
+        }
+        offsets[size + 1] = start + record.getNoOfPieces();
+        int score = (record.getColorToMove() == 0) ? record.getScore() : -record.getScore();
+        scores[size] = (short) Math.min(Short.MAX_VALUE, score);
+        results[size] = (byte) record.getResult();
+        size++;
+    }
+
+    /**
+     * @return the number of positions.
+     */
+    public int size() {
+        return size;
+    }
+}
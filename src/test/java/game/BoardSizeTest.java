@@ -0,0 +1,87 @@
+package game;
+
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class BoardSizeTest {
+
+    private Player player1;
+    private Player player2;
+
+    @Before
+    public void setUp() {
+        player1 = new Player("player1", PieceColor.WHITE);
+        player2 = new Player("player2", PieceColor.BLACK);
+    }
+
+    @Test
+    public void startingPositions() throws Exception {
+        Board xiangqi = new Board(player1, player2, BoardSize.XIANGQI);
+        assertEquals(PieceType.KING, xiangqi.getPiece(9, 4).getType());
+        assertEquals(PieceType.ALFIL, xiangqi.getPiece(0, 5).getType());
+        assertEquals(PieceType.PAWN, xiangqi.getPiece(8, 8).getType());
+        assertNull(xiangqi.getPiece(5, 4));
+        // 9 pawns, 9 pieces, 2 Alfil jumps and 2 moves of each Knight.
+        assertEquals(9 * 2 + 2 + 4, xiangqi.getAllValidMovesByPlayer(0).size());
+
+        Board large = new Board(player1, player2, BoardSize.LARGE);
+        assertEquals(PieceType.KING, large.getPiece(0, 5).getType());
+        assertEquals(PieceType.ALFIL, large.getPiece(9, 7).getType());
+        assertEquals(large.getAllValidMovesByPlayer(0).size(), large.getAllValidMovesByPlayer(1).size());
+    }
+
+    @Test
+    public void squaresAboveTheFirstWord() throws Exception {
+        Board board = new Board(player1, player2, BoardSize.LARGE);
+        int columns = BoardSize.LARGE.getColumns();
+
+        // White pieces start on squares 80-99, all in the high word.
+        assertEquals(SquareSet.of(7 * columns, 7 * columns + 2), board.getDestinations(9 * columns + 1));
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 8, 4, 6, 4)));
+        assertTrue(board.getAttackedSquares(0).contains(5 * columns + 4));
+
+        Position position = board.getPosition();
+        assertEquals(BoardSize.LARGE, position.getSize());
+        assertEquals(SquareSet.of(8 * columns + 4, 6 * columns + 4),
+                position.diff(new Board(player1, player2, BoardSize.LARGE).getPosition()));
+        assertEquals(position, new Board(position).snapshot());
+        assertFalse(position.equals(new Board(player1, player2).getPosition()));
+    }
+
+    @Test
+    public void randomGame() throws Exception {
+        Board board = new Board(player1, player2, BoardSize.LARGE);
+        GameHistory history = new GameHistory(board);
+        Random random = new Random(36);
+        for (int ply = 0; ply < 120; ply++) {
+            int color = ply % 2;
+            LinkedList<Move> moves = board.getAllValidMovesByPlayer(color);
+            if (moves.isEmpty()) {
+                break;
+            }
+            for (Move move : moves) {
+                assertTrue(move.toString(), move.isMovePossible());
+            }
+            assertTrue(history.play(moves.get(random.nextInt(moves.size()))));
+        }
+        Position end = board.snapshot();
+
+        history.seek(0);
+        assertEquals(new Board(player1, player2, BoardSize.LARGE).snapshot(), board.snapshot());
+        history.seek(history.size());
+        assertEquals(end, board.snapshot());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManySquares() throws Exception {
+        BoardSize.of(13, 10);
+    }
+}
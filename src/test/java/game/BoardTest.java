@@ -189,4 +189,49 @@ public class BoardTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void fen() throws Exception {
+        for (BoardSize size : new BoardSize[] {BoardSize.STANDARD, BoardSize.XIANGQI, BoardSize.LARGE}) {
+            Board start = new Board(player1, player2, size);
+            assertEquals(start.snapshot(), Board.fromFen(start.toFen()).snapshot());
+        }
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", new Board(player1, player2).toFen());
+
+        // Cannons and Alfils; a pawn off its starting row has moved.
+        Board board = Board.fromFen("4k3/8/4c3/8/4P3/2A5/8/2C1K3");
+        assertEquals(PieceType.CANNON, board.getPiece(2, 4).getType());
+        assertEquals(PieceColor.BLACK, board.getPiece(2, 4).getColor());
+        assertEquals(PieceType.ALFIL, board.getPiece(5, 2).getType());
+        assertTrue(board.getPiece(4, 4).isHasMoved());
+        assertTrue(board.isChecked(0));
+        assertEquals("4k3/8/4c3/8/4P3/2A5/8/2C1K3", board.toFen());
+        assertEquals(BoardSize.LARGE, Board.fromFen("4k5/10/10/10/10/10/10/10/10/4K5").getSize());
+    }
+
+    @Test
+    public void trialMove() throws Exception {
+        Position start = board.getPosition();
+        long key = board.getKey();
+        Move push = new Move(PieceColor.WHITE, board, 6, 4, 4, 4);
+        board.makeTrialMove(push);
+        assertSame(start, board.getPosition());
+        assertTrue(board.getPiece(4, 4).isHasMoved());
+        assertNotEquals(key, board.getKey());
+        assertEquals(0, board.getHalfMoveClock());
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR", board.toFen());
+
+        board.undoTrialMove();
+        assertSame(start, board.getPosition());
+        assertEquals(key, board.getKey());
+        assertFalse(board.getPiece(6, 4).isHasMoved());
+        // The pawn can still make its double step.
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 4, 4)));
+        assertNotSame(start, board.getPosition());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fenWithUnknownPiece() throws Exception {
+        Board.fromFen("4k3/8/8/8/8/8/8/4KX2");
+    }
+
+}
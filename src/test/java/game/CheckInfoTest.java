@@ -0,0 +1,128 @@
+package game;
+
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class CheckInfoTest {
+
+    private Player player1;
+    private Player player2;
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        player1 = new Player("player1", PieceColor.WHITE);
+        player2 = new Player("player2", PieceColor.BLACK);
+
+        board = new Board(player1, player2);
+
+        //Remove all pawns to make movement easier.
+        for (int i = 0; i < 8; i++) {
+            board.removePiece(1, i);
+            board.removePiece(6, i);
+        }
+    }
+
+    @Test
+    public void pinnedPiece() throws Exception {
+        // White bishop on (6,4) is pinned by the black rook on (2,4).
+        board.addPiece(6, 4, new ChessPiece(PieceColor.WHITE, PieceType.BISHOP));
+        board.addPiece(2, 4, new ChessPiece(PieceColor.BLACK, PieceType.ROOK));
+
+        CheckInfo info = new CheckInfo(board, 0);
+        assertEquals(SquareSet.of(6*8+4), info.getPinned());
+        assertEquals(0, info.getNoOfCheckers());
+        assertEquals(CheckInfo.ILLEGAL, info.classify(new Move(PieceColor.WHITE, board, 6, 4, 5, 3)));
+
+        // Rook pinned on the same file can still slide towards the pinner.
+        board.addPiece(6, 4, new ChessPiece(PieceColor.WHITE, PieceType.ROOK));
+        info = new CheckInfo(board, 0);
+        assertEquals(CheckInfo.LEGAL, info.classify(new Move(PieceColor.WHITE, board, 6, 4, 2, 4)));
+        assertEquals(CheckInfo.ILLEGAL, info.classify(new Move(PieceColor.WHITE, board, 6, 4, 6, 5)));
+    }
+
+    @Test
+    public void checkMask() throws Exception {
+        // Black queen checks the white king along the file.
+        board.movePiece(new Move(PieceColor.BLACK, board, 0, 3, 2, 4));
+
+        CheckInfo info = new CheckInfo(board, 0);
+        assertEquals(1, info.getNoOfCheckers());
+        // Block with the white queen.
+        assertEquals(CheckInfo.LEGAL, info.classify(new Move(PieceColor.WHITE, board, 7, 3, 6, 4)));
+        // Unrelated rook move does not help.
+        assertEquals(CheckInfo.ILLEGAL, info.classify(new Move(PieceColor.WHITE, board, 7, 0, 6, 0)));
+        // King moves are always verified on the board.
+        assertEquals(CheckInfo.UNKNOWN, info.classify(new Move(PieceColor.WHITE, board, 7, 4, 6, 3)));
+    }
+
+    @Test
+    public void cannonScreen() throws Exception {
+        // Unscreened black cannon on the king's file.
+        board.addPiece(3, 4, new ChessPiece(PieceColor.BLACK, PieceType.CANNON));
+
+        CheckInfo info = new CheckInfo(board, 0);
+        assertEquals(0, info.getNoOfCheckers());
+        assertTrue(info.getCannonMask().contains(5*8+4));
+        // Putting a screen between cannon and king is not allowed.
+        assertEquals(CheckInfo.ILLEGAL, info.classify(new Move(PieceColor.WHITE, board, 7, 3, 6, 4)));
+        assertFalse(board.makeMove(new Move(PieceColor.WHITE, board, 7, 3, 6, 4)));
+
+        // Once a screen is in place the cannon checks and the Move is verified on the board.
+        board.addPiece(5, 4, new ChessPiece(PieceColor.WHITE, PieceType.KNIGHT));
+        info = new CheckInfo(board, 0);
+        assertEquals(1, info.getNoOfCheckers());
+        assertEquals(CheckInfo.UNKNOWN, info.classify(new Move(PieceColor.WHITE, board, 5, 4, 3, 5)));
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 5, 4, 3, 5)));
+    }
+
+    @Test
+    public void agreesWithMakeAndUndo() throws Exception {
+        board = new Board(player1, player2);
+        board.addPiece(2, 2, new ChessPiece(PieceColor.BLACK, PieceType.CANNON));
+        board.addPiece(5, 5, new ChessPiece(PieceColor.WHITE, PieceType.CANNON));
+        board.addPiece(3, 6, new ChessPiece(PieceColor.BLACK, PieceType.ALFIL));
+        board.addPiece(4, 1, new ChessPiece(PieceColor.WHITE, PieceType.ALFIL));
+
+        Random random = new Random(242);
+        for (int ply = 0; ply < 60; ply++) {
+            int color = ply % 2;
+            PieceColor pieceColor = (color == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+            CheckInfo info = new CheckInfo(board, color);
+            java.util.List<Move> valid = new java.util.ArrayList<Move>();
+
+            for (int i = 0; i < 64; i++) {
+                for (int j = 0; j < 64; j++) {
+                    Move move = new Move(pieceColor, board, i/8, i%8, j/8, j%8);
+                    if (!move.isMovePossible()) {
+                        continue;
+                    }
+                    board.movePiece(move);
+                    boolean checked = board.isChecked(color);
+                    board.undoMove();
+
+                    int result = info.classify(move);
+                    if (result != CheckInfo.UNKNOWN) {
+                        assertEquals(checked ? CheckInfo.ILLEGAL : CheckInfo.LEGAL, result);
+                    }
+                    if (!checked) {
+                        valid.add(move);
+                    }
+                }
+            }
+            if (valid.isEmpty()) {
+                break;
+            }
+            assertTrue(board.makeMove(valid.get(random.nextInt(valid.size()))));
+        }
+    }
+}
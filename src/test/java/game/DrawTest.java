@@ -0,0 +1,173 @@
+package game;
+
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class DrawTest {
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+    }
+
+    private void play(PieceColor color, int srcX, int srcY, int destX, int destY) {
+        assertTrue(board.makeMove(new Move(color, board, srcX, srcY, destX, destY)));
+    }
+
+    /**
+     * Both players move a Knight out and back: g1-f3 g8-f6 f3-g1 f6-g8.
+     */
+    private void shuffleKnights() {
+        play(PieceColor.WHITE, 7, 6, 5, 5);
+        play(PieceColor.BLACK, 0, 6, 2, 5);
+        play(PieceColor.WHITE, 5, 5, 7, 6);
+        play(PieceColor.BLACK, 2, 5, 0, 6);
+    }
+
+    @Test
+    public void threefoldRepetition() throws Exception {
+        long start = board.getKey();
+        shuffleKnights();
+        assertEquals(start, board.getKey());
+        assertTrue(board.isRepetition(2));
+        assertFalse(board.isRepetition(3));
+        assertEquals(GameStatus.ACTIVE, board.getStatus(0));
+
+        shuffleKnights();
+        assertTrue(board.isRepetition(3));
+        assertEquals(GameStatus.DRAW_REPETITION, board.getStatus(0));
+        assertTrue(board.getStatus(0).isDraw());
+
+        assertTrue(board.undoMove());
+        assertTrue(board.isRepetition(2));
+        assertFalse(board.isRepetition(3));
+        assertEquals(GameStatus.ACTIVE, board.getStatus(1));
+    }
+
+    @Test
+    public void playerToMoveIsPartOfTheKey() throws Exception {
+        play(PieceColor.WHITE, 7, 6, 5, 5);
+        // The same pieces on a new Board, with white to move instead of black.
+        Board copy = new Board(board.snapshot());
+        assertNotEquals(copy.getKey(), board.getKey());
+        // With black to move, as given.
+        assertEquals(board.getKey(), new Board(board.snapshot(), 1).getKey());
+        assertEquals(board.getKey(), Board.fromFen(board.toFen(), 1).getKey());
+        copy.reset(board.snapshot(), 1);
+        assertEquals(board.getKey(), copy.getKey());
+    }
+
+    @Test
+    public void pawnMoveResetsClock() throws Exception {
+        shuffleKnights();
+        assertEquals(4, board.getHalfMoveClock());
+
+        play(PieceColor.WHITE, 6, 4, 4, 4);
+        assertEquals(0, board.getHalfMoveClock());
+        play(PieceColor.BLACK, 0, 6, 2, 5);
+        assertEquals(1, board.getHalfMoveClock());
+
+        // Back to the position right after the pawn move.
+        play(PieceColor.WHITE, 7, 6, 5, 5);
+        play(PieceColor.BLACK, 2, 5, 0, 6);
+        play(PieceColor.WHITE, 5, 5, 7, 6);
+        assertTrue(board.isRepetition(2));
+        assertFalse(board.isRepetition(3));
+
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        assertEquals(0, board.getHalfMoveClock());
+        board.undoMove();
+        assertEquals(4, board.getHalfMoveClock());
+        assertTrue(board.isRepetition(2));
+    }
+
+    @Test
+    public void keyIsRestored() throws Exception {
+        long start = board.getKey();
+        board.getAllValidMovesByPlayer(0);
+        assertEquals(start, board.getKey());
+
+        play(PieceColor.WHITE, 6, 4, 4, 4);
+        play(PieceColor.BLACK, 1, 3, 3, 3);
+        play(PieceColor.WHITE, 4, 4, 3, 3);
+        board.getAllValidMovesByPlayer(1);
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        assertEquals(start, board.getKey());
+        assertEquals(start, new Board(board.snapshot()).getKey());
+    }
+
+    @Test
+    public void historyAcrossCheckpoints() throws Exception {
+        GameHistory history = new GameHistory(board);
+        int[][] shuffle = {{7, 6, 5, 5}, {0, 6, 2, 5}, {5, 5, 7, 6}, {2, 5, 0, 6}};
+        int plies = GameHistory.CHECKPOINT_INTERVAL + 4;
+        GameStatus[] statuses = new GameStatus[plies + 1];
+        statuses[0] = board.getStatus(0);
+        for (int ply = 0; ply < plies; ply++) {
+            int[] squares = shuffle[ply % 4];
+            PieceColor color = (ply % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+            assertTrue(history.play(new Move(color, board, squares[0], squares[1], squares[2], squares[3])));
+            statuses[ply + 1] = board.getStatus((ply + 1) % 2);
+        }
+        assertEquals(GameStatus.DRAW_REPETITION, statuses[plies - 3]);
+
+        // Jumping to the end starts from the last checkpoint, and undoing past it from the one before.
+        history.seek(0);
+        history.seek(plies);
+        for (int ply = plies; ply >= 0; ply--) {
+            assertEquals("ply " + ply, ply, history.getPly());
+            assertEquals("ply " + ply, statuses[ply], board.getStatus(ply % 2));
+            assertEquals("ply " + ply, ply, board.getHalfMoveClock());
+            history.undo();
+        }
+        history.seek(GameHistory.CHECKPOINT_INTERVAL + 1);
+        assertEquals(GameStatus.DRAW_REPETITION, board.getStatus(1));
+        assertEquals(GameHistory.CHECKPOINT_INTERVAL + 1, board.getHalfMoveClock());
+    }
+
+    @Test
+    public void fiftyMoveRule() throws Exception {
+        // Both players move Knights to new positions only, so nothing repeats before the fifty-move rule.
+        Set<Long> seen = new HashSet<Long>();
+        seen.add(board.getKey());
+        for (int ply = 0; ply < 100; ply++) {
+            assertEquals(GameStatus.ACTIVE, board.getStatus(ply % 2));
+            assertTrue("no new position at ply " + ply, playNewKnightMove(ply % 2, seen));
+            assertEquals(ply + 1, board.getHalfMoveClock());
+        }
+        assertEquals(GameStatus.DRAW_FIFTY_MOVES, board.getStatus(0));
+
+        board.undoMove();
+        assertEquals(GameStatus.ACTIVE, board.getStatus(1));
+    }
+
+    private boolean playNewKnightMove(int color, Set<Long> seen) {
+        for (Move move : board.getAllValidMovesByPlayer(color)) {
+            if (board.getPiece(move.getSrcX(), move.getSrcY()).getType() != PieceType.KNIGHT
+                    || board.getPiece(move.getDestX(), move.getDestY()) != null) {
+                continue;
+            }
+            board.makeMove(move);
+            if (!board.isChecked((color + 1) % 2) && seen.add(board.getKey())) {
+                return true;
+            }
+            board.undoMove();
+        }
+        return false;
+    }
+}
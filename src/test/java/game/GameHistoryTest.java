@@ -0,0 +1,90 @@
+package game;
+
+import game.piece.PieceColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class GameHistoryTest {
+
+    private Board board;
+    private GameHistory history;
+    private List<Position> positions;
+
+    @Before
+    public void setUp() {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+        history = new GameHistory(board);
+
+        // Play a random game and remember the Position after every ply.
+        positions = new ArrayList<Position>();
+        positions.add(board.getPosition());
+        Random random = new Random(33);
+        for (int ply = 0; ply < 70; ply++) {
+            List<Move> moves = board.getAllValidMovesByPlayer(ply % 2);
+            if (moves.isEmpty()) {
+                break;
+            }
+            assertTrue(history.play(moves.get(random.nextInt(moves.size()))));
+            positions.add(board.getPosition());
+        }
+    }
+
+    @Test
+    public void undoRedo() throws Exception {
+        int last = history.size();
+        assertEquals(last, history.getPly());
+        assertFalse(history.redo());
+
+        assertTrue(history.undo());
+        assertTrue(history.undo());
+        assertEquals(positions.get(last - 2), board.snapshot());
+        assertEquals(last, history.size());
+
+        assertTrue(history.redo());
+        assertEquals(positions.get(last - 1), board.snapshot());
+        assertEquals(history.getMove(last - 1).getPlayerColor() == PieceColor.WHITE ? 0 : 1,
+                history.getPlayerToMove());
+    }
+
+    @Test
+    public void seek() throws Exception {
+        int[] targets = {0, 5, 17, 16, 3, 40, 39, 63, 1, history.size(), 32, 31};
+        for (int target : targets) {
+            history.seek(target);
+            assertEquals(target, history.getPly());
+            assertEquals("ply " + target, positions.get(target), board.snapshot());
+        }
+
+        // Undo all the way back after jumping into the middle of the game.
+        history.seek(50);
+        while (history.undo()) {
+            assertEquals(positions.get(history.getPly()), board.snapshot());
+        }
+        assertEquals(0, history.getPly());
+    }
+
+    @Test
+    public void playTruncatesRedo() throws Exception {
+        history.seek(20);
+        Move move = board.getAllValidMovesByPlayer(history.getPlayerToMove()).getFirst();
+        assertTrue(history.play(move));
+
+        assertEquals(21, history.size());
+        assertFalse(history.redo());
+        history.seek(10);
+        history.seek(21);
+        assertEquals(move.toString(), history.getMove(20).toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void seekOutOfRange() throws Exception {
+        history.seek(history.size() + 1);
+    }
+}
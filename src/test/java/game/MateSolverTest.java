@@ -0,0 +1,123 @@
+package game;
+
+import game.engine.MateResult;
+import game.engine.MateSolver;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class MateSolverTest {
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+    }
+
+    private void clear() {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if (board.getPiece(x, y) != null) {
+                    board.removePiece(x, y);
+                }
+            }
+        }
+    }
+
+    private void put(String square, PieceColor color, PieceType type) {
+        board.addPiece(8 - (square.charAt(1) - '0'), square.charAt(0) - 'a', new ChessPiece(color, type));
+    }
+
+    private void play(String... moves) {
+        for (int i = 0; i < moves.length; i++) {
+            Move move = Move.parse((i % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK, board, moves[i]);
+            assertTrue(board.makeMove(move));
+        }
+    }
+
+    @Test
+    public void mateInOne() {
+        play("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6");
+        MateResult result = new MateSolver(100000).solve(board, 0, 3);
+        assertEquals(MateResult.Status.MATE, result.getStatus());
+        assertEquals(1, result.getMateIn());
+        assertEquals("[h5f7]", result.getLine().toString());
+    }
+
+    @Test
+    public void stopEndsOneSolve() {
+        play("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6");
+        MateSolver solver = new MateSolver(100000);
+        solver.stop();
+        assertEquals(MateResult.Status.UNKNOWN, solver.solve(board, 0, 3).getStatus());
+        assertEquals(MateResult.Status.MATE, solver.solve(board, 0, 3).getStatus());
+    }
+
+    @Test
+    public void noMate() {
+        Position start = board.snapshot();
+        MateResult result = new MateSolver(1000000).solve(board, 0, 2);
+        assertEquals(MateResult.Status.NO_MATE, result.getStatus());
+        assertTrue(result.getLine().isEmpty());
+        assertEquals(start, board.snapshot());
+    }
+
+    @Test
+    public void cannonAndRook() {
+        // King, Cannon and Rook against King and Cannon; the mate starts with a quiet King move.
+        clear();
+        put("a2", PieceColor.BLACK, PieceType.KING);
+        put("c1", PieceColor.WHITE, PieceType.KING);
+        put("g1", PieceColor.WHITE, PieceType.CANNON);
+        put("e7", PieceColor.WHITE, PieceType.ROOK);
+        put("g8", PieceColor.BLACK, PieceType.CANNON);
+        board = new Board(board.snapshot());
+
+        MateResult result = new MateSolver(100000).solve(board, 0, 3);
+        assertEquals(MateResult.Status.MATE, result.getStatus());
+        assertEquals(3, result.getMateIn());
+        assertLineMates(result);
+    }
+
+    @Test
+    public void alfilJumps() {
+        clear();
+        put("h1", PieceColor.BLACK, PieceType.KING);
+        put("f2", PieceColor.WHITE, PieceType.KING);
+        put("h2", PieceColor.WHITE, PieceType.CANNON);
+        put("b3", PieceColor.WHITE, PieceType.ALFIL);
+        put("f5", PieceColor.BLACK, PieceType.ALFIL);
+        board = new Board(board.snapshot());
+
+        assertEquals(MateResult.Status.NO_MATE, new MateSolver(100000).solve(board, 0, 2).getStatus());
+        MateResult result = new MateSolver(100000).solve(board, 0, 3);
+        assertEquals(MateResult.Status.MATE, result.getStatus());
+        assertEquals(3, result.getMateIn());
+        assertLineMates(result);
+    }
+
+    @Test
+    public void nodeLimit() {
+        MateResult result = new MateSolver(10).solve(board, 0, 3);
+        assertEquals(MateResult.Status.UNKNOWN, result.getStatus());
+    }
+
+    /**
+     * Replay the line on a copy of the Board and check that it ends in checkmate.
+     */
+    private void assertLineMates(MateResult result) {
+        Board copy = new Board(board.snapshot());
+        for (Move move : result.getLine()) {
+            assertTrue(copy.makeMove(new Move(move.getPlayerColor(), copy, move.getSrcX(), move.getSrcY(),
+                    move.getDestX(), move.getDestY())));
+        }
+        assertEquals(2 * result.getMateIn() - 1, result.getLine().size());
+        assertEquals(GameStatus.CHECKMATE, copy.getStatus(1));
+    }
+}
@@ -0,0 +1,88 @@
+package game;
+
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceDefinition;
+import game.piece.PieceType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PieceDefinitionTest {
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+    }
+
+    private static int square(int x, int y) {
+        return x * 8 + y;
+    }
+
+    private static AttackTable table(PieceDefinition definition) {
+        return new AttackTable(definition, BoardSize.STANDARD);
+    }
+
+    @Test
+    public void leaperAndRider() throws Exception {
+        // Knight in the corner reaches two squares.
+        assertEquals(SquareSet.of(square(2, 1), square(1, 2)), table(PieceType.KNIGHT.getDefinition())
+                .getDestinations(0, PieceColor.BLACK, false, SquareSet.EMPTY, SquareSet.EMPTY));
+
+        // Rook on (4, 4) stops at an own piece on (4, 6) and captures an enemy piece on (2, 4).
+        SquareSet own = SquareSet.of(square(4, 6));
+        SquareSet enemy = SquareSet.of(square(2, 4));
+        SquareSet destinations = table(PieceType.ROOK.getDefinition())
+                .getDestinations(square(4, 4), PieceColor.WHITE, true, own, enemy);
+        assertTrue(destinations.contains(square(4, 5)));
+        assertFalse(destinations.contains(square(4, 6)) || destinations.contains(square(4, 7)));
+        assertTrue(destinations.contains(square(2, 4)));
+        assertFalse(destinations.contains(square(1, 4)));
+        assertEquals(10, destinations.size());
+    }
+
+    @Test
+    public void combinedPiece() throws Exception {
+        // A Chancellor moves like a Rook and like a Knight.
+        PieceDefinition chancellor = PieceDefinition.rider(1, 0).and(PieceDefinition.leaper(2, 1));
+        AttackTable table = table(chancellor);
+        SquareSet destinations = table.getDestinations(square(4, 4), PieceColor.WHITE, true,
+                SquareSet.EMPTY, SquareSet.EMPTY);
+        assertEquals(14 + 8, destinations.size());
+        assertTrue(chancellor.ridesAlong(0, -1));
+        assertFalse(chancellor.ridesAlong(2, 1));
+        assertEquals(SquareSet.of(square(5, 4), square(6, 4)), table.getSquaresBetween(square(4, 4), square(7, 4)));
+        assertEquals(SquareSet.EMPTY, table.getSquaresBetween(square(4, 4), square(6, 5)));
+    }
+
+    @Test
+    public void hopper() throws Exception {
+        // Cannon on (4, 4) with a screen on (4, 2) reaches (4, 1) and (4, 0) only to the left.
+        SquareSet destinations = table(PieceType.CANNON.getDefinition()).getDestinations(square(4, 4),
+                PieceColor.WHITE, true, SquareSet.of(square(4, 2)), SquareSet.EMPTY);
+        assertEquals(SquareSet.of(square(4, 1), square(4, 0)), destinations);
+    }
+
+    @Test
+    public void pawnRules() throws Exception {
+        // Pawns cannot capture straight ahead.
+        board.movePiece(new Move(PieceColor.BLACK, board, 1, 4, 5, 4));
+        assertFalse(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 5, 4)));
+        assertFalse(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 4, 4)));
+
+        // The double step cannot jump over a piece.
+        board.addPiece(5, 3, new ChessPiece(PieceColor.WHITE, PieceType.KNIGHT));
+        assertFalse(board.makeMove(new Move(PieceColor.WHITE, board, 6, 3, 4, 3)));
+
+        // Captures go diagonally forward.
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 5, 5, 4)));
+        assertTrue(board.getPiece(5, 4).getColor() == PieceColor.WHITE);
+
+        // A pawn that has moved only steps one square.
+        assertFalse(board.makeMove(new Move(PieceColor.WHITE, board, 5, 4, 3, 4)));
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 5, 4, 4, 4)));
+    }
+}
@@ -0,0 +1,118 @@
+package game;
+
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class PositionTest {
+
+    private Player player1;
+    private Player player2;
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        player1 = new Player("player1", PieceColor.WHITE);
+        player2 = new Player("player2", PieceColor.BLACK);
+
+        board = new Board(player1, player2);
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        Position start = board.getPosition();
+        assertEquals(PieceType.KING, start.getType(7, 4));
+        assertEquals(PieceColor.WHITE, start.getColor(7, 4));
+        assertNull(start.getType(4, 4));
+        assertEquals(start, board.snapshot());
+
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 4, 4)));
+        Position next = board.getPosition();
+
+        // The old snapshot is not affected by the move.
+        assertEquals(PieceType.PAWN, start.getType(6, 4));
+        assertNull(start.getType(4, 4));
+        assertEquals(PieceType.PAWN, next.getType(4, 4));
+        assertTrue(next.hasMoved(4, 4));
+        assertNotEquals(start, next);
+
+        assertTrue(board.undoMove());
+        assertEquals(PieceType.PAWN, board.getPosition().getType(6, 4));
+        assertFalse(board.getPosition().hasMoved(6, 4));
+        assertEquals(start, board.getPosition());
+    }
+
+    @Test
+    public void queries() throws Exception {
+        Position start = board.getPosition();
+        assertFalse(start.isAnalyzed(0));
+
+        // 8 pawns with two moves each and two knights with two moves each.
+        assertEquals(20, start.getNoOfValidMoves(0));
+        assertTrue(start.isAnalyzed(0));
+        assertFalse(start.isAnalyzed(1));
+        assertEquals(SquareSet.of(5*8+0, 5*8+2), start.getValidDestinations(0, 7*8+1));
+        assertTrue(start.getAttackedSquares(1).contains(2*8+0));
+        assertEquals(GameStatus.ACTIVE, start.getStatus(0));
+        assertFalse(start.isChecked(0));
+    }
+
+    @Test
+    public void status() throws Exception {
+        /* Same position as BoardTest.isCheckmate */
+        for (int i = 0; i < 8; i++) {
+            board.removePiece(1, i);
+            board.removePiece(6, i);
+            if (i != 4) {
+                board.removePiece(0, i);
+            }
+            if (i != 3 && i != 4) {
+                board.removePiece(7, i);
+            }
+        }
+        board.movePiece(new Move(PieceColor.BLACK, board, 0, 4, 0, 7));
+        board.movePiece(new Move(PieceColor.WHITE, board, 7, 3, 1, 6));
+        assertEquals(GameStatus.CHECK, board.snapshot().getStatus(1));
+
+        board.movePiece(new Move(PieceColor.WHITE, board, 7, 4, 2, 6));
+        Position mate = board.snapshot();
+        assertEquals(GameStatus.CHECKMATE, mate.getStatus(1));
+        assertEquals(board.isCheckmate(1), mate.getStatus(1) == GameStatus.CHECKMATE);
+    }
+
+    @Test
+    public void concurrentQueries() throws Exception {
+        final Position start = board.getPosition();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+        for (int i = 0; i < 8; i++) {
+            final int color = i % 2;
+            results.add(executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    return start.getNoOfValidMoves(color);
+                }
+            }));
+        }
+        // The game thread keeps playing while the snapshot is analyzed.
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 3, 4, 3)));
+        assertTrue(board.makeMove(new Move(PieceColor.BLACK, board, 1, 3, 3, 3)));
+
+        for (Future<Integer> result : results) {
+            assertEquals(20, (int) result.get());
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+package game;
+
+import game.engine.Evaluation;
+import game.engine.Search;
+import game.engine.SearchInfo;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TablebaseTest {
+
+    private TablebaseGenerator generator;
+    private Board board;
+
+    @Before
+    public void setUp() {
+        generator = new TablebaseGenerator(BoardSize.STANDARD, 2);
+        board = createEmptyBoard();
+    }
+
+    @After
+    public void tearDown() {
+        generator.shutdown();
+    }
+
+    private static Board createEmptyBoard() {
+        Board empty = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if (empty.getPiece(x, y) != null) {
+                    empty.removePiece(x, y);
+                }
+            }
+        }
+        return empty;
+    }
+
+    private void put(int x, int y, PieceColor color, PieceType type) {
+        board.addPiece(x, y, new ChessPiece(color, type));
+    }
+
+    @Test
+    public void longestMate() throws Exception {
+        // The longest King and Rook against King mate takes 16 moves.
+        Tablebase krk = generator.generate("KRK");
+        int longest = 0;
+        for (long index = 0; index < krk.getNoOfEntries(); index++) {
+            int value = krk.get(index);
+            if (Tablebase.isWin(value)) {
+                longest = Math.max(longest, Tablebase.getDistance(value));
+            }
+        }
+        assertEquals(31, longest);
+        assertTrue(krk.isDecisive());
+
+        // Cannon and Alfil cannot mate alone.
+        assertFalse(generator.generate("KCK").isDecisive());
+        assertFalse(generator.generate("KAK").isDecisive());
+    }
+
+    @Test
+    public void probe() throws Exception {
+        Tablebases tablebases = new Tablebases(null);
+        tablebases.add(generator.generate("KRK"));
+
+        // Mate: black King in the corner, white Rook on the back rank.
+        put(0, 0, PieceColor.BLACK, PieceType.KING);
+        put(2, 0, PieceColor.WHITE, PieceType.KING);
+        put(0, 7, PieceColor.WHITE, PieceType.ROOK);
+        assertEquals(1, tablebases.probe(board, 1));
+        assertTrue(Tablebase.isLoss(tablebases.probe(board, 1)));
+
+        // Mate in one for white with the Rook one rank lower.
+        board.removePiece(0, 7);
+        put(1, 7, PieceColor.WHITE, PieceType.ROOK);
+        assertTrue(Tablebase.isWin(tablebases.probe(board, 0)));
+        assertEquals(1, Tablebase.getDistance(tablebases.probe(board, 0)));
+
+        // The same position with the colors swapped is found by mirroring the board.
+        Board mirrored = createEmptyBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                ChessPiece piece = board.getPiece(x, y);
+                if (piece != null) {
+                    PieceColor other = (piece.getColor() == PieceColor.WHITE) ? PieceColor.BLACK : PieceColor.WHITE;
+                    mirrored.addPiece(7 - x, y, new ChessPiece(other, piece.getType()));
+                }
+            }
+        }
+        assertEquals(tablebases.probe(board, 0), tablebases.probe(mirrored, 1));
+        assertEquals(Tablebase.UNKNOWN, new Tablebases(null).probe(board, 0));
+    }
+
+    @Test
+    public void files() throws Exception {
+        Tablebase kck = generator.generate("KCK");
+        File directory = File.createTempFile("tablebases", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        File file = new File(directory, "KCK.tb");
+        kck.write(file);
+
+        Tablebase mapped = Tablebase.open(file);
+        assertEquals("KCK", mapped.getSignature());
+        assertEquals(BoardSize.STANDARD, mapped.getSize());
+        assertEquals(3, mapped.getNoOfPieces());
+        assertFalse(mapped.isDecisive());
+        for (long index = 0; index < mapped.getNoOfEntries(); index += 997) {
+            assertEquals(kck.get(index), mapped.get(index));
+        }
+
+        // Status: King and Cannon against King is a dead draw once the tablebase is known.
+        put(0, 4, PieceColor.BLACK, PieceType.KING);
+        put(7, 4, PieceColor.WHITE, PieceType.KING);
+        put(4, 4, PieceColor.WHITE, PieceType.CANNON);
+        assertEquals(GameStatus.ACTIVE, board.getStatus(0));
+        Tablebases tablebases = new Tablebases(directory);
+        board.setTablebases(tablebases);
+        assertEquals(GameStatus.DRAW_INSUFFICIENT_MATERIAL, board.getStatus(0));
+        assertEquals(Tablebase.DRAW, tablebases.probe(board, 1));
+        assertSame(tablebases.get("KCK"), tablebases.get("KCK"));
+        assertNull(tablebases.get("KKC"));
+        assertNull(tablebases.get("KRK"));
+        assertNull(tablebases.get("KPK"));
+
+        board.removePiece(4, 4);
+        board.setTablebases(null);
+        assertEquals(GameStatus.DRAW_INSUFFICIENT_MATERIAL, board.getStatus(1));
+        assertTrue(file.delete() && directory.delete());
+    }
+
+    @Test
+    public void search() throws Exception {
+        Tablebases tablebases = new Tablebases(null);
+        tablebases.add(generator.generate("KRK"));
+        put(0, 3, PieceColor.BLACK, PieceType.KING);
+        put(2, 4, PieceColor.WHITE, PieceType.KING);
+        put(7, 7, PieceColor.WHITE, PieceType.ROOK);
+        int value = tablebases.probe(board, 0);
+        assertTrue(Tablebase.isWin(value));
+
+        Search search = new Search(new Evaluation());
+        search.setTablebases(tablebases);
+        SearchInfo result = search.search(board, 0, 2, null);
+        assertEquals(Search.MATE - Tablebase.getDistance(value), result.getScore());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pawnsAreNotSupported() throws Exception {
+        generator.generate("KPK");
+    }
+}
@@ -0,0 +1,118 @@
+package game.book;
+
+import game.Board;
+import game.BoardSize;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class OpeningBookTest {
+
+    private static final String ARCHIVE =
+            "# three games\n" +
+            "1-0 e2e4 e7e5 g1f3 b8c6\n" +
+            "0-1 e2e4 c7c5\n" +
+            "\n" +
+            "1/2-1/2 d2d4 d7d5 c2c4\n" +
+            "1-0 e2e4 e7e4\n" +
+            "* e2e4\n";
+
+    private Board board;
+    private OpeningBook book;
+
+    @Before
+    public void setUp() throws Exception {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+
+        BookBuilder builder = new BookBuilder(BoardSize.STANDARD, 3);
+        assertEquals(3, builder.addArchive(new StringReader(ARCHIVE)));
+        assertEquals(2, builder.getNoOfRejected());
+
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        builder.write(file);
+        book = OpeningBook.open(file);
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        assertEquals(BoardSize.STANDARD, book.getSize());
+        assertEquals(3, book.getMaxPly());
+
+        int first = book.find(board.getKey());
+        assertTrue(first >= 0);
+        assertEquals(first + 2, book.getEnd(first));
+
+        // e2e4 was played twice: won once, lost once. It comes first with weight 2 against 1 for d2d4.
+        assertEquals("e2e4", book.getMove(first, board, PieceColor.WHITE).toString());
+        assertEquals(1, book.getWins(first));
+        assertEquals(0, book.getDraws(first));
+        assertEquals(1, book.getLosses(first));
+        assertEquals(2, book.getWeight(first));
+        assertEquals("d2d4", book.getMove(first + 1, board, PieceColor.WHITE).toString());
+        assertEquals(1, book.getWeight(first + 1));
+
+        // Black won with c7c5. The reply e7e5 only lost, so it stays in the book with weight 0.
+        assertTrue(board.makeMove(Move.parse(PieceColor.WHITE, board, "e2e4")));
+        int reply = book.find(board.getKey());
+        assertEquals(reply + 2, book.getEnd(reply));
+        assertEquals("c7c5", book.getMove(reply, board, PieceColor.BLACK).toString());
+        assertEquals(2, book.getWeight(reply));
+        assertEquals("e7e5", book.getMove(reply + 1, board, PieceColor.BLACK).toString());
+        assertEquals(0, book.getWeight(reply + 1));
+        assertEquals(1, book.getLosses(reply + 1));
+    }
+
+    @Test
+    public void maxPly() throws Exception {
+        String[] moves = {"e2e4", "e7e5", "g1f3"};
+        for (int ply = 0; ply < moves.length; ply++) {
+            PieceColor color = (ply % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+            assertNotNull(book.pick(board, ply % 2, new Random(1)));
+            assertTrue(board.makeMove(Move.parse(color, board, moves[ply])));
+        }
+        // b8c6 was the fourth ply of the game and is not in the book.
+        assertEquals(-1, book.find(board.getKey()));
+        assertNull(book.pick(board, 1, new Random(1)));
+    }
+
+    @Test
+    public void pick() throws Exception {
+        Random random = new Random(37);
+        int e4 = 0;
+        for (int i = 0; i < 300; i++) {
+            Move move = book.pick(board, 0, random);
+            assertTrue(move.toString().equals("e2e4") || move.toString().equals("d2d4"));
+            if (move.toString().equals("e2e4")) {
+                e4++;
+            }
+        }
+        assertTrue(e4 > 150 && e4 < 250);
+
+        Board large = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK),
+                BoardSize.LARGE);
+        assertNull(book.pick(large, 0, random));
+    }
+
+    @Test
+    public void parse() throws Exception {
+        assertNull(Move.parse(PieceColor.WHITE, board, "e2e9"));
+        assertNull(Move.parse(PieceColor.WHITE, board, "e2"));
+        assertNull(Move.parse(PieceColor.WHITE, board, "e2e4q"));
+        Board large = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK),
+                BoardSize.LARGE);
+        Move move = Move.parse(PieceColor.BLACK, large, "a10a8");
+        assertEquals(0, move.getSrcX());
+        assertEquals(2, move.getDestX());
+        assertEquals("a10a8", move.toString());
+    }
+}
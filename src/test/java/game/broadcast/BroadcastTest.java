@@ -0,0 +1,309 @@
+package game.broadcast;
+
+import game.Board;
+import game.GameHistory;
+import game.Move;
+import game.engine.Evaluation;
+import game.engine.Search;
+import game.piece.PieceColor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class BroadcastTest {
+
+    private static final String[] MOVES = {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6"};
+
+    private Broadcast broadcast;
+    private Board board;
+    private GameHistory history;
+
+    @Before
+    public void setUp() {
+        broadcast = new Broadcast(2);
+        board = Board.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+        history = new GameHistory(board);
+        history.setMoveListener(broadcast);
+    }
+
+    @After
+    public void tearDown() {
+        broadcast.close();
+    }
+
+    /**
+     * Records the events it receives, requesting them in steps of a given size.
+     */
+    private static class Recorder implements Broadcast.Subscriber {
+        final List<MoveEvent> events = Collections.synchronizedList(new ArrayList<MoveEvent>());
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final long batch;
+        volatile Broadcast.Subscription subscription;
+        volatile Throwable error;
+        long received;
+
+        Recorder(long batch) {
+            this.batch = batch;
+        }
+
+        public void onSubscribe(Broadcast.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+            subscribed.countDown();
+        }
+
+        public void onNext(MoveEvent event) {
+            events.add(event);
+            if (++received % batch == 0) {
+                subscription.request(batch);
+            }
+        }
+
+        public void onError(Throwable error) {
+            this.error = error;
+            completed.countDown();
+        }
+
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private void play(String... moves) {
+        for (String text : moves) {
+            PieceColor color = (history.getPlayerToMove() == 0) ? PieceColor.WHITE : PieceColor.BLACK;
+            assertTrue(history.play(Move.parse(color, board, text)));
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fanOut() throws Exception {
+        List<Recorder> recorders = new ArrayList<Recorder>();
+        for (int i = 0; i < 1000; i++) {
+            Recorder recorder = new Recorder((i % 2 == 0) ? Long.MAX_VALUE : 1);
+            broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+            recorders.add(recorder);
+        }
+        for (Recorder recorder : recorders) {
+            await(recorder.subscribed);
+        }
+        assertEquals(1000, broadcast.getNoOfSubscribers());
+
+        play(MOVES);
+        broadcast.close();
+        for (Recorder recorder : recorders) {
+            await(recorder.completed);
+            assertNull(recorder.error);
+            assertEquals(MOVES.length, recorder.events.size());
+            for (int i = 0; i < MOVES.length; i++) {
+                MoveEvent event = recorder.events.get(i);
+                assertEquals(i + 1, event.getSequence());
+                assertEquals(MOVES[i], event.getMove());
+                // Serialized once and shared.
+                assertSame(recorders.get(0).events.get(i), event);
+            }
+        }
+        assertEquals(board.getPosition().toFen(), recorders.get(0).events.get(MOVES.length - 1).getFen());
+        assertEquals(0, broadcast.getNoOfSubscribers());
+    }
+
+    @Test
+    public void slowSubscriber() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        Recorder slow = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public void onNext(MoveEvent event) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onNext(event);
+            }
+        };
+        Recorder fast = new Recorder(Long.MAX_VALUE);
+        broadcast.subscribe(slow, 2, Broadcast.Overflow.DROP_OLDEST);
+        broadcast.subscribe(fast, 64, Broadcast.Overflow.DROP_OLDEST);
+        await(slow.subscribed);
+        await(fast.subscribed);
+
+        play(MOVES[0]);
+        await(blocked);
+        // The game goes on while the slow subscriber is stuck in onNext().
+        play(MOVES[1], MOVES[2], MOVES[3], MOVES[4], MOVES[5]);
+        release.countDown();
+        broadcast.close();
+
+        await(fast.completed);
+        assertEquals(MOVES.length, fast.events.size());
+        await(slow.completed);
+        assertEquals(3, slow.events.size());
+        assertEquals(1, slow.events.get(0).getSequence());
+        assertEquals(MOVES.length - 1, slow.events.get(1).getSequence());
+        assertEquals(MOVES.length, slow.events.get(2).getSequence());
+    }
+
+    @Test
+    public void conflate() throws Exception {
+        Recorder recorder = new Recorder(1) {
+            @Override
+            public void onNext(MoveEvent event) {
+                // Request no more until the game is over.
+                events.add(event);
+            }
+        };
+        broadcast.subscribe(recorder, 1, Broadcast.Overflow.CONFLATE);
+        await(recorder.subscribed);
+        play(MOVES[0]);
+        while (recorder.events.isEmpty()) {
+            Thread.sleep(1);
+        }
+        play(MOVES[1], MOVES[2], MOVES[3], MOVES[4], MOVES[5]);
+        recorder.subscription.request(Long.MAX_VALUE);
+        broadcast.close();
+        await(recorder.completed);
+
+        // The first Move was delivered at once, the rest conflated into the last one.
+        assertEquals(2, recorder.events.size());
+        assertEquals(1, recorder.events.get(0).getSequence());
+        assertEquals(MOVES.length, recorder.events.get(1).getSequence());
+        assertEquals(board.getPosition().toFen(), recorder.events.get(1).getFen());
+    }
+
+    @Test
+    public void undo() throws Exception {
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        String start = board.getPosition().toFen();
+        play(MOVES[0]);
+        assertTrue(history.undo());
+        broadcast.close();
+        await(recorder.completed);
+
+        assertEquals(2, recorder.events.size());
+        MoveEvent event = recorder.events.get(1);
+        assertNull(event.getMove());
+        assertEquals(start, event.getFen());
+        assertEquals("2 - " + start, event.toString());
+        assertEquals(event.toString().length() + 1, event.getBytes().remaining());
+    }
+
+    @Test
+    public void playedMovesOnly() throws Exception {
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        broadcast.subscribe(recorder, 64, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        play(MOVES);
+        // A search on the Board of the game and a seek over several plies are not broadcast move by move.
+        new Search(new Evaluation()).search(board, 0, 3, null);
+        history.seek(1);
+        broadcast.close();
+        await(recorder.completed);
+
+        assertEquals(MOVES.length + 1, recorder.events.size());
+        MoveEvent event = recorder.events.get(MOVES.length);
+        assertNull(event.getMove());
+        assertEquals(board.getPosition().toFen(), event.getFen());
+    }
+
+    @Test
+    public void closedWhileAttached() throws Exception {
+        play(MOVES[0]);
+        broadcast.close();
+        // The game goes on without the Broadcast.
+        play(MOVES[1]);
+        assertTrue(history.undo());
+        assertEquals(1, history.getPly());
+    }
+
+    @Test
+    public void requestAfterClose() throws Exception {
+        Recorder recorder = new Recorder(1) {
+            @Override
+            public void onSubscribe(Broadcast.Subscription subscription) {
+                // Request nothing until the Broadcast is closed.
+                this.subscription = subscription;
+                subscribed.countDown();
+            }
+        };
+        broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        play(MOVES[0], MOVES[1]);
+        broadcast.close();
+
+        // The buffered events are still delivered, then the subscription completes.
+        recorder.subscription.request(10);
+        await(recorder.completed);
+        assertNull(recorder.error);
+        assertEquals(2, recorder.events.size());
+        assertEquals(MOVES[1], recorder.events.get(1).getMove());
+    }
+
+    @Test
+    public void subscribeAfterClose() throws Exception {
+        broadcast.close();
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        await(recorder.completed);
+        assertNull(recorder.error);
+        assertTrue(recorder.events.isEmpty());
+        assertEquals(0, broadcast.getNoOfSubscribers());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publishAfterClose() {
+        broadcast.close();
+        broadcast.publish("e2e4", board.getPosition());
+    }
+
+    @Test
+    public void failingSubscriber() throws Exception {
+        Recorder recorder = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public void onNext(MoveEvent event) {
+                throw new IllegalStateException("Viewer left");
+            }
+        };
+        broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        play(MOVES[0], MOVES[1]);
+        await(recorder.completed);
+        assertTrue(recorder.error instanceof IllegalStateException);
+        assertEquals(0, broadcast.getNoOfSubscribers());
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        broadcast.subscribe(recorder, 16, Broadcast.Overflow.DROP_NEWEST);
+        await(recorder.subscribed);
+        recorder.subscription.cancel();
+        assertEquals(0, broadcast.getNoOfSubscribers());
+        play(MOVES);
+        broadcast.close();
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity() {
+        broadcast.subscribe(new Recorder(1), 0, Broadcast.Overflow.DROP_OLDEST);
+    }
+}
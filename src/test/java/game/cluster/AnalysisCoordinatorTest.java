@@ -0,0 +1,236 @@
+package game.cluster;
+
+import game.Board;
+import game.GameResult;
+import game.Move;
+import game.engine.Evaluation;
+import game.piece.PieceColor;
+import game.store.GameRecord;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class AnalysisCoordinatorTest {
+
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR",
+            "rcbqkbcr/pppppppp/8/8/8/8/PPPPPPPP/RCBQKBCR",
+            "4k3/8/4c3/8/4P3/2A5/8/2C1K3",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1",
+            "rnabqkbanr/pppppppppp/10/10/10/10/10/10/PPPPPPPPPP/RNABQKBANR",
+    };
+
+    private AnalysisCoordinator coordinator;
+    private final List<Thread> threads = new ArrayList<Thread>();
+
+    @After
+    public void tearDown() throws Exception {
+        coordinator.close();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+    }
+
+    private static List<AnalysisTask> createTasks(int depth) {
+        List<AnalysisTask> tasks = new ArrayList<AnalysisTask>();
+        for (String fen : POSITIONS) {
+            tasks.add(new AnalysisTask(fen, 0, depth));
+        }
+        return tasks;
+    }
+
+    private void assertAnalyzed(List<AnalysisTask> tasks, List<AnalysisResult> results) {
+        AnalysisWorker local = new AnalysisWorker(new Evaluation(), 1);
+        assertEquals(tasks.size(), results.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            AnalysisResult expected = local.analyze(tasks.get(i));
+            assertEquals(expected.getBestMove(), results.get(i).getBestMove());
+            assertEquals(expected.getScore(), results.get(i).getScore());
+            assertEquals(expected.getNodes(), results.get(i).getNodes());
+        }
+    }
+
+    /**
+     * Run an AnalysisWorker on a thread of this JVM.
+     */
+    private void startLocalWorker() {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+                    try {
+                        new AnalysisWorker(new Evaluation(), 1).run(socket);
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                    // Disconnected by close().
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+    }
+
+    /**
+     * Connect a worker that takes one lease and then either disconnects or never answers.
+     */
+    private void startBrokenWorker(final boolean hang) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket socket = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+                    try {
+                        new DataOutputStream(socket.getOutputStream()).writeInt(AnalysisCoordinator.MAGIC);
+                        DataInputStream in = new DataInputStream(socket.getInputStream());
+                        in.readInt();
+                        if (hang) {
+                            while (in.read() >= 0) {
+                                // Wait for the coordinator to give up on the lease.
+                            }
+                        }
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                    // Disconnected by the coordinator.
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+    }
+
+    @Test
+    public void workerProcesses() throws Exception {
+        coordinator = new AnalysisCoordinator(2, 60000);
+        coordinator.startWorkers(3);
+        List<AnalysisTask> tasks = createTasks(3);
+        List<AnalysisResult> results = coordinator.submit(tasks).get(60, TimeUnit.SECONDS);
+        assertAnalyzed(tasks, results);
+        assertEquals(0, coordinator.getNoOfFailures());
+    }
+
+    @Test
+    public void disconnectedWorker() throws Exception {
+        coordinator = new AnalysisCoordinator(1, 60000);
+        startBrokenWorker(false);
+        Thread.sleep(200);
+        List<AnalysisTask> tasks = createTasks(2);
+        Future<List<AnalysisResult>> future = coordinator.submit(tasks);
+        Thread.sleep(200);
+        startLocalWorker();
+        assertAnalyzed(tasks, future.get(30, TimeUnit.SECONDS));
+        assertEquals(1, coordinator.getNoOfFailures());
+    }
+
+    @Test
+    public void timedOutWorker() throws Exception {
+        coordinator = new AnalysisCoordinator(3, 500);
+        startBrokenWorker(true);
+        Thread.sleep(200);
+        List<AnalysisTask> tasks = createTasks(1);
+        Future<List<AnalysisResult>> future = coordinator.submit(tasks);
+        startLocalWorker();
+        assertAnalyzed(tasks, future.get(30, TimeUnit.SECONDS));
+        assertEquals(1, coordinator.getNoOfFailures());
+    }
+
+    @Test
+    public void slowLease() throws Exception {
+        coordinator = new AnalysisCoordinator(1, 500);
+        // The first search takes longer than the lease time, so the worker is disconnected once.
+        final AnalysisWorker worker = new AnalysisWorker(new Evaluation(), 1) {
+            private boolean slow = true;
+
+            @Override
+            public AnalysisResult analyze(AnalysisTask task) {
+                if (slow) {
+                    slow = false;
+                    try {
+                        Thread.sleep(700);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.analyze(task);
+            }
+        };
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                worker.connect(coordinator.getPort());
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+
+        List<AnalysisTask> tasks = createTasks(1);
+        assertAnalyzed(tasks.subList(0, 1), coordinator.submit(tasks.subList(0, 1)).get(30, TimeUnit.SECONDS));
+        assertEquals(1, coordinator.getNoOfFailures());
+        // The worker connected again and serves the next job.
+        assertAnalyzed(tasks, coordinator.submit(tasks).get(30, TimeUnit.SECONDS));
+        assertEquals(1, coordinator.getNoOfFailures());
+    }
+
+    @Test
+    public void noWorkers() throws Exception {
+        coordinator = new AnalysisCoordinator(1, 200);
+        Future<List<AnalysisResult>> future = coordinator.submit(createTasks(1));
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void failedLease() throws Exception {
+        coordinator = new AnalysisCoordinator(10, 60000);
+        Future<List<AnalysisResult>> future = coordinator.submit(createTasks(1));
+        for (int i = 0; i < AnalysisCoordinator.MAX_ATTEMPTS; i++) {
+            startBrokenWorker(false);
+        }
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void game() throws Exception {
+        coordinator = new AnalysisCoordinator(4, 60000);
+        startLocalWorker();
+        startLocalWorker();
+        Board board = Board.fromFen(POSITIONS[0]);
+        List<Move> moves = new ArrayList<Move>();
+        for (String text : new String[] {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5"}) {
+            Move move = Move.parse((moves.size() % 2 == 0) ? PieceColor.WHITE : PieceColor.BLACK, board, text);
+            assertTrue(board.makeMove(move));
+            moves.add(move);
+        }
+        List<AnalysisTask> tasks = AnalysisTask.forGame(
+                new GameRecord(board.getSize(), "white", "black", GameResult.DRAW, moves), 2);
+        assertEquals(6, tasks.size());
+        assertAnalyzed(tasks, coordinator.submit(tasks).get(30, TimeUnit.SECONDS));
+    }
+}
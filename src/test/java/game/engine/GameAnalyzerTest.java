@@ -0,0 +1,56 @@
+package game.engine;
+
+import game.GameResult;
+import game.store.GameRecord;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class GameAnalyzerTest {
+
+    private GameAnalyzer analyzer;
+
+    @Before
+    public void setUp() {
+        analyzer = new GameAnalyzer(new Evaluation(), 3, 4, new TranspositionTable(16));
+    }
+
+    @After
+    public void tearDown() {
+        analyzer.shutdown();
+    }
+
+    @Test
+    public void scholarsMate() throws Exception {
+        GameRecord game = GameRecord.of("white", "black", GameResult.WHITE_WINS,
+                "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7");
+        GameReview review = analyzer.analyze(game);
+
+        // 3... Nf6 allows mate in one, and white finds it.
+        assertEquals(Collections.singletonList(5), review.getBlunders(GameReview.BLUNDER));
+        assertEquals("h5f7", review.getBestMove(6).toString());
+        assertTrue(review.getPosition(6).isMate());
+        assertTrue(review.getScore(6) > 0);
+        assertEquals(0, review.getLoss(6));
+
+        // The final position has no Moves left.
+        assertNull(review.getBestMove(7));
+        assertEquals(-Search.MATE, review.getPosition(7).getScore());
+    }
+
+    @Test
+    public void sameAsSequential() throws Exception {
+        GameRecord game = GameRecord.of("white", "black", GameResult.DRAW,
+                "e2e4", "c7c5", "g1f3", "d7d6", "d2d4", "c5d4", "f3d4");
+        GameReview review = analyzer.analyze(game);
+        for (int ply = 0; ply <= game.getNoOfMoves(); ply++) {
+            SearchInfo alone = new Search(new Evaluation()).search(game.replay(ply), ply % 2, 3, null);
+            assertEquals(alone.getScore(), review.getPosition(ply).getScore());
+        }
+    }
+}
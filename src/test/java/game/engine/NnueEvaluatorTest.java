@@ -0,0 +1,118 @@
+package game.engine;
+
+import game.Board;
+import game.BoardSize;
+import game.Move;
+import game.PieceListener;
+import game.Player;
+import game.piece.ChessPiece;
+import game.piece.PieceColor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class NnueEvaluatorTest {
+
+    private final NnueEvaluator network = NnueEvaluator.random(32, 5);
+
+    @Test
+    public void incrementalMatchesFull() {
+        for (BoardSize size : new BoardSize[] {BoardSize.STANDARD, BoardSize.XIANGQI, BoardSize.LARGE}) {
+            Board board = new Board(new Player("white", PieceColor.WHITE), new Player("black", PieceColor.BLACK), size);
+            Random random = new Random(size.getSquares());
+            int color = 0;
+            int plies = 0;
+            for (; plies < 60; plies++) {
+                List<Move> moves = board.getAllValidMovesByPlayer(color);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                assertTrue(board.makeMove(moves.get(random.nextInt(moves.size()))));
+                color = 1 - color;
+                assertEquals(network.evaluateFully(board, color), network.evaluate(board, color));
+            }
+            for (; plies > 0; plies--) {
+                assertTrue(board.undoMove());
+                color = 1 - color;
+                assertEquals(network.evaluateFully(board, color), network.evaluate(board, color));
+            }
+        }
+    }
+
+    @Test
+    public void symmetric() {
+        // The starting position looks the same from both sides, and the random network scores the
+        // opponent's pieces as the negation of the own.
+        for (BoardSize size : new BoardSize[] {BoardSize.STANDARD, BoardSize.LARGE}) {
+            Board board = new Board(new Player("white", PieceColor.WHITE), new Player("black", PieceColor.BLACK), size);
+            assertEquals(network.evaluate(board, 0), network.evaluate(board, 1));
+        }
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        File file = File.createTempFile("network", ".nnue");
+        try {
+            network.save(file);
+            NnueEvaluator loaded = NnueEvaluator.load(file);
+            assertEquals(32, loaded.getHidden());
+            Board board = Board.fromFen("r1a1k1ar/ppp2ppp/2n5/3pp3/2C5/2A2c2/PPPP1PPP/R3K1NR");
+            assertEquals(network.evaluate(board, 0), loaded.evaluate(board, 0));
+            assertEquals(network.evaluate(board, 1), loaded.evaluate(board, 1));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void loadNoNetwork() throws Exception {
+        File file = File.createTempFile("network", ".nnue");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[64]);
+            out.close();
+            NnueEvaluator.load(file);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void foreignListener() {
+        Board board = new Board(new Player("white", PieceColor.WHITE), new Player("black", PieceColor.BLACK));
+        PieceListener listener = new PieceListener() {
+            public void pieceAdded(int square, ChessPiece piece) {
+            }
+
+            public void pieceRemoved(int square, ChessPiece piece) {
+            }
+
+            public void piecesReset(Board board) {
+            }
+        };
+        board.setPieceListener(listener);
+        try {
+            network.evaluate(board, 0);
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(listener, board.getPieceListener());
+        }
+    }
+
+    @Test
+    public void search() {
+        Board board = Board.fromFen("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR");
+        String before = board.toFen();
+        SearchInfo info = new Search(network).search(board, 0, 3, null);
+        assertNotNull(info.getBestMove());
+        assertEquals(before, board.toFen());
+        assertEquals(network.evaluateFully(board, 0), network.evaluate(board, 0));
+    }
+}
@@ -0,0 +1,104 @@
+package game.engine;
+
+import game.Board;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SearchTest {
+
+    private Board board;
+
+    @Before
+    public void setUp() {
+        board = new Board(new Player("player1", PieceColor.WHITE), new Player("player2", PieceColor.BLACK));
+    }
+
+    @Test
+    public void evaluationIsSymmetric() throws Exception {
+        Evaluation evaluation = new Evaluation();
+        assertEquals(0, evaluation.evaluate(board, 0));
+        assertEquals(0, evaluation.evaluate(board, 1));
+
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 4, 4)));
+        assertEquals(evaluation.evaluate(board, 0), -evaluation.evaluate(board, 1));
+    }
+
+    @Test
+    public void iterations() throws Exception {
+        final List<SearchInfo> infos = new ArrayList<SearchInfo>();
+        Search search = new Search(new Evaluation());
+        SearchInfo result = search.search(board, 0, 2, new Search.Listener() {
+            public void onIteration(SearchInfo info) {
+                infos.add(info);
+            }
+        });
+
+        assertEquals(2, infos.size());
+        assertEquals(1, infos.get(0).getDepth());
+        assertSame(result, infos.get(1));
+        assertNotNull(result.getBestMove());
+        assertTrue(result.getNodes() > 0);
+        assertTrue(Math.abs(result.getScore()) < 100);
+
+        // The search restores the Board.
+        assertEquals(new Board(new Player("player1", PieceColor.WHITE),
+                new Player("player2", PieceColor.BLACK)).getPosition(), board.snapshot());
+    }
+
+    @Test
+    public void winsHangingKnight() throws Exception {
+        // 1. e4 Nc6 2. Nf3 Nd4, the black knight on (4,3) is not protected.
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 6, 4, 4, 4)));
+        assertTrue(board.makeMove(new Move(PieceColor.BLACK, board, 0, 1, 2, 2)));
+        assertTrue(board.makeMove(new Move(PieceColor.WHITE, board, 7, 6, 5, 5)));
+        assertTrue(board.makeMove(new Move(PieceColor.BLACK, board, 2, 2, 4, 3)));
+
+        SearchInfo result = new Search(new Evaluation()).search(board, 0, 2, null);
+        assertEquals(4, result.getBestMove().getDestX());
+        assertEquals(3, result.getBestMove().getDestY());
+        assertTrue(result.getScore() > 200);
+    }
+
+    @Test
+    public void transpositionTable() throws Exception {
+        SearchInfo plain = new Search(new Evaluation()).search(board, 0, 4, null);
+        Search search = new Search(new Evaluation());
+        search.setTranspositionTable(new TranspositionTable(1));
+        SearchInfo hashed = search.search(board, 0, 4, null);
+        assertEquals(plain.getScore(), hashed.getScore());
+        assertTrue(hashed.getNodes() < plain.getNodes());
+
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(12345, -MATE_IN_TWO, 4, TranspositionTable.LOWER, 7 | 9 << 7);
+        long data = table.probe(12345);
+        assertEquals(-MATE_IN_TWO, TranspositionTable.getScore(data));
+        assertEquals(4, TranspositionTable.getDepth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(data));
+        assertEquals(7 | 9 << 7, TranspositionTable.getMove(data));
+        assertEquals(0, table.probe(12345 + (1 << 20)));
+    }
+
+    private static final int MATE_IN_TWO = Search.MATE - 3;
+
+    @Test
+    public void stop() throws Exception {
+        Search search = new Search(new Evaluation());
+        search.stop();
+        assertNull(search.search(board, 0, 5, null));
+        // The stop ends that search only, and so does the node limit.
+        assertEquals(2, search.search(board, 0, 2, null).getDepth());
+        search.setNodeLimit(10);
+        assertNull(search.search(board, 0, 5, null));
+        search.setNodeLimit(Long.MAX_VALUE);
+        assertEquals(2, search.search(board, 0, 2, null).getDepth());
+    }
+}
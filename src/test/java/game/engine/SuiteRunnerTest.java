@@ -0,0 +1,55 @@
+package game.engine;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SuiteRunnerTest {
+
+    private static final String SUITE =
+            "# mates and a hanging piece\n"
+            + "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w bm h5f7; id scholar\n"
+            + "\n"
+            + "6k1/5ppp/8/8/8/8/5PPP/3R2K1 b bm g8f8 h7h6\n"
+            + "6k1/1c3ppp/8/1A6/8/8/1C3PPP/6K1 w bm a1a2; id \"wrong\"\n";
+
+    @Test
+    public void read() throws Exception {
+        List<SuiteRunner.Entry> entries = SuiteRunner.read(new StringReader(SUITE));
+        assertEquals(3, entries.size());
+        assertEquals("scholar", entries.get(0).getId());
+        assertEquals(0, entries.get(0).getColor());
+        assertEquals("2", entries.get(1).getId());
+        assertEquals(1, entries.get(1).getColor());
+        assertEquals(2, entries.get(1).getBestMoves().size());
+        assertEquals("wrong", entries.get(2).getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLine() throws Exception {
+        SuiteRunner.read(new StringReader("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w h7h6\n"));
+    }
+
+    @Test
+    public void run() throws Exception {
+        List<SuiteRunner.Result> results = new SuiteRunner(2, 3, 0, 0, 1).run(
+                SuiteRunner.read(new StringReader(SUITE)));
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSolved());
+        assertEquals("h5f7", results.get(0).getMove());
+        assertTrue(results.get(1).isSolved());
+        assertFalse(results.get(2).isSolved());
+        assertEquals(-1, results.get(2).getSolvedMillis());
+        assertTrue(results.get(2).getNodes() > 0);
+        assertTrue(SuiteRunner.getPercentile(results, 50) >= 0);
+
+        // A node limit ends the search after the iterations completed before it.
+        results = new SuiteRunner(1, 10, 0, 500, 0).run(SuiteRunner.read(new StringReader(SUITE)));
+        for (SuiteRunner.Result result : results) {
+            assertTrue(result.getNodes() <= 500);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package game.rating;
+
+import game.GameResult;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class RatingServiceTest {
+
+    @Test
+    public void elo() {
+        RatingService service = new RatingService(RatingFormula.ELO);
+        Rating[] after = service.record("alice", "bob", GameResult.WHITE_WINS);
+        assertEquals(1516, after[0].getValue(), 1e-9);
+        assertEquals(1484, after[1].getValue(), 1e-9);
+        assertEquals(1, after[0].getWins());
+        assertEquals(1, after[1].getLosses());
+
+        // A draw against a weaker player costs rating.
+        after = service.record("bob", "alice", GameResult.DRAW);
+        assertTrue(after[0].getValue() > 1484);
+        assertEquals(3000, after[0].getValue() + after[1].getValue(), 1e-9);
+    }
+
+    @Test
+    public void glicko() {
+        RatingService service = new RatingService(RatingFormula.GLICKO);
+        Rating[] after = service.record("alice", "bob", GameResult.DRAW);
+        assertEquals(1500, after[0].getValue(), 1e-9);
+        assertTrue(after[0].getDeviation() < Rating.INITIAL_DEVIATION);
+
+        // New players move much faster than with Elo.
+        after = service.record("alice", "bob", GameResult.BLACK_WINS);
+        assertTrue(after[1].getValue() > 1600);
+        assertEquals(after[0].getValue() + after[1].getValue(), 3000, 1e-6);
+        for (int i = 0; i < 200; i++) {
+            after = service.record("alice", "bob", GameResult.DRAW);
+        }
+        assertEquals(30, after[0].getDeviation(), 1e-9);
+    }
+
+    @Test
+    public void leaderboard() {
+        RatingService service = new RatingService(RatingFormula.ELO);
+        service.record("carol", "bob", GameResult.WHITE_WINS);
+        service.record("alice", "dave", GameResult.WHITE_WINS);
+        service.record("alice", "carol", GameResult.WHITE_WINS);
+
+        List<Rating> top = service.getLeaderboard(10);
+        assertEquals(4, top.size());
+        assertEquals("alice", top.get(0).getName());
+        assertEquals("dave", top.get(3).getName());
+        assertEquals(2, service.getLeaderboard(2).size());
+        assertEquals(Rating.INITIAL_VALUE, service.get("nobody").getValue(), 1e-9);
+    }
+
+    @Test
+    public void concurrentGames() throws Exception {
+        final RatingService service = new RatingService(RatingFormula.GLICKO);
+        final int threads = 4;
+        final int games = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < games; i++) {
+                        int white = (i + offset) % 10;
+                        int black = (white + 1 + i % 9) % 10;
+                        service.record("player" + white, "player" + black, GameResult.values()[i % 3]);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int noOfGames = 0;
+        for (Rating rating : service.getLeaderboard(100)) {
+            noOfGames += rating.getNoOfGames();
+        }
+        assertEquals(10, service.size());
+        assertEquals(10, service.getLeaderboard(100).size());
+        assertEquals(2 * threads * games, noOfGames);
+        assertEquals(threads * games, service.getNoOfGames());
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        RatingService service = new RatingService(RatingFormula.ELO);
+        service.record("alice", "bob", GameResult.WHITE_WINS);
+        service.record("carol", "bob", GameResult.DRAW);
+        File file = File.createTempFile("ratings", "");
+        service.save(file);
+
+        RatingService loaded = new RatingService(RatingFormula.ELO);
+        loaded.load(file);
+        assertEquals(3, loaded.size());
+        assertEquals(service.get("bob"), loaded.get("bob"));
+        assertEquals(service.getLeaderboard(3), loaded.getLeaderboard(3));
+        assertTrue(file.delete());
+    }
+}
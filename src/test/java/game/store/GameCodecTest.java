@@ -0,0 +1,92 @@
+package game.store;
+
+import game.Board;
+import game.BoardSize;
+import game.GameResult;
+import game.Move;
+import game.Player;
+import game.piece.PieceColor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class GameCodecTest {
+
+    /**
+     * Play random valid Moves until the game ends or a number of plies is reached.
+     */
+    private static GameRecord createRandomGame(BoardSize size, long seed, int plies) {
+        Board board = new Board(new Player("white", PieceColor.WHITE), new Player("black", PieceColor.BLACK), size);
+        Random random = new Random(seed);
+        List<Move> moves = new ArrayList<Move>();
+        for (int ply = 0; ply < plies; ply++) {
+            List<Move> valid = new ArrayList<Move>(board.getAllValidMovesByPlayer(ply % 2));
+            if (valid.isEmpty()) {
+                break;
+            }
+            Move move = valid.get(random.nextInt(valid.size()));
+            assertTrue(board.makeMove(move));
+            moves.add(move);
+        }
+        return new GameRecord(size, "white", "black", GameResult.DRAW, moves);
+    }
+
+    private static void assertSameGame(GameRecord expected, GameRecord actual) {
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getWhite(), actual.getWhite());
+        assertEquals(expected.getBlack(), actual.getBlack());
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getNoOfMoves(), actual.getNoOfMoves());
+        for (int ply = 0; ply < expected.getNoOfMoves(); ply++) {
+            assertEquals(expected.getMoveCode(ply), actual.getMoveCode(ply));
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        for (BoardSize size : new BoardSize[] {BoardSize.STANDARD, BoardSize.XIANGQI, BoardSize.LARGE}) {
+            GameRecord game = createRandomGame(size, 7, 120);
+            byte[] data = GameCodec.encode(game);
+            assertSameGame(game, GameCodec.decode(data));
+
+            // Far below the 5 characters per ply of coordinate notation.
+            int header = 4 + 2 + 5 + 2 + 5 + 2;
+            assertTrue(data.length - header < game.getNoOfMoves());
+        }
+    }
+
+    @Test
+    public void concatenated() {
+        GameRecord first = createRandomGame(BoardSize.STANDARD, 1, 40);
+        GameRecord second = createRandomGame(BoardSize.STANDARD, 2, 41);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        GameCodec.encode(first, buffer);
+        GameCodec.encode(second, buffer);
+        buffer.flip();
+        assertSameGame(first, GameCodec.decode(buffer));
+        assertSameGame(second, GameCodec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void width() {
+        assertEquals(0, GameCodec.getWidth(1));
+        assertEquals(1, GameCodec.getWidth(2));
+        assertEquals(5, GameCodec.getWidth(20));
+        assertEquals(5, GameCodec.getWidth(32));
+        assertEquals(6, GameCodec.getWidth(33));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncated() {
+        byte[] data = GameCodec.encode(createRandomGame(BoardSize.STANDARD, 3, 60));
+        GameCodec.decode(Arrays.copyOf(data, data.length - 4));
+    }
+}
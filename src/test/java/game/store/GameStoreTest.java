@@ -0,0 +1,247 @@
+package game.store;
+
+import game.GameResult;
+import game.Player;
+import game.piece.PieceColor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class GameStoreTest {
+
+    private File directory;
+    private GameStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("games", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        store = new GameStore(directory, 4096);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+        for (File file : directory.listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void appendAndGet() throws Exception {
+        // Scholar's mate.
+        GameRecord mate = GameRecord.of("alice", "bob", GameResult.WHITE_WINS,
+                "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7");
+        assertEquals(Long.valueOf(0), store.append(mate).get());
+        assertEquals(Long.valueOf(1), store.append(GameRecord.of("bob", "carol", GameResult.DRAW, "d2d4")).get());
+
+        GameRecord stored = store.get(0);
+        assertEquals(0, stored.getId());
+        assertEquals("alice", stored.getWhite());
+        assertEquals("bob", stored.getBlack());
+        assertEquals(GameResult.WHITE_WINS, stored.getResult());
+        assertEquals(7, stored.getNoOfMoves());
+        assertEquals(game.GameStatus.CHECKMATE, stored.replay().getStatus(1));
+        assertNull(store.get(2));
+
+        assertEquals(Arrays.asList(0L, 1L), store.getGameIds("bob"));
+        assertArrayEquals(new int[] {0, 1, 1}, store.getStatistics("bob"));
+        Player alice = new Player("alice", PieceColor.WHITE);
+        store.restoreStatistics(alice);
+        assertEquals(1, alice.getNoOfWins());
+        assertEquals(0, alice.getNoOfLoses());
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        // Many small appends roll over into several segments of 4 KB.
+        List<Future<Long>> ids = new ArrayList<Future<Long>>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(store.append(GameRecord.of("white" + i % 3, "black", GameResult.BLACK_WINS, "e2e4", "e7e5")));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Long.valueOf(i), ids.get(i).get());
+        }
+        store.close();
+        assertTrue(directory.listFiles().length > 1);
+
+        store = new GameStore(directory, 4096);
+        assertEquals(300, store.size());
+        assertEquals(100, store.getGameIds("white1").size());
+        assertArrayEquals(new int[] {300, 0, 0}, store.getStatistics("black"));
+        assertEquals("white2", store.get(299).getWhite());
+        assertEquals(Long.valueOf(300), store.append(GameRecord.of("a", "b", GameResult.DRAW)).get());
+        assertEquals(2, store.get(150).getNoOfMoves());
+    }
+
+    @Test
+    public void tornRecord() throws Exception {
+        store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "e2e4")).get();
+        store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "d2d4")).get();
+        store.close();
+
+        // Cut the last record short, as a crash in the middle of a write would.
+        File segment = new File(directory, "games-00000.seg");
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        long length = file.length();
+        file.setLength(length - 3);
+        file.close();
+
+        store = new GameStore(directory, 4096);
+        assertEquals(1, store.size());
+        assertEquals(length / 2, segment.length());
+        assertEquals(Long.valueOf(1), store.append(GameRecord.of("carol", "bob", GameResult.WHITE_WINS)).get());
+        assertEquals("carol", store.get(1).getWhite());
+        assertEquals(Arrays.asList(0L, 1L), store.getGameIds("bob"));
+    }
+
+    @Test
+    public void undecodableRecord() throws Exception {
+        store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "e2e4")).get();
+        store.close();
+
+        // A record with a valid checksum but a body too short for a game.
+        File segment = new File(directory, "games-00000.seg");
+        long length = segment.length();
+        byte[] body = {1, 2, 3, 4};
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.seek(length);
+        file.writeInt(body.length);
+        file.writeInt((int) crc.getValue());
+        file.write(body);
+        file.close();
+
+        store = new GameStore(directory, 4096);
+        assertEquals(1, store.size());
+        assertEquals(length, segment.length());
+        assertEquals(Long.valueOf(1), store.append(GameRecord.of("carol", "bob", GameResult.DRAW)).get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void longName() {
+        char[] name = new char[GameRecord.MAX_NAME_LENGTH / 2 + 1];
+        // Three bytes each in UTF-8.
+        Arrays.fill(name, '\u20AC');
+        GameRecord.of(new String(name), "bob", GameResult.DRAW);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMove() {
+        GameRecord.of("alice", "bob", GameResult.DRAW, "e2e4", "e7e4");
+    }
+
+    @Test
+    public void writerError() throws Exception {
+        store.close();
+        store = new GameStore(directory, 4096) {
+            @Override
+            int writeSegment(FileChannel channel, ByteBuffer buffer) throws IOException {
+                throw new IllegalStateException("Bug");
+            }
+        };
+        try {
+            store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "e2e4")).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // Later appends fail at once, and close() does not hang.
+        Future<Long> next = store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "d2d4"));
+        assertTrue(next.isDone());
+        try {
+            next.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void failedWrite() throws Exception {
+        store.close();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger writes = new AtomicInteger();
+        store = new GameStore(directory, 512) {
+            @Override
+            int writeSegment(FileChannel channel, ByteBuffer buffer) throws IOException {
+                int write = writes.incrementAndGet();
+                if (write == 1) {
+                    // Hold the first batch, so the next appends are committed as one batch.
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                } else if (write == 3) {
+                    // Tear the second segment of the batch: half of it is written, then the disk fails.
+                    ByteBuffer half = buffer.duplicate();
+                    half.limit(half.position() + half.remaining() / 2);
+                    channel.write(half);
+                    throw new IOException("Disk failure");
+                }
+                return super.writeSegment(channel, buffer);
+            }
+        };
+
+        Future<Long> first = store.append(GameRecord.of("alice", "bob", GameResult.DRAW, "e2e4"));
+        blocked.await();
+        List<Future<Long>> failed = new ArrayList<Future<Long>>();
+        for (int i = 0; i < 30; i++) {
+            failed.add(store.append(GameRecord.of("carol", "dave", GameResult.WHITE_WINS, "e2e4", "e7e5")));
+        }
+        release.countDown();
+        assertEquals(Long.valueOf(0), first.get());
+        for (Future<Long> future : failed) {
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        assertTrue(writes.get() >= 3);
+
+        // Nothing of the failed batch is left, and the ids go on from the last stored game.
+        assertEquals(1, store.size());
+        assertEquals(1, directory.listFiles().length);
+        assertTrue(store.getGameIds("carol").isEmpty());
+        List<Future<Long>> ids = new ArrayList<Future<Long>>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(store.append(GameRecord.of("erin", "bob", GameResult.BLACK_WINS, "d2d4")));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Long.valueOf(i + 1), ids.get(i).get());
+        }
+        store.close();
+
+        store = new GameStore(directory, 512);
+        assertEquals(31, store.size());
+        assertEquals("alice", store.get(0).getWhite());
+        assertEquals("erin", store.get(30).getWhite());
+        assertArrayEquals(new int[] {30, 1, 0}, store.getStatistics("bob"));
+        assertTrue(store.getGameIds("carol").isEmpty());
+    }
+}
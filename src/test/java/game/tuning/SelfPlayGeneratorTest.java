@@ -0,0 +1,106 @@
+package game.tuning;
+
+import game.Board;
+import game.BoardSize;
+import game.Player;
+import game.piece.PieceColor;
+import game.piece.PieceType;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SelfPlayGeneratorTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("training", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void recordRoundTrip() {
+        Board board = Board.fromFen("r1a1k2c1r/ppp2ppppp/2n7/3pp5/10/4P5/2C7/10/PPPP1PPPPP/R1A1K2ANR");
+        ByteBuffer buffer = ByteBuffer.allocate(TrainingRecord.MAX_SIZE);
+        TrainingRecord.encode(board, 1, -40000, 2, buffer);
+        assertTrue(buffer.position() <= TrainingRecord.MAX_SIZE);
+        buffer.flip();
+
+        TrainingRecord record = TrainingRecord.decode(BoardSize.LARGE, buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(1, record.getColorToMove());
+        assertEquals(Short.MIN_VALUE, record.getScore());
+        assertEquals(2, record.getResult());
+        assertEquals(33, record.getNoOfPieces());
+        assertEquals(PieceType.ROOK, record.getType(0));
+        assertEquals(1, record.getColor(0));
+        assertEquals(PieceType.CANNON, record.getType(17));
+        assertEquals(0, record.getColor(17));
+        assertEquals(board.toFen(), record.toBoard().toFen());
+    }
+
+    @Test
+    public void fileRoundTrip() throws Exception {
+        Board board = new Board(new Player("white", PieceColor.WHITE), new Player("black", PieceColor.BLACK));
+        TrainingDataWriter writer = new TrainingDataWriter(file, BoardSize.STANDARD);
+        ByteBuffer chunk = ByteBuffer.allocate(TrainingDataWriter.CHUNK_SIZE);
+        for (int i = 0; i < 1000; i++) {
+            TrainingRecord.encode(board, i % 2, i, i % 3, chunk);
+            if (i % 300 == 299) {
+                writer.write(chunk, 300);
+            }
+        }
+        writer.write(chunk, 100);
+        writer.close();
+        assertEquals(1000, writer.getNoOfRecords());
+
+        TrainingDataReader reader = new TrainingDataReader(file);
+        try {
+            assertEquals(BoardSize.STANDARD, reader.getSize());
+            for (int i = 0; i < 1000; i++) {
+                TrainingRecord record = reader.next();
+                assertEquals(i, record.getScore());
+                assertEquals(i % 2, record.getColorToMove());
+                assertEquals(i % 3, record.getResult());
+                assertEquals(board.toFen(), record.toBoard().toFen());
+            }
+            assertNull(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void generate() throws Exception {
+        TrainingDataWriter writer = new TrainingDataWriter(file, BoardSize.STANDARD);
+        long written = new SelfPlayGenerator(BoardSize.STANDARD, 1, 2, 42).generate(writer, 200);
+        writer.close();
+        assertTrue(written >= 200);
+
+        TrainingDataReader reader = new TrainingDataReader(file);
+        try {
+            long read = 0;
+            TrainingRecord record;
+            while ((record = reader.next()) != null) {
+                read++;
+                assertTrue(record.getResult() >= 0 && record.getResult() <= 2);
+                Board board = record.toBoard();
+                assertFalse(board.isChecked(record.getColorToMove()));
+            }
+            assertEquals(written, read);
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package game.tuning;
+
+import game.Board;
+import game.engine.Evaluation;
+import game.piece.PieceType;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class TunerTest {
+
+    private static TrainingRecord record(String fen, int color, int score, int result) {
+        Board board = Board.fromFen(fen);
+        ByteBuffer buffer = ByteBuffer.allocate(TrainingRecord.MAX_SIZE);
+        TrainingRecord.encode(board, color, score, result, buffer);
+        buffer.flip();
+        return TrainingRecord.decode(board.getSize(), buffer);
+    }
+
+    @Test
+    public void errorMatchesEvaluation() {
+        String fen = "r1a1k2c1r/ppp2ppppp/2n7/3pp5/10/4P5/2C7/10/PPPP1PPPPP/R1A1K2ANR";
+        TuningSet data = new TuningSet();
+        data.add(record(fen, 1, 0, 2));
+        Tuner tuner = new Tuner(data, 2, 1);
+        tuner.setScaling(1.5);
+
+        int score = new Evaluation().evaluate(Board.fromFen(fen), 0);
+        double expected = 1 / (1 + Math.pow(10, -1.5 * score / 400));
+        assertEquals((1 - expected) * (1 - expected), tuner.getError(Evaluation.getDefaultWeights()), 1e-12);
+        tuner.shutdown();
+    }
+
+    @Test
+    public void tuneCannonMaterial() throws Exception {
+        // White is a Cannon up in half of the positions and wins them; the other half are drawn.
+        Random random = new Random(7);
+        TuningSet data = new TuningSet();
+        for (int i = 0; i < 2000; i++) {
+            boolean up = random.nextBoolean();
+            int file = random.nextInt(8);
+            String cannon = (file == 0) ? "C7" : (file == 7) ? "7C" : file + "C" + (7 - file);
+            data.add(record("4k3/pppppppp/8/8/8/" + (up ? cannon : "8") + "/PPPPPPPP/4K3",
+                    i % 2, 0, up ? 2 : 1));
+        }
+        int[] weights = Evaluation.getDefaultWeights();
+        weights[Evaluation.getWeightIndex(PieceType.CANNON, -1)] = 0;
+
+        Tuner tuner = new Tuner(data, 2, 1);
+        tuner.setScaling(1);
+        double before = tuner.getError(weights);
+        File checkpoint = File.createTempFile("weights", ".txt");
+        try {
+            int[] tuned = tuner.tune(weights, 20, 256, 5, 1, checkpoint);
+            assertTrue(tuner.getError(tuned) < before);
+            assertTrue(tuned[Evaluation.getWeightIndex(PieceType.CANNON, -1)] > 50);
+            assertArrayEquals(tuned, Tuner.readWeights(checkpoint));
+            assertEquals(weights[Evaluation.getWeightIndex(PieceType.KING, -1)],
+                    tuned[Evaluation.getWeightIndex(PieceType.KING, -1)]);
+        } finally {
+            tuner.shutdown();
+            assertTrue(checkpoint.delete());
+        }
+    }
+
+    @Test
+    public void weightsRoundTrip() throws Exception {
+        File file = File.createTempFile("weights", ".txt");
+        try {
+            int[] weights = Evaluation.getDefaultWeights();
+            weights[Evaluation.getWeightIndex(PieceType.ALFIL, 27)] = -123;
+            Tuner.writeWeights(file, weights);
+            assertArrayEquals(weights, Tuner.readWeights(file));
+            assertArrayEquals(weights, new Evaluation(Tuner.readWeights(file)).getWeights());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void defaultWeights() {
+        assertEquals(Evaluation.NO_OF_WEIGHTS, Evaluation.getDefaultWeights().length);
+        assertEquals(Evaluation.getMaterial(PieceType.CANNON),
+                new Evaluation().getWeights()[Evaluation.getWeightIndex(PieceType.CANNON, -1)]);
+    }
+}